@@ -0,0 +1,280 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zeromq.SocketType;
+import org.zeromq.ZFrame;
+import org.zeromq.ZMQ;
+import org.zeromq.ZMQException;
+import org.zeromq.ZMsg;
+
+import com.google.gson.JsonObject;
+
+import sd.library.PosicionReplica;
+import sd.library.ProcesadorGA;
+import sd.library.codec.Codec;
+import sd.library.codec.Codecs;
+import sd.library.model.Request;
+
+/*
+ * Ida y vuelta completa PS -> GC -> actor -> GA -> actor -> GC -> PS dentro de un proceso
+ * - Mismos patrones que el despliegue (GC asíncrono con resultados push): DEALER -> ROUTER,
+ *   PUB/SUB por topic, REQ/REP al GA, PUSH/PULL de resultados con id de correlación
+ * - Transporte inproc: sin red ni kernel, queda el costo de los saltos, la codificación y
+ *   el ProcesadorGA (persistencia en memoria)
+ * - Cada hilo del benchmark alterna PRESTAMO y DEVOLUCION de un libro propio, así el
+ *   inventario no se agota
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CadenaInprocBench {
+    private static final String PS = "inproc://ps";
+    private static final String ACTORES = "inproc://actores";
+    private static final String RESULTADOS = "inproc://resultados";
+    private static final String GA = "inproc://ga";
+    private static final int LIBROS = 1000;
+
+    @State(Scope.Benchmark)
+    public static class Cadena {
+        @Param({ "json", "binario" })
+        public String codec;
+
+        Codec c;
+        ZMQ.Context ctx;
+        Path dir;
+        final List<Thread> hilos = new ArrayList<>();
+        final AtomicInteger clientes = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void iniciar() throws IOException, InterruptedException {
+            c = Codecs.porNombre(codec);
+            ctx = ZMQ.context(1);
+            dir = Files.createTempDirectory("bench-cadena");
+            ProcesadorGA procesador = new ProcesadorGA(new Datos.MotorEnMemoria(LIBROS),
+                    new PosicionReplica(dir.resolve("inventario.json.repl").toString()), null);
+            procesador.cargar();
+
+            // inproc exige bind antes de connect: cada etapa arranca cuando la siguiente ya escucha
+            CountDownLatch gaListo = new CountDownLatch(1);
+            CountDownLatch gcListo = new CountDownLatch(1);
+            iniciarHilo("ga", () -> ga(procesador, gaListo));
+            gaListo.await();
+            iniciarHilo("gc", () -> gc(gcListo));
+            gcListo.await();
+            iniciarHilo("actor", this::actor);
+            esperarSuscripcion();
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() throws IOException, InterruptedException {
+            ctx.term(); // los hilos salen con ETERM y cierran sus sockets
+            for (Thread t : hilos) t.join();
+            Datos.borrar(dir);
+        }
+
+        private void iniciarHilo(String nombre, Runnable r) {
+            Thread t = new Thread(() -> {
+                try {
+                    r.run();
+                } catch (ZMQException e) {
+                    // contexto terminado
+                }
+            }, nombre);
+            t.setDaemon(true);
+            t.start();
+            hilos.add(t);
+        }
+
+        // PUB descarta lo publicado antes de que el SUB termine de conectarse: sondear hasta
+        // recibir respuesta (DEVOLUCION sin préstamo: error de negocio, no cambia el inventario)
+        private void esperarSuscripcion() {
+            ZMQ.Socket sonda = ctx.socket(SocketType.DEALER);
+            sonda.setLinger(0);
+            sonda.connect(PS);
+            try {
+                byte[] cuerpo = c.codificarRequest(new Request(Request.Tipo.DEVOLUCION, Datos.isbn(0), "SONDA"));
+                for (int i = 0; i < 100; i++) {
+                    sonda.sendMore("");
+                    sonda.send(cuerpo);
+                    sonda.setReceiveTimeOut(100);
+                    if (sonda.recv() != null) break;
+                }
+                sonda.setReceiveTimeOut(200);
+                while (sonda.recv() != null) {
+                    // respuestas tardías de sondas anteriores
+                }
+            } finally {
+                sonda.close();
+            }
+        }
+
+        private void ga(ProcesadorGA procesador, CountDownLatch listo) {
+            ZMQ.Socket rep = ctx.socket(SocketType.REP);
+            rep.setLinger(0);
+            rep.bind(GA);
+            listo.countDown();
+            try {
+                byte[] datos;
+                while ((datos = rep.recv()) != null) {
+                    Codec codecReq = Codecs.detectar(datos);
+                    JsonObject req = codecReq.decodificar(datos);
+                    rep.send(codecReq.codificar(procesador.procesar(req.get("type").getAsString(), req)));
+                }
+            } finally {
+                rep.close();
+            }
+        }
+
+        private void gc(CountDownLatch listo) {
+            ZMQ.Socket routerPS = ctx.socket(SocketType.ROUTER);
+            ZMQ.Socket pub = ctx.socket(SocketType.PUB);
+            ZMQ.Socket pull = ctx.socket(SocketType.PULL);
+            for (ZMQ.Socket s : new ZMQ.Socket[] { routerPS, pub, pull }) s.setLinger(0);
+            routerPS.bind(PS);
+            pub.bind(ACTORES);
+            pull.bind(RESULTADOS);
+            listo.countDown();
+
+            Map<String, ZMsg> pendientes = new HashMap<>();
+            long secuencia = 0;
+            ZMQ.Poller poller = ctx.poller(2);
+            poller.register(routerPS, ZMQ.Poller.POLLIN);
+            poller.register(pull, ZMQ.Poller.POLLIN);
+            try {
+                while (poller.poll(-1) >= 0) {
+                    if (poller.pollin(0)) {
+                        ZMsg msg = ZMsg.recvMsg(routerPS);
+                        if (msg == null) break;
+                        ZFrame cuerpo = msg.pollLast();
+                        Request req = Codecs.detectar(cuerpo.getData()).decodificarRequest(cuerpo.getData());
+                        cuerpo.destroy();
+                        String id = Long.toString(++secuencia);
+                        req.setId(id);
+                        pendientes.put(id, msg);
+                        pub.sendMore(req.getTipo().toString());
+                        pub.send(c.codificarRequest(req));
+                    }
+                    if (poller.pollin(1)) {
+                        ZMsg msg = ZMsg.recvMsg(pull);
+                        if (msg == null) break;
+                        for (ZFrame f : msg) {
+                            JsonObject resp = Codecs.detectar(f.getData()).decodificar(f.getData());
+                            ZMsg sobre = pendientes.remove(resp.remove("id").getAsString());
+                            if (sobre == null) continue;
+                            sobre.add(c.codificar(resp));
+                            sobre.send(routerPS);
+                        }
+                        msg.destroy();
+                    }
+                }
+            } finally {
+                poller.close();
+                routerPS.close();
+                pub.close();
+                pull.close();
+            }
+        }
+
+        private void actor() {
+            ZMQ.Socket sub = ctx.socket(SocketType.SUB);
+            ZMQ.Socket ga = ctx.socket(SocketType.REQ);
+            ZMQ.Socket push = ctx.socket(SocketType.PUSH);
+            for (ZMQ.Socket s : new ZMQ.Socket[] { sub, ga, push }) s.setLinger(0);
+            sub.connect(ACTORES);
+            sub.subscribe(Request.Tipo.PRESTAMO.toString().getBytes(ZMQ.CHARSET));
+            sub.subscribe(Request.Tipo.DEVOLUCION.toString().getBytes(ZMQ.CHARSET));
+            ga.connect(GA);
+            push.connect(RESULTADOS);
+            try {
+                while (sub.recvStr() != null) { // topic
+                    byte[] datos = sub.recv();
+                    if (datos == null) break;
+                    Request req = Codecs.detectar(datos).decodificarRequest(datos);
+
+                    JsonObject op = new JsonObject();
+                    String tipo = req.getTipo() == Request.Tipo.PRESTAMO ? "PRESTAR" : "DEVOLVER";
+                    op.addProperty("type", tipo);
+                    op.addProperty("isbn", req.getIsbn());
+                    op.addProperty("usuario", req.getUsuario());
+                    ga.send(c.codificar(op));
+                    byte[] respGA = ga.recv();
+                    if (respGA == null) break;
+
+                    JsonObject resultado = c.decodificar(respGA);
+                    resultado.addProperty("id", req.getId());
+                    push.send(c.codificar(resultado));
+                }
+            } finally {
+                sub.close();
+                ga.close();
+                push.close();
+            }
+        }
+    }
+
+    // Un DEALER por hilo del benchmark, como un PS
+    @State(Scope.Thread)
+    public static class Cliente {
+        ZMQ.Socket dealer;
+        byte[] prestamo;
+        byte[] devolucion;
+        boolean prestado;
+
+        @Setup(Level.Trial)
+        public void conectar(Cadena cadena) {
+            int n = cadena.clientes.getAndIncrement();
+            String isbn = Datos.isbn(n % LIBROS);
+            String usuario = "BENCH" + n;
+            prestamo = cadena.c.codificarRequest(new Request(Request.Tipo.PRESTAMO, isbn, usuario));
+            devolucion = cadena.c.codificarRequest(new Request(Request.Tipo.DEVOLUCION, isbn, usuario));
+            dealer = cadena.ctx.socket(SocketType.DEALER);
+            dealer.setLinger(0);
+            dealer.connect(PS);
+        }
+
+        @TearDown(Level.Trial)
+        public void desconectar() {
+            dealer.close();
+        }
+    }
+
+    @Benchmark
+    public byte[] idaYVuelta(Cliente cliente) {
+        cliente.dealer.sendMore("");
+        cliente.dealer.send(cliente.prestado ? cliente.devolucion : cliente.prestamo);
+        cliente.prestado = !cliente.prestado;
+        cliente.dealer.recv(); // delimitador
+        return cliente.dealer.recv();
+    }
+}
@@ -0,0 +1,113 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import sd.library.codec.Codec;
+import sd.library.codec.Codecs;
+import sd.library.model.Libro;
+import sd.library.model.Request;
+
+/*
+ * Codificación de los mensajes que viajan en cada salto
+ * - Request del PS (PS -> GC -> actor) en cada codec
+ * - Respuesta del GA con el libro (GA -> actor) en cada codec
+ * - Libro <-> árbol JSON con Gson, como lo hace ProcesadorGA en GET_LIBRO/UPDATE_LIBRO
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBench {
+    private static final Gson gson = new Gson();
+
+    @State(Scope.Thread)
+    public static class Formato {
+        @Param({ "json", "binario" })
+        public String codec;
+
+        Codec c;
+        Request request;
+        byte[] requestCodificada;
+        JsonObject respuesta;
+        byte[] respuestaCodificada;
+
+        @Setup
+        public void preparar() {
+            c = Codecs.porNombre(codec);
+            request = new Request(Request.Tipo.PRESTAMO, Datos.isbn(42), "USUARIO42");
+            request.setId("123456");
+            requestCodificada = c.codificarRequest(request);
+
+            respuesta = new JsonObject();
+            respuesta.addProperty("estatus", "OK");
+            respuesta.add("libro", gson.toJsonTree(Datos.libro(42)));
+            respuesta.addProperty("mensaje", "Préstamo registrado");
+            respuestaCodificada = c.codificar(respuesta);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Modelo {
+        Libro libro;
+        JsonElement arbol;
+
+        @Setup
+        public void preparar() {
+            libro = Datos.libro(42);
+            arbol = gson.toJsonTree(libro);
+        }
+    }
+
+    @Benchmark
+    public byte[] codificarRequest(Formato f) {
+        return f.c.codificarRequest(f.request);
+    }
+
+    @Benchmark
+    public Request decodificarRequest(Formato f) {
+        return f.c.decodificarRequest(f.requestCodificada);
+    }
+
+    @Benchmark
+    public byte[] codificarRespuestaLibro(Formato f) {
+        return f.c.codificar(f.respuesta);
+    }
+
+    @Benchmark
+    public JsonObject decodificarRespuestaLibro(Formato f) {
+        return f.c.decodificar(f.respuestaCodificada);
+    }
+
+    @Benchmark
+    public JsonElement libroAArbol(Modelo m) {
+        return gson.toJsonTree(m.libro);
+    }
+
+    @Benchmark
+    public Libro libroDesdeArbol(Modelo m) {
+        return gson.fromJson(m.arbol, Libro.class);
+    }
+}
@@ -0,0 +1,77 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import sd.library.model.Libro;
+import sd.library.persistencia.MotorPersistencia;
+
+/*
+ * Datos y utilidades comunes de los benchmarks
+ * - Inventario sintético: ISBN de 13 dígitos, 3 copias y un préstamo en uno de cada tres
+ *   libros (así el JSON de un libro tiene listas y mapas, como en uso real)
+ * - MotorEnMemoria: persistencia que no escribe, para medir solo la lógica del GA
+ */
+final class Datos {
+    private Datos() {}
+
+    static String isbn(int i) {
+        return String.format("978%010d", i);
+    }
+
+    static Libro libro(int i) {
+        Libro libro = new Libro(isbn(i), "Libro de prueba " + i, 3);
+        if (i % 3 == 0) libro.prestarA("USUARIO" + (i % 100), "2025-12-01");
+        return libro;
+    }
+
+    static void llenar(Map<String, Libro> inventario, int libros) {
+        for (int i = 0; i < libros; i++) {
+            Libro libro = libro(i);
+            inventario.put(libro.getIsbn(), libro);
+        }
+    }
+
+    static void borrar(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) return;
+        try (Stream<Path> archivos = Files.walk(dir)) {
+            archivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    // Carga el inventario sintético y descarta las anotaciones
+    static final class MotorEnMemoria implements MotorPersistencia {
+        private final int libros;
+
+        MotorEnMemoria(int libros) {
+            this.libros = libros;
+        }
+
+        @Override
+        public void cargar(Map<String, Libro> inventario) {
+            llenar(inventario, libros);
+        }
+
+        @Override
+        public void registrar(Libro libro) {}
+
+        @Override
+        public void eliminar(String isbn) {}
+
+        @Override
+        public void sincronizar() {}
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,90 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sd.library.model.Libro;
+import sd.library.persistencia.MotorPersistencia;
+import sd.library.persistencia.PersistenciaJson;
+import sd.library.persistencia.PersistenciaMapeada;
+import sd.library.persistencia.PersistenciaWal;
+
+/*
+ * Costo de hacer durable un cambio según el tamaño del inventario
+ * - Un libro cambia (copia con versión nueva), se anota en el motor y se sincroniza:
+ *   lo que paga cada lote del GA
+ * - json reescribe el archivo completo (crece con el inventario); wal anexa un registro y
+ *   compacta cada -Dga.walCompactar registros; mmap agrega una entrada al área de préstamos
+ *   y reescribe el registro fijo del libro en el archivo mapeado
+ * - El fsync depende del disco donde está java.io.tmpdir
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class PersistenciaBench {
+    @Param({ "1000", "100000", "1000000" })
+    public int libros;
+
+    @Param({ "json", "wal", "mmap" })
+    public String motor;
+
+    private Path dir;
+    private Map<String, Libro> inventario;
+    private MotorPersistencia persistencia;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        dir = Files.createTempDirectory("bench-persistencia");
+        String archivo = dir.resolve("inventario.json").toString();
+        persistencia = motor.equals("wal") ? new PersistenciaWal(archivo)
+                : motor.equals("mmap") ? new PersistenciaMapeada(archivo) : new PersistenciaJson(archivo);
+        inventario = persistencia.crearInventario();
+        persistencia.cargar(inventario);
+        Datos.llenar(inventario, libros);
+        persistencia.sincronizar(); // mmap escribe en sus archivos lo que llenar() dejó pendiente
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        persistencia.close();
+        Datos.borrar(dir);
+    }
+
+    @Benchmark
+    public Libro guardarCambio() throws IOException {
+        String isbn = Datos.isbn(ThreadLocalRandom.current().nextInt(libros));
+        Libro libro = new Libro(inventario.get(isbn));
+        libro.setVersion(libro.getVersion() + 1);
+        inventario.put(isbn, libro);
+        persistencia.registrar(libro);
+        persistencia.sincronizar();
+        return libro;
+    }
+}
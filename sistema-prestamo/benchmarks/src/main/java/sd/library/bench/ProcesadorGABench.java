@@ -0,0 +1,113 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonObject;
+
+import sd.library.PosicionReplica;
+import sd.library.ProcesadorGA;
+
+/*
+ * Lógica de atención del GA (ProcesadorGA.procesar) sin sockets ni disco
+ * - GET_LIBRO sobre un ISBN al azar
+ * - GET_LIBRO + UPDATE_LIBRO condicionado a la versión leída (camino CAS de los actores)
+ * - PRESTAR seguido de DEVOLVER del mismo usuario (operación atómica; el par deja el
+ *   libro como estaba)
+ * La persistencia es MotorEnMemoria: el costo de disco lo mide PersistenciaBench.
+ * Con -t N varios hilos compiten por el inventario y los locks por ISBN.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcesadorGABench {
+    @Param({ "1000", "100000" })
+    public int libros;
+
+    private Path dir;
+    private ProcesadorGA procesador;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        dir = Files.createTempDirectory("bench-ga");
+        procesador = new ProcesadorGA(new Datos.MotorEnMemoria(libros),
+                new PosicionReplica(dir.resolve("inventario.json.repl").toString()), null);
+        procesador.cargar();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        Datos.borrar(dir);
+    }
+
+    private String isbnAlAzar() {
+        return Datos.isbn(ThreadLocalRandom.current().nextInt(libros));
+    }
+
+    @Benchmark
+    public JsonObject getLibro() {
+        JsonObject req = new JsonObject();
+        req.addProperty("type", "GET_LIBRO");
+        req.addProperty("isbn", isbnAlAzar());
+        return procesador.procesar("GET_LIBRO", req);
+    }
+
+    @Benchmark
+    public JsonObject getYUpdateCas() {
+        JsonObject get = new JsonObject();
+        get.addProperty("type", "GET_LIBRO");
+        get.addProperty("isbn", isbnAlAzar());
+        JsonObject leido = procesador.procesar("GET_LIBRO", get);
+
+        JsonObject libro = leido.getAsJsonObject("libro");
+        libro.addProperty("titulo", "Libro actualizado");
+        JsonObject update = new JsonObject();
+        update.addProperty("type", "UPDATE_LIBRO");
+        update.add("libro", libro);
+        update.addProperty("versionEsperada", libro.get("version").getAsLong());
+        return procesador.procesar("UPDATE_LIBRO", update); // CONFLICT si otro hilo ganó
+    }
+
+    @Benchmark
+    public JsonObject prestarYDevolver() {
+        String isbn = isbnAlAzar();
+        String usuario = "BENCH" + Thread.currentThread().getId();
+        JsonObject prestar = new JsonObject();
+        prestar.addProperty("type", "PRESTAR");
+        prestar.addProperty("isbn", isbn);
+        prestar.addProperty("usuario", usuario);
+        procesador.procesar("PRESTAR", prestar);
+
+        JsonObject devolver = new JsonObject();
+        devolver.addProperty("type", "DEVOLVER");
+        devolver.addProperty("isbn", isbn);
+        devolver.addProperty("usuario", usuario);
+        return procesador.procesar("DEVOLVER", devolver);
+    }
+}
@@ -7,7 +7,7 @@
 #     Materia: Sistemas Distribuidos
 #**************************************************************/
 # Ejecuta ambos tests:
-#  1. Tiempo de respuesta promedio y desviación estándar
+#  1. Tiempo de respuesta: percentiles (p50, p99, p99.9, máximo), promedio y desviación estándar
 #  2. Cantidad total de solicitudes procesadas en 2 minutos
 # Luego genera un archivo benchmark_results.csv
 # ============================================================
@@ -21,7 +21,7 @@ ARCIVO_RESULT="resultados_benchmark.csv"  # Archivo de salida con resultados
 echo "========== BENCHMARK COMPLETO =========="
 
 # Crear archivo CSV con encabezado para resultados
-echo "PS Simultaneos,Tiempo Promedio (ms),Desv. Estandar (ms),Solicitudes Totales,Promedio por PS" > $ARCIVO_RESULT
+echo "PS Simultaneos,Tiempo Promedio (ms),Desv. Estandar (ms),P50 (ms),P99 (ms),P99.9 (ms),Maximo (ms),Solicitudes Totales,Promedio por PS" > $ARCIVO_RESULT
 
 # Prueba con 4, 6 y 10 Procesos Solicitantes simultáneos
 for PS_COUNT in 4 6 10; do
@@ -29,7 +29,7 @@ for PS_COUNT in 4 6 10; do
     echo "Ejecutando pruebas con $PS_COUNT PS simultáneos..."
     
     # Eliminar archivos de ejecuciones anteriores
-    rm -f times_ps_*.csv count_ps_*.txt ps_*.log
+    rm -f hist_ps_*.hlog count_ps_*.txt ps_*.log
 
     # Lanzamiento de procesos solicitantes en paralelo usa & para ejecutar en background y crear carga concurrente
     for i in $(seq 1 $PS_COUNT); do
@@ -53,7 +53,7 @@ for PS_COUNT in 4 6 10; do
     sleep 10  # Espera adicional para garantizar escritura de archivos
 
     # Busca archivos de tiempos para confirmar ejecución exitosa
-    count_files=$(ls times_ps_*.csv 2>/dev/null | wc -l)
+    count_files=$(ls hist_ps_*.hlog 2>/dev/null | wc -l)
     if [ "$count_files" -eq 0 ]; then
         echo "No se encontraron archivos de tiempos. Esperando 10s más..."
         sleep 10  # Espera adicional si no hay archivos
@@ -68,6 +68,10 @@ for PS_COUNT in 4 6 10; do
     # grep + cut: filtra y extrae valores específicos
     avg=$(grep "TiempoPromedio" tiempos.tmp | cut -d'=' -f2)    # Tiempo promedio
     std=$(grep "DesviacionEstandar" tiempos.tmp | cut -d'=' -f2) # Desviación estándar
+    p50=$(grep "^P50=" tiempos.tmp | cut -d'=' -f2)              # Percentiles del histograma unido
+    p99=$(grep "^P99=" tiempos.tmp | cut -d'=' -f2)
+    p999=$(grep "^P99.9=" tiempos.tmp | cut -d'=' -f2)
+    max=$(grep "^Maximo=" tiempos.tmp | cut -d'=' -f2)
 
     # AAnalisis de resultados conteo
     echo "Analizando conteo..."
@@ -81,14 +85,18 @@ for PS_COUNT in 4 6 10; do
     # Valores por defecto para evitar errores
     avg=${avg:-0}
     std=${std:-0}
+    p50=${p50:-0}
+    p99=${p99:-0}
+    p999=${p999:-0}
+    max=${max:-0}
     total=${total:-0}
     perps=${perps:-0}
 
     # Regitra resultados en formato CSV
-    # Formato: PSConcurrentes,AvgTiempo,DevStd,TotaldeRequests,AvgPorPS
-    echo "$PS_COUNT,$avg,$std,$total,$perps" >> $ARCIVO_RESULT
+    # Formato: PSConcurrentes,AvgTiempo,DevStd,P50,P99,P99.9,Maximo,TotaldeRequests,AvgPorPS
+    echo "$PS_COUNT,$avg,$std,$p50,$p99,$p999,$max,$total,$perps" >> $ARCIVO_RESULT
 
-    echo "Resultados guardados: $PS_COUNT PS -> Promedio=${avg}ms, Total=${total}"
+    echo "Resultados guardados: $PS_COUNT PS -> Promedio=${avg}ms, P99=${p99}ms, Total=${total}"
 done
 
 # Resumenfinal
@@ -0,0 +1,62 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Anillo de hashing consistente para repartir ISBNs entre shards del GA
+ * - Cada nodo ocupa varias posiciones (nodos virtuales) para equilibrar la carga
+ * - Una clave pertenece al primer nodo en sentido horario desde su hash
+ * - Al agregar un nodo solo se mueven las claves que caen en sus posiciones
+ *
+ * Los nodos se identifican por nombre (host:puerto del primario), no por orden,
+ * así todos los procesos que usan la misma lista obtienen el mismo reparto.
+ */
+public class AnilloConsistente<T> {
+    private static final ThreadLocal<MessageDigest> md5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final TreeMap<Long, T> anillo = new TreeMap<>();
+    private final int virtuales;
+
+    public AnilloConsistente(int virtuales) {
+        this.virtuales = virtuales;
+    }
+
+    public void agregar(String nombre, T nodo) {
+        for (int i = 0; i < virtuales; i++) anillo.put(hash(nombre + "#" + i), nodo);
+    }
+
+    public void quitar(String nombre) {
+        for (int i = 0; i < virtuales; i++) anillo.remove(hash(nombre + "#" + i));
+    }
+
+    //Nodo responsable de la clave (null si el anillo está vacío)
+    public T nodoPara(String clave) {
+        if (anillo.isEmpty()) return null;
+        Map.Entry<Long, T> e = anillo.ceilingEntry(hash(clave));
+        return e != null ? e.getValue() : anillo.firstEntry().getValue();
+    }
+
+    //Primeros 8 bytes del MD5 de la clave
+    static long hash(String clave) {
+        byte[] d = md5.get().digest(clave.getBytes(StandardCharsets.UTF_8));
+        long h = 0;
+        for (int i = 0; i < 8; i++) h = (h << 8) | (d[i] & 0xFF);
+        return h;
+    }
+}
@@ -0,0 +1,88 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import sd.library.model.Libro;
+
+/*
+ * Cache LRU con vencimiento (TTL) del último estado conocido de cada libro, por ISBN
+ * - La usa ClienteGA en las actualizaciones con CAS para evitar el GET_LIBRO inicial
+ * - Se alimenta de las lecturas y de los updates confirmados por el GA
+ * - invalidar() la llaman los eventos de cambio que publica el GA (-Dga.pubPort):
+ *   se descarta la entrada si el GA ya tiene una versión más nueva
+ * - Un dato viejo puede estar en los dos sentidos: si la regla pasa, el UPDATE condicional
+ *   responde CONFLICT con el estado actual y se reintenta sobre él; si la regla falla (p. ej.
+ *   "sin copias" con un libro ya devuelto) no hay UPDATE que lo detecte, así que ClienteGA
+ *   descarta la entrada y vuelve a evaluar con un GET_LIBRO antes de rechazar
+ *
+ * Guarda y entrega copias de Libro: quien lee puede modificar su libro sin tocar la cache.
+ */
+public class CacheLibros {
+    private static class Entrada {
+        final Libro libro;
+        final long version;
+        final long vence;
+
+        Entrada(Libro libro, long version, long vence) {
+            this.libro = libro;
+            this.version = version;
+            this.vence = vence;
+        }
+    }
+
+    private final long ttlMs;
+    private final LinkedHashMap<String, Entrada> entradas;
+    private long aciertos = 0;
+    private long fallos = 0;
+
+    public CacheLibros(final int capacidad, long ttlMs) {
+        this.ttlMs = ttlMs;
+        // accessOrder=true: el orden de iteración es del menos al más recientemente usado
+        this.entradas = new LinkedHashMap<String, Entrada>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> masAntigua) {
+                return size() > capacidad;
+            }
+        };
+    }
+
+    //Libro cacheado y vigente, o null
+    public synchronized Libro obtener(String isbn) {
+        Entrada e = entradas.get(isbn);
+        if (e != null && e.vence < System.currentTimeMillis()) {
+            entradas.remove(isbn);
+            e = null;
+        }
+        if (e == null) {
+            fallos++;
+            return null;
+        }
+        aciertos++;
+        return new Libro(e.libro);
+    }
+
+    //Guarda el estado leído o confirmado, salvo que ya haya uno más nuevo
+    public synchronized void guardar(Libro libro) {
+        Entrada actual = entradas.get(libro.getIsbn());
+        if (actual != null && actual.version > libro.getVersion()) return;
+        entradas.put(libro.getIsbn(), new Entrada(new Libro(libro), libro.getVersion(), System.currentTimeMillis() + ttlMs));
+    }
+
+    //Evento del GA: el libro cambió a la versión dada (negativa si se eliminó)
+    public synchronized void invalidar(String isbn, long version) {
+        Entrada actual = entradas.get(isbn);
+        if (actual != null && (version < 0 || actual.version < version)) entradas.remove(isbn);
+    }
+
+    public synchronized String estadisticas() {
+        long total = aciertos + fallos;
+        return entradas.size() + " libros, " + aciertos + " aciertos / " + total + " lecturas";
+    }
+}
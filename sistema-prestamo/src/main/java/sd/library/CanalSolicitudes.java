@@ -0,0 +1,79 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+import sd.library.codec.Codecs;
+import sd.library.model.Request;
+
+/*
+ * Canal por el que un actor recibe solicitudes del Gestor de Carga (GC)
+ * - sub: suscripción PUB/SUB por topic; todos los actores suscritos reciben cada solicitud
+ * - cola: cola de trabajo del GC (-Dgc.despacho=cola); el actor anuncia "READY <topics>"
+ *   por un socket REQ y el GC le entrega una sola solicitud, así cada solicitud
+ *   la procesa exactamente un actor y se pueden levantar N actores por topic. Si el actor
+ *   está libre y callado, el GC le manda un LATIDO en lugar de trabajo; se contesta con otro READY
+ *
+ * recibir() devuelve la solicitud ya decodificada (JSON o binario, ver sd.library.codec)
+ * o null si el socket se cerró.
+ */
+public class CanalSolicitudes implements AutoCloseable {
+    public static final String READY = "READY";
+    public static final String LATIDO = "LATIDO";
+
+    // Solicitud entregada por el GC y topic por el que llegó
+    public static class Solicitud {
+        public final String topic;
+        public final Request request;
+        public final long recibidaNs = System.nanoTime(); // espera en cola del actor (Metricas)
+
+        Solicitud(String topic, Request request) {
+            this.topic = topic;
+            this.request = request;
+        }
+    }
+
+    private final ZMQ.Socket socket;
+    private final boolean cola;
+    private final String anuncio;
+
+    public CanalSolicitudes(ZContext ctx, String host, int port, String modo, String... topics) {
+        this.cola = modo.equalsIgnoreCase("cola");
+        this.anuncio = READY + " " + String.join(",", topics);
+        if (cola) {
+            socket = ctx.createSocket(SocketType.REQ);
+            socket.connect("tcp://" + host + ":" + port);
+        } else {
+            socket = ctx.createSocket(SocketType.SUB);
+            socket.connect("tcp://" + host + ":" + port);
+            for (String t : topics) socket.subscribe(t.getBytes(ZMQ.CHARSET));
+        }
+    }
+
+    public boolean esCola() { return cola; }
+
+    // Bloquea hasta la siguiente solicitud; en modo cola anuncia primero que el actor está libre
+    public Solicitud recibir() {
+        while (true) {
+            if (cola && !socket.send(anuncio)) return null;
+            String topic = socket.recvStr();
+            if (topic == null) return null;
+            byte[] datos = socket.recv();
+            if (datos == null) return null;
+            if (cola && topic.equals(LATIDO)) continue; // el GC comprueba que seguimos vivos
+            return new Solicitud(topic, Codecs.detectar(datos).decodificarRequest(datos));
+        }
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+    }
+}
@@ -0,0 +1,518 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+import org.zeromq.ZMQException;
+import org.zeromq.ZMsg;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import sd.library.codec.Codec;
+import sd.library.codec.Codecs;
+import sd.library.model.Libro;
+
+/*
+ * Cliente del Gestor de Almacenamiento (GA) compartido por los actores.
+ * - El inventario se reparte en shards; cada shard es un par GA primario/secundario
+ * - Enrutamiento por hashing consistente del ISBN (AnilloConsistente)
+ * - DEALER por GA con id por petición; failover al secundario del shard si el primario no
+ *   responde. Tras un timeout el socket se cierra y se crea otro (lazy pirate): lo que quedó
+ *   en su cola se descarta y no llega al GA cuando vuelva, cuando el cliente ya lo reintentó
+ *   en el secundario
+ * - Heartbeat (PING cada -Dactor.heartbeatMs) marca cada GA vivo o caído: con el primario
+ *   caído las peticiones van directo al secundario, sin esperar el timeout
+ * - Un ClienteGA por hilo (sus DEALER de peticiones); heartbeat, estado de los GA, cache y
+ *   suscripción a eventos están en Compartido, uno por actor para todos sus hilos
+ * - Lo escrito en el secundario durante el failover lo devuelve él mismo al primario
+ *   (DiarioResync en el GA), así no se pierde si el actor termina
+ * - Peticiones en el formato de -Dcodec (el GA responde en el mismo)
+ * - actualizarConReintento: compare-and-set sobre Libro.version con reintentos ante CONFLICT
+ * - CacheLibros (-Dactor.cacheMax, -Dactor.cacheTtlMs) evita el GET_LIBRO de libros leídos
+ *   hace poco; se invalida con los eventos que publican los GA (-Dactor.eventosGA)
+ * - Métricas: ida y vuelta al GA, peticiones sin respuesta, respuestas del secundario
+ *   (failover) y GA declarados caídos por el heartbeat
+ *
+ * Formato de la lista de shards: "hostP:puertoP/hostS:puertoS,hostP:puertoP/hostS:puertoS"
+ */
+public class ClienteGA implements AutoCloseable {
+    // Configurables:
+    private static final int GA_TIMEOUT_MS = Integer.getInteger("actor.gaTimeoutMs", 2000);   // espera máxima por un GA vivo
+    private static final long HEARTBEAT_MS = Long.getLong("actor.heartbeatMs", 250L);        // intervalo de PING a cada GA
+    private static final int LATIDOS_PERDIDOS = Integer.getInteger("actor.latidosPerdidos", 3); // sin respuesta = caído
+    private static final int ESPERA_MS = 20;                    // revisar el heartbeat mientras se espera respuesta
+    static final int NODOS_VIRTUALES = 64;                      // posiciones por shard en el anillo
+    private static final int CAS_REINTENTOS = Integer.getInteger("actor.reintentosCas", 8); // intentos ante CONFLICT
+
+    private static final int CACHE_MAX = Integer.getInteger("actor.cacheMax", 10_000);   // libros en cache (0 = sin cache)
+    private static final long CACHE_TTL_MS = Long.getLong("actor.cacheTtlMs", 5_000L);   // vigencia de una entrada
+    private static final int EVENTOS_POLL_MS = 500;
+    private static final String MENSAJE_SIN_GA = "GA primario y GA secundario no disponibles";
+
+    // Compartidas por los ClienteGA del proceso (uno por trabajador del actor)
+    private static final Metricas.Tiempo IDA_VUELTA = Metricas.tiempo("actor_ga_ida_vuelta");
+    private static final Metricas.Contador SIN_RESPUESTA = Metricas.contador("actor_ga_sin_respuesta");
+    private static final Metricas.Contador FAILOVER = Metricas.contador("actor_failover");
+
+    private static final Gson gson = new Gson();
+
+    // Respuesta del GA a GET_LIBRO / UPDATE_LIBRO leída directo del codec (sin árbol JsonObject)
+    private static class RespuestaLibro {
+        String estatus;
+        String mensaje;
+        Libro libro;
+        long version;
+
+        //Forma de sobre para el actor (sin el libro: no hace falta en un rechazo)
+        JsonObject comoJson() {
+            JsonObject resp = new JsonObject();
+            resp.addProperty("estatus", estatus);
+            if (mensaje != null) resp.addProperty("mensaje", mensaje);
+            return resp;
+        }
+    }
+
+    // Un GA (primario o secundario) visto desde el actor; su estado lo mantiene el heartbeat
+    private static class NodoGA {
+        final String nombre;
+        volatile boolean vivo = true;       // según el heartbeat
+        volatile long ultimaRespuesta = System.currentTimeMillis();
+
+        NodoGA(String host, String port) {
+            this.nombre = host + ":" + Integer.parseInt(port);
+        }
+    }
+
+    // DEALER de peticiones de un hilo hacia un GA (bajo el lock del shard)
+    private static class Conexion {
+        final NodoGA nodo;
+        ZMQ.Socket socket;
+
+        Conexion(NodoGA nodo) {
+            this.nodo = nodo;
+        }
+    }
+
+    // Par primario/secundario responsable de una parte del inventario, con los sockets del hilo
+    private static class ShardGA {
+        final String nombre;
+        final Conexion primario;
+        final Conexion secundario;          // la misma del primario si el shard no tiene réplica
+
+        // Estructuras de concurrencia
+        final Object gaLock = new Object(); // una petición en curso por shard
+        long secuencia = 0;                 // id de la petición en curso (bajo gaLock)
+
+        ShardGA(NodoGA[] nodos) {
+            this.primario = new Conexion(nodos[0]);
+            this.secundario = nodos[1] == nodos[0] ? primario : new Conexion(nodos[1]);
+            this.nombre = nodos[0].nombre;
+        }
+    }
+
+    /*
+     * Parte del cliente compartida por los hilos de un actor
+     * - Estado vivo/caído de cada GA y el hilo de heartbeat que lo mantiene
+     * - CacheLibros (sincronizada) y el hilo que la invalida con los eventos de los GA
+     * Se crea una vez por actor y se cierra después de los ClienteGA que la usan.
+     */
+    public static class Compartido implements AutoCloseable {
+        private final ZContext ctx;
+        private final List<NodoGA[]> shards = new ArrayList<>(); // { primario, secundario } por shard
+        private final CacheLibros cache = CACHE_MAX > 0 ? new CacheLibros(CACHE_MAX, CACHE_TTL_MS) : null;
+        private volatile boolean activo = true;
+        private Thread hiloEventos;
+        private final Thread hiloLatidos;
+
+        // destinos: { hostPrimario, puertoPrimario, hostSecundario, puertoSecundario } por shard
+        public Compartido(ZContext ctx, List<String[]> destinos) {
+            this.ctx = ctx;
+            for (String[] d : destinos) {
+                NodoGA primario = new NodoGA(d[0], d[1]);
+                NodoGA secundario = d[2].equals(d[0]) && d[3].equals(d[1]) ? primario : new NodoGA(d[2], d[3]);
+                shards.add(new NodoGA[] { primario, secundario });
+                Log.info("Conectado a shard GA {} (secundario {})", primario.nombre, secundario.nombre);
+            }
+
+            // Heartbeat: estado de cada GA para enrutar sin esperar timeouts
+            hiloLatidos = new Thread(this::latir, "ga-heartbeat");
+            hiloLatidos.setDaemon(true);
+            hiloLatidos.start();
+
+            // Eventos de cambio de los GA (-Dactor.eventosGA="host:puerto,...") para invalidar la cache
+            String eventos = System.getProperty("actor.eventosGA", "");
+            if (cache != null && !eventos.trim().isEmpty()) {
+                hiloEventos = new Thread(() -> escucharEventos(eventos), "ga-eventos");
+                hiloEventos.setDaemon(true);
+                hiloEventos.start();
+            }
+        }
+
+        // Hilo de eventos: [LIBRO, isbn, versión] por cada escritura confirmada en un GA
+        private void escucharEventos(String endpoints) {
+            ZMQ.Socket sub = ctx.createSocket(SocketType.SUB);
+            sub.setReceiveTimeOut(EVENTOS_POLL_MS); // para revisar 'activo'
+            for (String ep : endpoints.split(",")) sub.connect("tcp://" + ep.trim());
+            sub.subscribe(GestorAlmacenamiento.EVENTO_LIBRO.getBytes(ZMQ.CHARSET));
+            Log.info("Cache de libros escuchando eventos de GA en {}", endpoints);
+            try {
+                while (activo) {
+                    String topic = sub.recvStr();
+                    if (topic == null) continue;
+                    String isbn = sub.recvStr();
+                    String version = sub.recvStr();
+                    cache.invalidar(isbn, Long.parseLong(version));
+                }
+            } catch (ZMQException e) {
+                // contexto cerrado
+            } finally {
+                sub.close();
+            }
+        }
+
+        /*
+         * Hilo de heartbeat: PING a cada GA cada -Dactor.heartbeatMs por un DEALER propio.
+         * Un nodo sin respuesta durante -Dactor.latidosPerdidos latidos se marca caído;
+         * la primera respuesta lo marca vivo otra vez.
+         */
+        private void latir() {
+            List<NodoGA> todos = new ArrayList<>();
+            for (NodoGA[] s : shards) {
+                todos.add(s[0]);
+                if (s[1] != s[0]) todos.add(s[1]);
+            }
+            ZMQ.Poller poller = ctx.createPoller(todos.size());
+            List<ZMQ.Socket> sockets = new ArrayList<>();
+            for (NodoGA n : todos) {
+                ZMQ.Socket hb = crearSocket(ctx, n);
+                hb.setSndHWM(LATIDOS_PERDIDOS); // no acumular pings para un nodo caído
+                sockets.add(hb);
+                poller.register(hb, ZMQ.Poller.POLLIN);
+            }
+            JsonObject ping = new JsonObject();
+            ping.addProperty("type", "PING");
+            byte[] pingBytes = Codecs.configurado().codificar(ping);
+            try {
+                long proximo = 0;
+                while (activo) {
+                    long ahora = System.currentTimeMillis();
+                    if (ahora >= proximo) {
+                        for (int i = 0; i < todos.size(); i++) {
+                            NodoGA n = todos.get(i);
+                            if (n.vivo && ahora - n.ultimaRespuesta > HEARTBEAT_MS * LATIDOS_PERDIDOS) {
+                                n.vivo = false;
+                                Log.aviso("[Heartbeat] GA {} sin respuesta, se marca caído", n.nombre);
+                                Metricas.contador("actor_ga_caidas", "nodo", n.nombre).sumar();
+                            }
+                            if (sockets.get(i).send("", ZMQ.SNDMORE | ZMQ.DONTWAIT)) sockets.get(i).send(pingBytes);
+                        }
+                        proximo = ahora + HEARTBEAT_MS;
+                    }
+                    poller.poll(Math.max(1, proximo - System.currentTimeMillis()));
+                    for (int i = 0; i < todos.size(); i++) {
+                        if (!poller.pollin(i)) continue;
+                        ZMsg m = ZMsg.recvMsg(sockets.get(i));
+                        if (m == null) continue;
+                        m.destroy();
+                        NodoGA n = todos.get(i);
+                        n.ultimaRespuesta = System.currentTimeMillis();
+                        if (!n.vivo) {
+                            n.vivo = true;
+                            Log.info("[Heartbeat] GA {} disponible", n.nombre);
+                        }
+                    }
+                }
+            } catch (ZMQException e) {
+                // contexto cerrado
+            } finally {
+                poller.close();
+                for (ZMQ.Socket hb : sockets) hb.close();
+            }
+        }
+
+        //Detiene el heartbeat y los eventos (después de cerrar los ClienteGA del actor)
+        @Override
+        public void close() {
+            activo = false;
+            for (Thread t : new Thread[] { hiloEventos, hiloLatidos }) {
+                if (t == null) continue;
+                try {
+                    t.join(2 * EVENTOS_POLL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (cache != null) Log.info("[Cache] {}", cache.estadisticas());
+        }
+    }
+
+    private final ZContext ctx;
+    private final Codec codec = Codecs.configurado(); // -Dcodec=json|binario hacia el GA
+    private final List<ShardGA> shards = new ArrayList<>();
+    private final AnilloConsistente<ShardGA> anillo = new AnilloConsistente<>(NODOS_VIRTUALES);
+    private final CacheLibros cache;
+
+    // Sockets de peticiones del hilo que lo crea; el resto lo aporta el Compartido del actor
+    public ClienteGA(Compartido compartido) {
+        this.ctx = compartido.ctx;
+        this.cache = compartido.cache;
+        for (NodoGA[] nodos : compartido.shards) {
+            ShardGA s = new ShardGA(nodos);
+            synchronized (s.gaLock) {
+                s.primario.socket = crearSocket(ctx, s.primario.nodo);
+                if (s.secundario != s.primario) s.secundario.socket = crearSocket(ctx, s.secundario.nodo);
+            }
+            shards.add(s);
+            anillo.agregar(s.nombre, s);
+        }
+    }
+
+    //Convierte "hP:pP/hS:pS,..." en la lista de destinos del constructor
+    public static List<String[]> parsearShards(String spec) {
+        List<String[]> destinos = new ArrayList<>();
+        if (spec == null || spec.trim().isEmpty()) return destinos;
+        for (String par : spec.split(",")) {
+            String[] nodos = par.trim().split("/");
+            String[] prim = nodos[0].split(":");
+            String[] sec = (nodos.length > 1 ? nodos[1] : nodos[0]).split(":");
+            destinos.add(new String[] { prim[0], prim[1], sec[0], sec[1] });
+        }
+        return destinos;
+    }
+
+    //Nombre (host:puerto del primario) del shard dueño del ISBN
+    public String shardPara(String isbn) {
+        return anillo.nodoPara(isbn).nombre;
+    }
+
+    //Envía la petición al shard dueño del ISBN, con failover a su secundario
+    public JsonObject solicitar(String isbn, JsonObject peticion) {
+        byte[] cuerpo = requestConFallback(anillo.nodoPara(isbn), peticion);
+        return cuerpo != null ? Codecs.detectar(cuerpo).decodificar(cuerpo) : sinGA();
+    }
+
+    //Como solicitar, con la respuesta decodificada directo a RespuestaLibro
+    private RespuestaLibro solicitarLibro(String isbn, JsonObject peticion) {
+        byte[] cuerpo = requestConFallback(anillo.nodoPara(isbn), peticion);
+        if (cuerpo == null) {
+            RespuestaLibro error = new RespuestaLibro();
+            error.estatus = "ERROR";
+            error.mensaje = MENSAJE_SIN_GA;
+            return error;
+        }
+        return Codecs.detectar(cuerpo).decodificar(cuerpo, RespuestaLibro.class);
+    }
+
+    /*
+     * Lectura-modificación-escritura con control de concurrencia optimista:
+     * lectura (de la cache si está vigente, si no GET_LIBRO), mutación local y UPDATE_LIBRO
+     * condicionado a la versión leída.
+     * Ante CONFLICT se reintenta sobre el libro actual que devuelve el GA (sin otro GET),
+     * con una espera aleatoria creciente entre intentos.
+     * La mutación retorna el mensaje para el cliente; si deja estatus en la respuesta
+     * (regla no cumplida) no se envía el UPDATE. Si la regla falló sobre un libro de la cache
+     * se descarta la entrada y se vuelve a evaluar sobre el libro leído del GA: un rechazo
+     * siempre se decide con el estado del GA, no con uno cacheado.
+     */
+    public JsonObject actualizarConReintento(String isbn, Mutacion mutacion) {
+        Libro libro = cache != null ? cache.obtener(isbn) : null;
+        boolean deCache = libro != null;
+        if (libro == null) {
+            RespuestaLibro leido = leer(isbn);
+            if (leido.libro == null) return leido.comoJson(); // Libro no encontrado / GA caído
+            libro = leido.libro;
+        }
+
+        for (int intento = 0; ; intento++) {
+            long versionLeida = libro.getVersion();
+
+            JsonObject resultado = new JsonObject();
+            String mensaje = mutacion.aplicar(libro, resultado);
+            if (resultado.has("estatus") && deCache) {
+                // Rechazo sobre un dato que puede estar viejo: confirmarlo con el GA
+                cache.invalidar(isbn, -1);
+                deCache = false;
+                RespuestaLibro leido = leer(isbn);
+                if (leido.libro == null) return leido.comoJson();
+                libro = leido.libro;
+                intento--; // no cuenta como reintento por CONFLICT
+                continue;
+            }
+            if (resultado.has("estatus")) {
+                resultado.addProperty("mensaje", mensaje);
+                return resultado;
+            }
+
+            JsonObject update = new JsonObject();
+            update.addProperty("type", "UPDATE_LIBRO");
+            update.addProperty("versionEsperada", versionLeida);
+            update.add("libro", gson.toJsonTree(libro));
+            RespuestaLibro resp = solicitarLibro(isbn, update);
+            String estatus = resp.estatus;
+
+            if (estatus.equals("OK")) {
+                libro.setVersion(resp.version);
+                if (cache != null) cache.guardar(libro);
+                resultado.addProperty("estatus", "OK");
+                resultado.addProperty("mensaje", mensaje);
+                resultado.add("libro", gson.toJsonTree(libro));
+                return resultado;
+            }
+            if (estatus.equals("CONFLICT") && resp.libro == null) {
+                // El libro ya no está en el GA (eliminado o movido de shard)
+                if (cache != null) cache.invalidar(isbn, -1);
+                resp.estatus = "ERROR";
+                resp.mensaje = "Libro no encontrado";
+                return resp.comoJson();
+            }
+            if (!estatus.equals("CONFLICT") || intento + 1 >= CAS_REINTENTOS) {
+                if (estatus.equals("CONFLICT")) {
+                    resp.estatus = "ERROR";
+                    resp.mensaje = "Conflicto persistente al actualizar el libro";
+                }
+                return resp.comoJson();
+            }
+
+            Log.debug("[CAS] Conflicto en {} (versión {}), reintentando", isbn, versionLeida);
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(1, 2 << Math.min(intento, 6)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return resp.comoJson();
+            }
+            libro = resp.libro; // CONFLICT trae el libro vigente
+            deCache = false;
+            if (cache != null) cache.guardar(libro);
+        }
+    }
+
+    //GET_LIBRO al GA; el libro leído queda en la cache
+    private RespuestaLibro leer(String isbn) {
+        JsonObject get = new JsonObject();
+        get.addProperty("type", "GET_LIBRO");
+        get.addProperty("isbn", isbn);
+        RespuestaLibro leido = solicitarLibro(isbn, get);
+        if (leido.libro != null && cache != null) cache.guardar(leido.libro);
+        return leido;
+    }
+
+    // Cambio local sobre el libro leído (ver actualizarConReintento)
+    public interface Mutacion {
+        String aplicar(Libro libro, JsonObject resultado);
+    }
+
+    //Cierra los sockets de este hilo (el Compartido sigue activo)
+    @Override
+    public void close() {
+        for (ShardGA s : shards) {
+            synchronized (s.gaLock) {
+                for (Conexion c : conexiones(s)) {
+                    if (c.socket != null) c.socket.close();
+                    c.socket = null;
+                }
+            }
+        }
+    }
+
+    // DEALER con immediate: sin conexión establecida el envío falla en vez de quedar en cola
+    private static ZMQ.Socket crearSocket(ZContext ctx, NodoGA nodo) {
+        ZMQ.Socket s = ctx.createSocket(SocketType.DEALER);
+        s.setLinger(0);
+        s.setImmediate(true);
+        s.setSndHWM(1000);
+        s.connect("tcp://" + nodo.nombre);
+        return s;
+    }
+
+    //Sin respuesta: socket nuevo; linger 0 descarta lo que seguía en cola hacia el nodo (bajo gaLock)
+    private void reiniciarSocket(Conexion c) {
+        ctx.destroySocket(c.socket);
+        c.socket = crearSocket(ctx, c.nodo);
+    }
+
+    private static Conexion[] conexiones(ShardGA s) {
+        return s.secundario == s.primario ? new Conexion[] { s.primario } : new Conexion[] { s.primario, s.secundario };
+    }
+
+    /*
+     * Envía la petición al primario del shard y, si no responde, al secundario.
+     * - Si el heartbeat marca al primario caído y al secundario vivo, se va directo al
+     *   secundario (sin pagar el timeout)
+     * - Mientras espera, si el heartbeat declara caído al nodo consultado se deja de esperar
+     *   y se pasa al otro (-Dactor.gaTimeoutMs es solo el límite para un nodo vivo pero lento)
+     * - Lo que el secundario aplica en failover lo devuelve él mismo al primario (DiarioResync)
+     *
+     * Retorna: el cuerpo de la respuesta (en el codec en que vino), o null si nadie respondió
+     */
+    private byte[] requestConFallback(ShardGA s, JsonObject peticion) {
+        synchronized (s.gaLock) {
+            Conexion[] orden = conexiones(s);
+            if (orden.length > 1 && !s.primario.nodo.vivo && s.secundario.nodo.vivo) {
+                orden = new Conexion[] { s.secundario, s.primario };
+            }
+            for (Conexion c : orden) {
+                byte[] resp = enviar(s, c, peticion);
+                if (resp != null) {
+                    if (c != s.primario) {
+                        Log.debug("[Failover] Respondió el secundario de {}", s.nombre);
+                        FAILOVER.sumar();
+                    }
+                    return resp;
+                }
+                Log.aviso("[Failover] {} no respondió {}", c.nodo.nombre, peticion.get("type").getAsString());
+                SIN_RESPUESTA.sumar();
+                reiniciarSocket(c);
+            }
+        }
+
+        return null; // ningún GA del shard respondió
+    }
+
+    private static JsonObject sinGA() {
+        JsonObject error = new JsonObject();
+        error.addProperty("estatus", "ERROR");
+        error.addProperty("mensaje", MENSAJE_SIN_GA);
+        return error;
+    }
+
+    // Petición con id propio; respuestas tardías de peticiones anteriores se descartan
+    private byte[] enviar(ShardGA s, Conexion c, JsonObject peticion) {
+        String id = Long.toString(++s.secuencia);
+        long inicio = System.nanoTime();
+        NodoGA nodo = c.nodo;
+        boolean vivoAlEnviar = nodo.vivo;
+        if (!c.socket.send(id, ZMQ.SNDMORE | ZMQ.DONTWAIT)) return null; // cola llena: nodo sin conexión
+        c.socket.sendMore("");
+        c.socket.send(codec.codificar(peticion));
+
+        long limite = System.currentTimeMillis() + GA_TIMEOUT_MS;
+        while (true) {
+            long resta = limite - System.currentTimeMillis();
+            if (resta <= 0) return null;
+            c.socket.setReceiveTimeOut((int) Math.min(resta, ESPERA_MS));
+            ZMsg msg = ZMsg.recvMsg(c.socket);
+            if (msg == null) {
+                if (vivoAlEnviar && !nodo.vivo) return null; // el heartbeat lo dio por caído
+                continue;
+            }
+            String idResp = msg.popString();
+            msg.pop(); // delimitador
+            byte[] cuerpo = msg.getLast().getData();
+            msg.destroy();
+            if (!id.equals(idResp)) continue;
+            IDA_VUELTA.desde(inicio);
+            return cuerpo;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Escritura en grupo para el GA con hilos
+ * - Los trabajadores ya aplicaron y anotaron su cambio; confirmar() bloquea hasta que el lote
+ *   que lo contiene sea durable
+ * - Un solo hilo agrupa hasta loteMax escrituras (o las que lleguen en loteMs), hace un
+ *   sincronizar() del ProcesadorGA, propaga cada una (réplica y evento de cambio) y libera a los trabajadores
+ * - Es el único hilo que usa los sockets de réplica y de eventos (los sockets ZeroMQ no son
+ *   seguros entre hilos)
+ */
+public class CommitGrupal implements Runnable {
+    // Propagación de las escrituras de un lote durable (réplica y eventos)
+    public interface Propagacion {
+        void propagar(String replica, String[] evento); // por cada escritura, en orden
+        void finLote();                                 // antes de liberar a los trabajadores
+    }
+
+    // Escritura esperando durabilidad
+    private static class Escritura {
+        final String replica;
+        final String[] evento;
+        final CountDownLatch hecho = new CountDownLatch(1);
+        volatile boolean durable;
+
+        Escritura(String replica, String[] evento) {
+            this.replica = replica;
+            this.evento = evento;
+        }
+    }
+
+    private static final Metricas.Contador LOTES = Metricas.contador("ga_lotes");
+    private static final Metricas.Contador ESCRITURAS = Metricas.contador("ga_escrituras_confirmadas");
+
+    private final BlockingQueue<Escritura> cola = new LinkedBlockingQueue<>();
+    private final ProcesadorGA procesador;
+    private final Propagacion propagacion;
+    private final int loteMax;
+    private final long loteMs;
+
+    public CommitGrupal(ProcesadorGA procesador, Propagacion propagacion, int loteMax, long loteMs) {
+        this.procesador = procesador;
+        this.propagacion = propagacion;
+        this.loteMax = loteMax;
+        this.loteMs = loteMs;
+    }
+
+    //Bloquea hasta que la escritura sea durable; false si el motor falló
+    public boolean confirmar(String replica, String[] evento) throws InterruptedException {
+        Escritura e = new Escritura(replica, evento);
+        cola.put(e);
+        e.hecho.await();
+        return e.durable;
+    }
+
+    @Override
+    public void run() {
+        List<Escritura> lote = new ArrayList<>();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                lote.add(cola.take());
+                long vence = System.currentTimeMillis() + loteMs;
+                while (lote.size() < loteMax) {
+                    long resta = vence - System.currentTimeMillis();
+                    Escritura e = resta > 0 ? cola.poll(resta, TimeUnit.MILLISECONDS) : cola.poll();
+                    if (e == null) break;
+                    lote.add(e);
+                }
+
+                boolean durable = true;
+                try {
+                    procesador.sincronizar();
+                } catch (IOException ex) {
+                    Log.error("GA no pudo hacer durable el lote", ex);
+                    durable = false;
+                }
+                if (lote.size() > 1) Log.debug("GA confirmó lote de {} escrituras", lote.size());
+                LOTES.sumar();
+                ESCRITURAS.sumar(lote.size());
+                if (durable) {
+                    for (Escritura e : lote) propagacion.propagar(e.replica, e.evento);
+                    propagacion.finLote();
+                }
+                for (Escritura e : lote) {
+                    e.durable = durable;
+                    e.hecho.countDown();
+                }
+                lote.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Escritura e : lote) e.hecho.countDown(); // no dejar trabajadores colgados
+        }
+    }
+}
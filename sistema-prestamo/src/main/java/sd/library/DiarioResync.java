@@ -0,0 +1,141 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.gson.JsonParser;
+
+/*
+ * Diario de resincronización del GA secundario
+ * - Cada escritura que un cliente hace directo en el secundario (failover: el primario no
+ *   respondió) se anota como estado resultante (ProcesadorGA.mensajeReplica), una línea JSON
+ *   por escritura en <archivo>.resync
+ * - Se hace durable en el mismo punto que el inventario (ProcesadorGA.sincronizar), antes de
+ *   confirmar al cliente: no depende de que el actor siga vivo
+ * - RecuperacionGA lo reenvía al primario en lotes APLICAR_LOTE cuando vuelve; solo se
+ *   entregan entradas ya durables
+ * - El archivo se vacía cuando todo se confirmó. Tras una caída se reenvía desde el inicio:
+ *   el primario aplica por versión, así repetir entradas no cambia el resultado
+ */
+public class DiarioResync {
+    private final Path archivo;
+
+    private final ArrayDeque<String> pendientes = new ArrayDeque<>();
+    private int durables = 0; // prefijo de pendientes que ya está en disco
+    private FileOutputStream salida;
+    private FileChannel canal;
+    private BufferedWriter escritor;
+
+    public DiarioResync(String archivo) {
+        this.archivo = Paths.get(archivo);
+    }
+
+    //Recupera las entradas no confirmadas por el primario; una última línea incompleta se descarta
+    public synchronized void cargar() throws IOException {
+        if (Files.exists(archivo)) {
+            try (BufferedReader br = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+                String linea;
+                while ((linea = br.readLine()) != null) {
+                    if (linea.isEmpty()) continue;
+                    try {
+                        JsonParser.parseString(linea).getAsJsonObject();
+                    } catch (Exception e) {
+                        Log.aviso("Diario de resync: registro incompleto al final, se descarta");
+                        break;
+                    }
+                    pendientes.add(linea);
+                }
+            }
+            if (!pendientes.isEmpty()) Log.info("Diario de resync: {} escrituras por reenviar al primario", pendientes.size());
+        }
+        durables = pendientes.size();
+        reescribir(); // deja el archivo sin el registro incompleto (si lo había)
+    }
+
+    //Anota una escritura ya aplicada en memoria (durable en el próximo sincronizar)
+    public synchronized void anotar(String escritura) throws IOException {
+        escritor.write(escritura);
+        escritor.write('\n');
+        pendientes.add(escritura);
+    }
+
+    //Cantidad de entradas anotadas hasta ahora (se toma antes de sincronizar el inventario)
+    public synchronized int marca() {
+        return pendientes.size();
+    }
+
+    //Lleva el diario a disco; las primeras 'marca' entradas quedan disponibles para reenviar
+    public synchronized void sincronizar(int marca) throws IOException {
+        if (pendientes.size() == durables) return;
+        escritor.flush();
+        canal.force(false);
+        durables = Math.max(durables, Math.min(marca, pendientes.size()));
+    }
+
+    //Hasta max entradas durables, en orden, sin quitarlas
+    public synchronized List<String> tomar(int max) {
+        List<String> lote = new ArrayList<>(Math.min(max, durables));
+        Iterator<String> it = pendientes.iterator();
+        while (lote.size() < Math.min(max, durables)) lote.add(it.next());
+        return lote;
+    }
+
+    //El primario aplicó las primeras n entradas
+    public synchronized void confirmar(int n) throws IOException {
+        for (int i = 0; i < n; i++) pendientes.poll();
+        durables -= n;
+        if (pendientes.isEmpty()) reescribir();
+    }
+
+    public synchronized int pendientes() {
+        return pendientes.size();
+    }
+
+    public synchronized void close() throws IOException {
+        if (escritor != null) {
+            escritor.flush();
+            canal.force(false);
+            escritor.close();
+            escritor = null;
+        }
+    }
+
+    // Archivo nuevo con solo las entradas pendientes: temporal forzado y rename atómico, así una
+    // caída a mitad deja el diario anterior completo; luego se sigue anexando al nuevo
+    private void reescribir() throws IOException {
+        if (escritor != null) escritor.close();
+        Path tmp = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (FileOutputStream temporal = new FileOutputStream(tmp.toFile(), false);
+             BufferedWriter w = new BufferedWriter(new OutputStreamWriter(temporal, StandardCharsets.UTF_8))) {
+            for (String p : pendientes) {
+                w.write(p);
+                w.write('\n');
+            }
+            w.flush();
+            temporal.getChannel().force(false);
+        }
+        Files.move(tmp, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        salida = new FileOutputStream(archivo.toFile(), true);
+        canal = salida.getChannel();
+        escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,203 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+import org.zeromq.ZMQException;
+
+import com.google.gson.JsonObject;
+
+import sd.library.codec.Codec;
+import sd.library.codec.Codecs;
+import sd.library.model.Request;
+
+/*
+ * Ejecución concurrente de las solicitudes de un actor (ActorPrestamo, ActorSuscriptor)
+ * - El hilo del actor solo recibe del GC y despacha (atender)
+ * - -Dactor.hilos trabajadores, cada uno con su ClienteGA (sus sockets de peticiones): las
+ *   esperas de red de uno no detienen a los demás. Heartbeat, estado de los GA, cache y
+ *   eventos de invalidación son uno por actor (ClienteGA.Compartido)
+ * - Cada ISBN va siempre al mismo trabajador (cola por trabajador): las solicitudes de un
+ *   mismo libro se procesan en el orden en que llegaron y su entrada de cache la escribe
+ *   un solo hilo
+ * - Crédito: como máximo -Dactor.enVuelo solicitudes recibidas sin terminar; en modo cola
+ *   el actor anuncia READY mientras tenga crédito, así el GC le entrega varias a la vez
+ * - Un hilo dueño del socket de resultados hacia el GC (propiedad -Dactor.resultados,
+ *   igual a -Dgc.resultados):
+ *   - ack (por defecto): REQ, espera el ACK de cada resultado
+ *   - push: PUSH sin confirmación; los resultados que se acumulan mientras se envía
+ *     (hasta -Dactor.loteResultados) viajan juntos, un frame por resultado
+ * - Métricas: solicitudes por tipo, espera en la cola del trabajador, procesamiento
+ *   (incluye las idas al GA), solicitudes en vuelo y resultados por enviar
+ */
+public class EjecutorActor implements AutoCloseable {
+    private static final int HILOS = Integer.getInteger("actor.hilos", 4);
+    private static final int EN_VUELO = Integer.getInteger("actor.enVuelo", 2 * HILOS);
+    private static final boolean PUSH = System.getProperty("actor.resultados", "ack").equalsIgnoreCase("push");
+    private static final int LOTE_RESULTADOS = Integer.getInteger("actor.loteResultados", 64);
+
+    // Lógica del actor para una solicitud; corre en un trabajador con su ClienteGA
+    public interface Procesamiento {
+        JsonObject procesar(ClienteGA ga, CanalSolicitudes.Solicitud entrada);
+    }
+
+    private static final Metricas.Tiempo ESPERA_COLA = Metricas.tiempo("actor_espera_cola");
+    private static final Metricas.Tiempo PROCESAMIENTO = Metricas.tiempo("actor_procesamiento");
+    private static final Metricas.Contador FALLOS = Metricas.contador("actor_fallos");
+    private static final Map<Request.Tipo, Metricas.Contador> SOLICITUDES = new EnumMap<>(Request.Tipo.class);
+
+    static {
+        for (Request.Tipo t : Request.Tipo.values()) SOLICITUDES.put(t, Metricas.contador("actor_solicitudes", "tipo", t));
+    }
+
+    private static final CanalSolicitudes.Solicitud FIN = new CanalSolicitudes.Solicitud(null, null);
+    private static final byte[] FIN_RESULTADOS = new byte[0];
+
+    private final ZContext ctx;
+    private final ClienteGA.Compartido ga;
+    private final Procesamiento procesamiento;
+    private final Codec codec = Codecs.configurado(); // -Dcodec=json|binario hacia el GC
+    private final Semaphore credito = new Semaphore(EN_VUELO);
+    private final List<BlockingQueue<CanalSolicitudes.Solicitud>> colas = new ArrayList<>();
+    private final List<Thread> trabajadores = new ArrayList<>();
+    private final BlockingQueue<byte[]> resultados = new LinkedBlockingQueue<>();
+    private final Thread hiloRespuestas;
+
+    public EjecutorActor(ZContext ctx, List<String[]> destinos, String gcRespHost, int gcRespPort,
+            String nombre, Procesamiento procesamiento) {
+        this.ctx = ctx;
+        this.ga = new ClienteGA.Compartido(ctx, destinos);
+        this.procesamiento = procesamiento;
+
+        hiloRespuestas = new Thread(() -> responder(gcRespHost, gcRespPort), nombre + "-respuestas");
+        hiloRespuestas.start();
+        for (int i = 0; i < HILOS; i++) {
+            BlockingQueue<CanalSolicitudes.Solicitud> cola = new LinkedBlockingQueue<>();
+            colas.add(cola);
+            Thread t = new Thread(() -> trabajar(cola), nombre + "-trabajador-" + i);
+            trabajadores.add(t);
+            t.start();
+        }
+        Log.info("{} con {} trabajadores y hasta {} solicitudes en vuelo", nombre, HILOS, EN_VUELO);
+        Metricas.medidor("actor_en_vuelo", () -> EN_VUELO - credito.availablePermits());
+        Metricas.medidor("actor_resultados_por_enviar", resultados::size);
+    }
+
+    //Bucle del despachador: recibe del GC mientras haya crédito y reparte por ISBN
+    public void atender(CanalSolicitudes canal) throws InterruptedException {
+        while (!Thread.currentThread().isInterrupted()) {
+            credito.acquire(); // en modo cola, recibir() anuncia READY: solo si hay lugar
+            CanalSolicitudes.Solicitud entrada = canal.recibir();
+            if (entrada == null) {
+                credito.release();
+                break;
+            }
+            if (entrada.request.getTipo() != null) SOLICITUDES.get(entrada.request.getTipo()).sumar();
+            String isbn = entrada.request.getIsbn();
+            int i = isbn == null ? 0 : (isbn.hashCode() & 0x7fffffff) % HILOS;
+            colas.get(i).put(entrada);
+        }
+    }
+
+    private void trabajar(BlockingQueue<CanalSolicitudes.Solicitud> cola) {
+        ClienteGA cliente = new ClienteGA(ga); // sockets creados y usados en este hilo
+        try {
+            while (true) {
+                CanalSolicitudes.Solicitud entrada = cola.take();
+                if (entrada == FIN) break;
+                ESPERA_COLA.desde(entrada.recibidaNs);
+                long inicio = System.nanoTime();
+                try {
+                    JsonObject resultado;
+                    try {
+                        resultado = procesamiento.procesar(cliente, entrada);
+                    } catch (RuntimeException e) {
+                        // Un fallo en una solicitud no termina el trabajador (su cola quedaría sin atender)
+                        Log.error("Actor falló procesando {} {}", e, entrada.request.getTipo(), entrada.request.getIsbn());
+                        FALLOS.sumar();
+                        resultado = new JsonObject();
+                        resultado.addProperty("estatus", "ERROR");
+                        resultado.addProperty("mensaje", "Error interno del actor");
+                    }
+                    PROCESAMIENTO.desde(inicio);
+                    String id = entrada.request.getId(); // correlación GC async
+                    if (id != null) resultado.addProperty("id", id);
+                    resultados.put(codec.codificar(resultado));
+                } finally {
+                    credito.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            cliente.close();
+        }
+    }
+
+    // Único hilo que usa el socket de resultados hacia el GC
+    private void responder(String gcRespHost, int gcRespPort) {
+        ZMQ.Socket gc = ctx.createSocket(PUSH ? SocketType.PUSH : SocketType.REQ);
+        gc.setLinger(1000); // al cerrar, dar tiempo a que salgan los últimos resultados
+        gc.connect("tcp://" + gcRespHost + ":" + gcRespPort);
+        List<byte[]> lote = new ArrayList<>();
+        try {
+            boolean fin = false;
+            while (!fin) {
+                lote.add(resultados.take());
+                if (PUSH) resultados.drainTo(lote, LOTE_RESULTADOS - 1); // lo que ya está listo
+                if (lote.get(lote.size() - 1) == FIN_RESULTADOS) {
+                    lote.remove(lote.size() - 1);
+                    fin = true;
+                }
+                if (PUSH) {
+                    for (int i = 0; i < lote.size(); i++) {
+                        gc.send(lote.get(i), i + 1 < lote.size() ? ZMQ.SNDMORE : 0);
+                    }
+                } else {
+                    for (byte[] resultado : lote) {
+                        gc.send(resultado);
+                        if (gc.recvStr() == null) return; // ACK del GC (null: contexto cerrado)
+                    }
+                }
+                lote.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ZMQException e) {
+            // contexto cerrado
+        } finally {
+            gc.close();
+        }
+    }
+
+    //Termina lo ya despachado, envía sus resultados y cierra las conexiones
+    @Override
+    public void close() {
+        for (BlockingQueue<CanalSolicitudes.Solicitud> cola : colas) cola.offer(FIN); // colas sin límite
+        try {
+            for (Thread t : trabajadores) t.join();
+            resultados.offer(FIN_RESULTADOS);
+            hiloRespuestas.join();
+        } catch (InterruptedException e) {
+            // Interrumpido mientras esperaba: los hilos terminan solos, no se sigue esperando
+            resultados.offer(FIN_RESULTADOS);
+            Thread.currentThread().interrupt();
+        } finally {
+            ga.close(); // heartbeat y eventos del actor, después de sus trabajadores
+        }
+    }
+}
@@ -9,65 +9,131 @@ package sd.library;
 import com.google.gson.*;
 import org.zeromq.SocketType;
 import org.zeromq.ZContext;
+import org.zeromq.ZFrame;
 import org.zeromq.ZMQ;
-import sd.library.model.Libro;
+import org.zeromq.ZMQException;
+import org.zeromq.ZMsg;
+import sd.library.codec.Codec;
+import sd.library.codec.Codecs;
+import sd.library.persistencia.MotorPersistencia;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /*
  * Gestor de Almacenamiento (GA)
- * - Patrón REP (Request-Reply) para comunicación sincrónica
- * - Almacenamiento en archivo JSON
+ * - Patrón REQ/ROUTER: los actores usan REQ, el GA responde en diferido
+ * - Almacenamiento en archivo JSON, reescrito completo o con WAL (-Dga.persistencia=wal)
  * - Soporte para réplica secundaria (alta disponibilidad)
- * 
- * Operaciones:
+ * - Mensajes en JSON o binario (sd.library.codec): cada petición se responde en el
+ *   formato en que llegó
+ *
+ * Operaciones (ver ProcesadorGA):
  * - GET_LIBRO: Consulta información de libro por ISBN
- * - UPDATE_LIBRO: Actualiza estado de libro en inventario
- * 
+ * - UPDATE_LIBRO: Actualiza estado de libro en inventario (condicional con "versionEsperada":
+ *   si el libro cambió desde que el cliente lo leyó responde CONFLICT con el estado actual)
+ * - PING: Heartbeat de los clientes (ClienteGA)
+ * - LISTAR_ISBN: Lista los ISBN del inventario (rebalanceo de shards)
+ * - ELIMINAR_LIBRO: Quita un libro que se movió a otro shard
+ * - APLICAR_LOTE: Escrituras ya resueltas que devuelve el secundario tras un failover
+ * - PRESTAR / DEVOLVER / RENOVAR: Operación completa en una sola petición (valida y aplica
+ *   atómicamente); al secundario se replica el libro resultante como UPDATE_LIBRO
+ *
+ * Escritura en grupo:
+ * - Los updates se aplican en memoria y se anotan en el motor de persistencia
+ * - El lote se hace durable con un solo sincronizar() al llenarse (-Dga.loteMax),
+ *   al vencer su ventana (-Dga.loteMs) o, con ventana 0, cuando no quedan peticiones en cola
+ * - Cada cliente recibe su confirmación solo después de que su lote es durable
+ * - Si el lote no se puede hacer durable sus clientes reciben ERROR y el GA rechaza escrituras
+ *   hasta que la persistencia vuelva a sincronizar (ver ProcesadorGA)
+ *
+ * Hilos (propiedad -Dga.hilos):
+ * - 1 (por defecto): un solo bucle atiende todo y arma los lotes
+ * - N > 1: proxy ROUTER (tcp) / DEALER (inproc) delante de N trabajadores REP. Las lecturas
+ *   corren en paralelo, las escrituras se serializan por ISBN en ProcesadorGA y su
+ *   durabilidad la agrupa CommitGrupal
+ *
  * Replica:
- * - Replicación síncrona opcional a GA secundario
- * - Tolerancia a fallos en réplica
+ * - Replicación opcional a GA secundario con ReplicadorGA: flujo secuenciado REPLICAR por
+ *   DEALER, sin un viaje de ida y vuelta por escritura; -Dga.replicacion=sync|semisync|async
+ *   decide qué confirmación del secundario espera cada lote antes de responder
+ * - Tolerancia a fallos en réplica (pasa a asíncrono mientras el secundario no confirme)
+ * - Como secundario, REPLICAR se aplica por versión del libro (idempotente y sin depender
+ *   del orden entre hilos) y se confirma "recibido" al leerlo (en modo con hilos lo hace el
+ *   proxy) y "aplicado" al ser durable
+ * - Puesta al día tras un reinicio (-Dga.primario=host:puerto en el secundario, ver
+ *   RecuperacionGA): el secundario guarda su posición en <archivo>.repl y el primario le
+ *   responde PONERSE_AL_DIA con el tramo que falta de su log o pide copiar un SNAPSHOT
+ * - Las escrituras que los actores hacen directo en el secundario (failover) quedan en su
+ *   DiarioResync y vuelven al primario en lotes APLICAR_LOTE cuando este responde
+ *
+ * Eventos (propiedad -Dga.pubPort):
+ * - PUB con [LIBRO, isbn, versión] por cada escritura durable (versión -1 si se eliminó);
+ *   los actores lo usan para invalidar su CacheLibros
+ *
+ * Métricas (Metricas, -Dmetricas.puerto): peticiones por tipo, tiempo de procesamiento y de
+ * persistencia, lotes, posición de réplica, escrituras de failover y diario de resync pendiente
  */
 public class GestorAlmacenamiento {
-    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
-    private static Map<String, Libro> inventario = new HashMap<>();
-    private static String archInv; // Ruta del archivo de inventario
+    // Escritura en grupo: un solo punto de durabilidad por lote de updates
+    private static final int LOTE_MAX = Integer.getInteger("ga.loteMax", 64);
+    private static final long LOTE_MS = Long.getLong("ga.loteMs", 0L);
+    private static final int HILOS = Integer.getInteger("ga.hilos", 1);
+    private static final int PUB_PORT = Integer.getInteger("ga.pubPort", 0); // 0 = sin eventos
+    private static final String PRIMARIO = System.getProperty("ga.primario", ""); // vacío = no es secundario
+
+    public static final String EVENTO_LIBRO = "LIBRO";
+    private static final byte[] PREFIJO_REPLICAR = "{\"type\":\"REPLICAR\"".getBytes(StandardCharsets.UTF_8);
+
+    private static final Metricas.Tiempo PROCESAMIENTO = Metricas.tiempo("ga_procesamiento");
+    private static final Map<String, Metricas.Contador> SOLICITUDES = new ConcurrentHashMap<>(); // por tipo
+    private static final Metricas.Contador LOTES = Metricas.contador("ga_lotes");
+    private static final Metricas.Contador ESCRITURAS = Metricas.contador("ga_escrituras_confirmadas");
+    private static final Metricas.Contador INVALIDAS = Metricas.contador("ga_peticiones_invalidas");
+
+    private final int port;
+    private final String primario; // host:puerto del primario si este GA es secundario
+    private final ProcesadorGA procesador;
 
     // Configuración de réplica
-    private static boolean tieneReplica = false;
-    private static String replicaHost;
-    private static int replicaPort;
+    private final String replicaHost;
+    private final int replicaPort;
+    private ReplicadorGA replicador;
+    private long ultimaReplicada = 0; // secuencia de la última escritura enviada al secundario
+    private ZMQ.Socket eventos;
 
-    //Carga el inventario desde archivo JSON
-    private static Map<String, Libro> cargarInventario(String file) {
-        try {
-            if (Files.exists(Paths.get(file))) {
-                String content = Files.readString(Paths.get(file));
-                // Deserializar array JSON a array de objetos Libro
-                Libro[] libros = gson.fromJson(content, Libro[].class);
-                Map<String, Libro> map = new HashMap<>();
-                for (Libro l : libros) map.put(l.getIsbn(), l);
-                System.out.println("Inventario cargado (" + map.size() + " libros)");
-                return map;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    // Respuesta a una escritura, retenida hasta que su lote sea durable
+    private static class Pendiente {
+        final ZMsg sobre;        // identidad del cliente + delimitador
+        final Codec codec;       // formato en que respondemos
+        final JsonObject resp;
+        final String replica;    // mensaje a propagar al secundario
+        final String[] evento;   // pares { isbn, versión } para las caches de los actores
+
+        Pendiente(ZMsg sobre, Codec codec, JsonObject resp, String replica, String[] evento) {
+            this.sobre = sobre;
+            this.codec = codec;
+            this.resp = resp;
+            this.replica = replica;
+            this.evento = evento;
         }
-        return new HashMap<>(); // Inventario vacío si hay error
     }
 
-    //Persiste el inventario actual en archivo JSON
-    private static void guardarCambio() {
-        String json = gson.toJson(inventario.values()); // Serializar valores del mapa
-        try {
-            Files.writeString(Paths.get(archInv), json);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        System.out.println("Inventario actualizado");
+    // replicaHost null: sin réplica secundaria
+    public GestorAlmacenamiento(int port, String archInv, String replicaHost, int replicaPort) {
+        this(port, archInv, replicaHost, replicaPort, PRIMARIO);
+    }
+
+    // primario vacío: no es secundario (varios GA en un proceso no comparten -Dga.primario)
+    public GestorAlmacenamiento(int port, String archInv, String replicaHost, int replicaPort, String primario) {
+        this.port = port;
+        this.primario = primario;
+        this.procesador = new ProcesadorGA(MotorPersistencia.crear(archInv), new PosicionReplica(archInv + ".repl"),
+                primario.isEmpty() ? null : new DiarioResync(archInv + ".resync"));
+        this.replicaHost = replicaHost;
+        this.replicaPort = replicaPort;
     }
 
     public static void main(String[] args) {
@@ -77,102 +143,326 @@ public class GestorAlmacenamiento {
         }
 
         int port = Integer.parseInt(args[0]);
-        archInv = args[1];
+        String archInv = args[1]; // Ruta del archivo de inventario
 
         // Configurar réplica si se proporcionan parámetros
-        if (args.length >= 4) {
-            tieneReplica = true;
-            replicaHost = args[2];
-            replicaPort = Integer.parseInt(args[3]);
+        GestorAlmacenamiento ga = args.length >= 4
+                ? new GestorAlmacenamiento(port, archInv, args[2], Integer.parseInt(args[3]))
+                : new GestorAlmacenamiento(port, archInv, null, 0);
+
+        // Vaciar el WAL pendiente al terminar el proceso (Ctrl+C)
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                ga.procesador.getMotor().close();
+                if (ga.procesador.getDiario() != null) ga.procesador.getDiario().close();
+            } catch (IOException e) {
+                Log.error("GA no pudo cerrar la persistencia", e);
+            }
+            Log.vaciar();
+        }));
+
+        Metricas.exponer("GA " + port);
+        try (ZContext ctx = new ZContext()) {
+            ga.ejecutar(ctx);
         }
+    }
 
+    //Carga el inventario y atiende peticiones hasta que se cierre el contexto
+    public void ejecutar(ZContext ctx) {
         // Cargar inventario inicial
-        inventario = cargarInventario(archInv);
+        try {
+            procesador.cargar();
+        } catch (Exception e) {
+            Log.error("GA no pudo cargar el inventario, inicia vacío", e);
+        }
 
-        try (ZContext ctx = new ZContext()) {
-            // SOCKET REP Para recibir peticiones de actores
-            ZMQ.Socket rep = ctx.createSocket(SocketType.REP);
-            rep.bind("tcp://*:" + port);
-            System.out.println("GA escuchando en puerto " + port);
-
-            // Configurar socket para réplica (si aplica)
-            ZMQ.Socket replicaReq = null;
-            if (tieneReplica) {
-                replicaReq = ctx.createSocket(SocketType.REQ);
-                replicaReq.setReceiveTimeOut(2000); // Timeout de 2 segundos
+        // SOCKET ROUTER Para recibir peticiones de actores (REQ) y responder en diferido
+        ZMQ.Socket rep = ctx.createSocket(SocketType.ROUTER);
+        rep.bind("tcp://*:" + port);
+        Log.info("GA escuchando en puerto {}{}", port, HILOS > 1 ? " con " + HILOS + " hilos" : "");
+
+        // Flujo de replicación hacia el secundario (si aplica)
+        if (replicaHost != null) {
+            replicador = new ReplicadorGA(ctx, replicaHost, replicaPort);
+            Metricas.medidor("ga_replicacion_enviada", () -> replicador.posicion()[1]);
+        }
+        Metricas.medidor("ga_replica_aplicada", () -> procesador.getPosicion().actual()[1]);
+        if (procesador.getDiario() != null) Metricas.medidor("ga_resync_pendientes", () -> procesador.getDiario().pendientes());
+
+        // SOCKET PUB Eventos de cambio para las caches de los actores (si aplica)
+        if (PUB_PORT > 0) {
+            eventos = ctx.createSocket(SocketType.PUB);
+            eventos.bind("tcp://*:" + PUB_PORT);
+            Log.info("GA publicando eventos de cambio en puerto {}", PUB_PORT);
+        }
+
+        // Ponerse al día con el primario (si este GA es secundario)
+        if (!primario.isEmpty()) {
+            Thread recuperacion = new Thread(new RecuperacionGA(ctx, procesador, primario), "ga-recuperacion");
+            recuperacion.setDaemon(true);
+            recuperacion.start();
+        }
+
+        if (HILOS > 1) {
+            atenderConHilos(ctx, rep);
+        } else {
+            atenderSecuencial(ctx, rep);
+        }
+    }
+
+    // Bucle único: lecturas inmediatas, escrituras confirmadas por lote
+    private void atenderSecuencial(ZContext ctx, ZMQ.Socket rep) {
+        ZMQ.Poller poller = ctx.createPoller(1);
+        poller.register(rep, ZMQ.Poller.POLLIN);
+        List<Pendiente> lote = new ArrayList<>();
+        long vence = 0; // instante en que el lote abierto debe hacerse durable
+
+        // Bucle principal de atención de peticiones
+        while (!Thread.currentThread().isInterrupted()) {
+            long espera = lote.isEmpty() ? -1 : Math.max(0, vence - System.currentTimeMillis());
+            if (poller.poll(espera) < 0) break;
+
+            if (poller.pollin(0)) {
+                ZMsg sobre = ZMsg.recvMsg(rep);
+                if (sobre == null) break;
+                ZFrame cuerpo = sobre.pollLast();
+                byte[] datos = cuerpo.getData();
+                cuerpo.destroy();
+
+                Codec codec = Codecs.detectar(datos);
                 try {
-                    replicaReq.connect("tcp://" + replicaHost + ":" + replicaPort);
-                    System.out.println("GA conectado a réplica en " + replicaHost + ":" + replicaPort);
-                } catch (Exception e) {
-                    System.out.println("No se pudo conectar con la replica inicialmente");
-                    tieneReplica = false; // Continuar sin réplica
+                    JsonObject req = codec.decodificar(datos);
+                    String tipo = req.get("type").getAsString();
+                    if (!tipo.equals("PING")) Log.debug("GA recibió: {}", req);
+                    if (tipo.equals("REPLICAR")) confirmarRecibido(rep, sobre, codec, req.get("seq"));
+                    JsonObject resp = procesar(tipo, req);
+
+                    if (ProcesadorGA.esEscritura(tipo) && resp.get("estatus").getAsString().equals("OK")) {
+                        // Aplicada en memoria y anotada; se confirma cuando el lote sea durable
+                        if (lote.isEmpty()) vence = System.currentTimeMillis() + LOTE_MS;
+                        lote.add(new Pendiente(sobre, codec, resp, ProcesadorGA.mensajeReplica(tipo, req, resp),
+                                ProcesadorGA.evento(tipo, req, resp)));
+                    } else {
+                        sobre.add(codec.codificar(resp)); // Enviar respuesta
+                        sobre.send(rep);
+                    }
+                } catch (RuntimeException e) {
+                    // Una petición mal formada no tumba el bucle: se le responde ERROR y se sigue
+                    sobre.add(codec.codificar(peticionInvalida(datos, e)));
+                    sobre.send(rep);
                 }
             }
 
-            // Bucle principal de atención de peticiones
-            while (!Thread.currentThread().isInterrupted()) {
-                String msg = rep.recvStr();
-                if (msg == null) break;
+            // Cerrar el lote: lleno, ventana vencida o (ventana 0) sin más peticiones en cola
+            if (!lote.isEmpty() && (lote.size() >= LOTE_MAX
+                    || System.currentTimeMillis() >= vence && (LOTE_MS > 0 || !hayEntrada(rep)))) {
+                vaciarLote(rep, lote);
+            }
+        }
+    }
 
-                System.out.println("GA recibió: " + msg);
-                JsonObject req = JsonParser.parseString(msg).getAsJsonObject();
-                String tipo = req.get("type").getAsString();
+    // Proxy ROUTER/DEALER hacia HILOS trabajadores; el hilo actual queda en el proxy
+    private void atenderConHilos(ZContext ctx, ZMQ.Socket rep) {
+        String backend = "inproc://ga-trabajadores-" + port;
+        ZMQ.Socket dealer = ctx.createSocket(SocketType.DEALER);
+        dealer.bind(backend);
 
-                JsonObject resp = new JsonObject();
+        CommitGrupal commit = new CommitGrupal(procesador, new CommitGrupal.Propagacion() {
+            @Override
+            public void propagar(String replica, String[] evento) {
+                GestorAlmacenamiento.this.propagar(replica, evento);
+            }
 
-                // Procesar según tipo de operación
-                switch (tipo) {
-                    case "GET_LIBRO": {
-                        String isbn = req.get("isbn").getAsString();
-                        Libro libro = inventario.get(isbn);
-                        if (libro != null) {
-                            resp.addProperty("estatus", "OK");
-                            resp.add("libro", gson.toJsonTree(libro)); // Serializar objeto Libro
-                        } else {
-                            resp.addProperty("estatus", "ERROR");
-                            resp.addProperty("mensaje", "Libro no encontrado");
-                        }
-                        break;
-                    }
+            @Override
+            public void finLote() {
+                esperarReplica();
+            }
+        }, LOTE_MAX, LOTE_MS);
+        Thread hiloCommit = new Thread(commit, "ga-commit");
+        hiloCommit.setDaemon(true);
+        hiloCommit.start();
+
+        for (int i = 0; i < HILOS; i++) {
+            Thread t = new Thread(() -> trabajador(ctx, backend, commit), "ga-trabajador-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+
+        reenviar(ctx, rep, dealer); // retorna cuando se cierra el contexto
+        hiloCommit.interrupt();
+    }
 
-                    case "UPDATE_LIBRO": {
-                        JsonObject libroJson = req.getAsJsonObject("libro");
-                        Libro libro = gson.fromJson(libroJson, Libro.class); // Deserializar
-                        inventario.put(libro.getIsbn(), libro);
-                        guardarCambio(); // Persistir en disco
-                        resp.addProperty("estatus", "OK");
-                        resp.addProperty("mensaje", "Libro actualizado localmente");
-
-                        // Propagación síncrona a secundario
-                        if (tieneReplica && replicaReq != null) {
-                            try {
-                                System.out.println("Replicando actualizacion al GA secundario...");
-                                replicaReq.send(msg); // Reenviar mismo mensaje
-                                String replicaResp = replicaReq.recvStr();
-                                if (replicaResp != null) {
-                                    JsonObject r = JsonParser.parseString(replicaResp).getAsJsonObject();
-                                    if (r.has("estatus") && r.get("estatus").getAsString().equals("OK")) {
-                                        System.out.println("Replica actualizada correctamente");
-                                    } else {
-                                        System.out.println("Replica respondió con error");
-                                    }
-                                } else {
-                                    System.out.println("Replica no respondió");
-                                }
-                            } catch (Exception e) {
-                                System.out.println("Error al replicar: " + e.getMessage());
-                            }
-                        }
-                        break;
+    // Proxy ROUTER/DEALER que además confirma "recibido" a cada REPLICAR al leerlo, igual que el
+    // bucle de un hilo: así semisync no espera a que un trabajador lo aplique
+    private void reenviar(ZContext ctx, ZMQ.Socket rep, ZMQ.Socket dealer) {
+        ZMQ.Poller poller = ctx.createPoller(2);
+        poller.register(rep, ZMQ.Poller.POLLIN);
+        poller.register(dealer, ZMQ.Poller.POLLIN);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (poller.poll(-1) < 0) break;
+                if (poller.pollin(0)) {
+                    ZMsg msg = ZMsg.recvMsg(rep);
+                    if (msg == null) break;
+                    JsonElement seq = seqReplicar(msg.getLast().getData());
+                    if (seq != null) {
+                        ZMsg sobre = msg.duplicate();
+                        sobre.removeLast().destroy();
+                        confirmarRecibido(rep, sobre, Codecs.JSON, seq);
                     }
+                    msg.send(dealer);
+                }
+                if (poller.pollin(1)) {
+                    ZMsg msg = ZMsg.recvMsg(dealer);
+                    if (msg == null) break;
+                    msg.send(rep);
+                }
+            }
+        } catch (ZMQException e) {
+            // contexto cerrado
+        }
+    }
+
+    //Secuencia de un REPLICAR del primario (JSON que arma ReplicadorGA), o null si es otra petición
+    private static JsonElement seqReplicar(byte[] datos) {
+        if (datos.length < PREFIJO_REPLICAR.length) return null;
+        for (int i = 0; i < PREFIJO_REPLICAR.length; i++) {
+            if (datos[i] != PREFIJO_REPLICAR[i]) return null;
+        }
+        try {
+            return JsonParser.parseString(new String(datos, StandardCharsets.UTF_8)).getAsJsonObject().get("seq");
+        } catch (RuntimeException e) {
+            return null; // mal formado: lo rechaza el trabajador
+        }
+    }
+
+    //El primario puede liberar al cliente (semisync) apenas leemos su REPLICAR
+    private static void confirmarRecibido(ZMQ.Socket rep, ZMsg sobre, Codec codec, JsonElement seq) {
+        ZMsg ack = sobre.duplicate();
+        JsonObject recibido = new JsonObject();
+        recibido.add("seq", seq);
+        ack.add(codec.codificar(recibido));
+        ack.send(rep);
+    }
+
+    private void trabajador(ZContext ctx, String backend, CommitGrupal commit) {
+        ZMQ.Socket socket = ctx.createSocket(SocketType.REP);
+        socket.connect(backend);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                byte[] datos = socket.recv();
+                if (datos == null) break;
 
-                    default:
+                Codec codec = Codecs.detectar(datos);
+                JsonObject resp;
+                try {
+                    JsonObject req = codec.decodificar(datos);
+                    String tipo = req.get("type").getAsString();
+                    if (!tipo.equals("PING")) Log.debug("GA recibió: {}", req);
+                    resp = procesar(tipo, req);
+
+                    if (ProcesadorGA.esEscritura(tipo) && resp.get("estatus").getAsString().equals("OK")
+                            && !commit.confirmar(ProcesadorGA.mensajeReplica(tipo, req, resp), ProcesadorGA.evento(tipo, req, resp))) {
                         resp.addProperty("estatus", "ERROR");
-                        resp.addProperty("mensaje", "Tipo desconocido: " + tipo);
+                        resp.addProperty("mensaje", "No se pudo persistir el cambio");
+                    }
+                } catch (RuntimeException e) {
+                    resp = peticionInvalida(datos, e); // el REP debe responder para seguir recibiendo
                 }
+                socket.send(codec.codificar(resp));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ZMQException e) {
+            // contexto cerrado
+        }
+    }
 
-                rep.send(gson.toJson(resp)); // Enviar respuesta
+    //Peticiones de recuperación del secundario (usan el log de réplica); el resto va al procesador
+    private JsonObject procesar(String tipo, JsonObject req) {
+        long inicio = System.nanoTime();
+        SOLICITUDES.computeIfAbsent(tipo, t -> Metricas.contador("ga_solicitudes", "tipo", t)).sumar();
+        JsonObject resp = procesarTipo(tipo, req);
+        PROCESAMIENTO.desde(inicio);
+        return resp;
+    }
+
+    private JsonObject procesarTipo(String tipo, JsonObject req) {
+        if (tipo.equals("PONERSE_AL_DIA")) {
+            if (replicador == null) {
+                JsonObject resp = new JsonObject();
+                resp.addProperty("estatus", "SNAPSHOT"); // sin flujo de réplica no hay log
+                return resp;
             }
+            return replicador.tramo(req.get("epoca").getAsLong(), req.get("seq").getAsLong(), req.get("limite").getAsInt());
         }
+        if (tipo.equals("SNAPSHOT") && !req.has("sesion")) {
+            // Posición tomada antes de fijar la lista: lo posterior le llega al secundario por el flujo
+            long[] pos = replicador != null ? replicador.posicion() : new long[] { 0, 0 };
+            JsonObject resp = procesador.procesar(tipo, req);
+            resp.addProperty("epoca", pos[0]);
+            resp.addProperty("seq", pos[1]);
+            return resp;
+        }
+        return procesador.procesar(tipo, req);
+    }
+
+    //Respuesta ERROR para una petición que no se pudo decodificar o procesar
+    private static JsonObject peticionInvalida(byte[] datos, RuntimeException e) {
+        Log.aviso("GA rechazó una petición inválida ({}): {}", e.toString(), Codecs.legible(datos));
+        INVALIDAS.sumar();
+        JsonObject resp = new JsonObject();
+        resp.addProperty("estatus", "ERROR");
+        resp.addProperty("mensaje", "Petición inválida");
+        return resp;
+    }
+
+    private static boolean hayEntrada(ZMQ.Socket socket) {
+        return (socket.getEvents() & ZMQ.Poller.POLLIN) != 0;
+    }
+
+    //Un solo sincronizar() para todo el lote, luego réplica y confirmación a cada cliente
+    private void vaciarLote(ZMQ.Socket rep, List<Pendiente> lote) {
+        boolean durable = true;
+        try {
+            procesador.sincronizar();
+        } catch (IOException e) {
+            Log.error("GA no pudo hacer durable el lote", e);
+            durable = false;
+        }
+        if (lote.size() > 1) Log.debug("GA confirmó lote de {} escrituras", lote.size());
+        LOTES.sumar();
+        ESCRITURAS.sumar(lote.size());
+
+        if (durable) {
+            for (Pendiente p : lote) propagar(p.replica, p.evento); // réplica en pipeline y eventos
+            esperarReplica();
+        }
+        for (Pendiente p : lote) {
+            if (!durable) {
+                p.resp.addProperty("estatus", "ERROR");
+                p.resp.addProperty("mensaje", "No se pudo persistir el cambio");
+            }
+            p.sobre.add(p.codec.codificar(p.resp));
+            p.sobre.send(rep);
+        }
+        lote.clear();
+    }
+
+    //Escritura durable: réplica al secundario y evento de cambio a los actores
+    private void propagar(String replica, String[] evento) {
+        if (replicador != null) ultimaReplicada = replicador.enviar(replica);
+        if (eventos != null) {
+            for (int i = 0; i + 1 < evento.length; i += 2) { // un evento por libro (APLICAR_LOTE trae varios)
+                eventos.sendMore(EVENTO_LIBRO);
+                eventos.sendMore(evento[i]);
+                eventos.send(evento[i + 1]);
+            }
+        }
+    }
+
+    //Confirmación del secundario que exige -Dga.replicacion para el lote recién enviado
+    private void esperarReplica() {
+        if (replicador != null) replicador.esperar(ultimaReplicada);
     }
-}
\ No newline at end of file
+}
@@ -6,20 +6,249 @@
 **************************************************************/
 package sd.library;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import sd.library.codec.Codec;
+import sd.library.codec.Codecs;
 import sd.library.model.Request;
 import org.zeromq.SocketType;
 import org.zeromq.ZContext;
+import org.zeromq.ZFrame;
 import org.zeromq.ZMQ;
+import org.zeromq.ZMsg;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /*
  * Componente intermediario que coordina el flujo de mensajes
- * - REP: Para recibir solicitudes del PS (Proceso Solicitante)
- * - PUB: Para distribuir solicitudes a actores especializados
- * - REP: Para recibir respuestas de actores
+ * - REP (sync) o ROUTER (async): Para recibir solicitudes del PS (Proceso Solicitante)
+ * - PUB: Para distribuir solicitudes a actores especializados, o ROUTER con la cola de
+ *   trabajo (-Dgc.despacho=cola): los actores piden trabajo con READY y el GC comprueba
+ *   con LATIDO a los que tienen crédito y están callados
+ * - REP (sync), ROUTER (async) o PULL (-Dgc.resultados=push): Para recibir respuestas de actores
+ *
+ * Modos (propiedad -Dgc.modo):
+ * - sync (por defecto): atiende una solicitud de extremo a extremo antes de leer la siguiente
+ * - async: broker ROUTER/ROUTER. Cada solicitud recibe un id de correlación, se publica
+ *   y el GC sigue atendiendo otras; la respuesta del actor se enruta al PS dueño del id.
+ *   Las solicitudes sin respuesta tras -Dgc.timeoutMs se contestan con ERROR.
+ *
+ * Despacho a actores (propiedad -Dgc.despacho, solo modo async):
+ * - pub (por defecto): PUB/SUB por topic; todos los actores suscritos reciben la solicitud
+ * - cola: ROUTER con cola de trabajo por Request.Tipo. Los actores (REQ) anuncian
+ *   "READY <topics>", el GC entrega cada solicitud a un único actor libre y guarda
+ *   en espera las que llegan sin actores disponibles. Cada READY es un crédito: el GC le
+ *   entrega a lo sumo una solicitud por READY sin contestar.
+ *   Un actor libre que no se reporta en -Dgc.latidoMs recibe un LATIDO (lo contesta con
+ *   otro READY); si no contesta en LATIDOS_PERDIDOS intervalos se da por caído y deja de
+ *   recibir trabajo. Uno ocupado que no vuelve en -Dgc.timeoutMs también se olvida.
+ *
+ * Formato (sd.library.codec): solicitudes a actores en -Dcodec=json|binario; cada PS
+ * recibe su respuesta en el formato en que envió la solicitud.
+ *
+ * Resultados de los actores (propiedad -Dgc.resultados, igual a -Dactor.resultados):
+ * - ack (por defecto): REP/ROUTER, cada resultado se confirma con ACK
+ * - push: PULL sin confirmación; cada mensaje puede traer varios resultados (un frame por
+ *   resultado, con su id de correlación), así el actor nunca espera al GC
+ *
+ * Métricas (Metricas, -Dmetricas.puerto): solicitudes por tipo, tiempo de respuesta en el GC,
+ * solicitudes en vuelo, expiradas e inválidas
  */
 public class GestorCarga {
-    private static final Gson gson = new Gson();
+    private static final Codec codec = Codecs.configurado(); // hacia los actores
+    private static final byte[] ACK = "ACK".getBytes(ZMQ.CHARSET);
+    private static final boolean PUSH = System.getProperty("gc.resultados", "ack").equalsIgnoreCase("push");
+
+    private static final long TIMEOUT_PENDIENTE_MS = Long.getLong("gc.timeoutMs", 30_000L);
+    private static final int POLL_MS = 1000;
+    private static final long LATIDO_MS = Long.getLong("gc.latidoMs", 1000L);
+    private static final int LATIDOS_PERDIDOS = 3;
+
+    private static final Map<Request.Tipo, Metricas.Contador> SOLICITUDES = new EnumMap<>(Request.Tipo.class);
+    private static final Metricas.Tiempo RESPUESTA = Metricas.tiempo("gc_respuesta"); // de recibir del PS a responderle
+    private static final Metricas.Contador INVALIDAS = Metricas.contador("gc_invalidas");
+    private static final Metricas.Contador EXPIRADAS = Metricas.contador("gc_expiradas");
+    private static final Metricas.Contador DESCARTADAS = Metricas.contador("gc_descartadas");
+    private static final Metricas.Contador LOTES_RESULTADOS = Metricas.contador("gc_lotes_resultados");
+    private static final Metricas.Contador ACTORES_CAIDOS = Metricas.contador("gc_actores_caidos");
+
+    static {
+        for (Request.Tipo t : Request.Tipo.values()) SOLICITUDES.put(t, Metricas.contador("gc_solicitudes", "tipo", t));
+    }
+
+    // Solicitud en vuelo en modo async: sobre de enrutamiento del PS y marca de tiempo
+    private static class Pendiente {
+        final ZMsg sobre;
+        final Codec codec; // formato del PS
+        final long inicio;
+        final long inicioNs = System.nanoTime();
+
+        Pendiente(ZMsg sobre, Codec codec, long inicio) {
+            this.sobre = sobre;
+            this.codec = codec;
+            this.inicio = inicio;
+        }
+    }
+
+    // Actor conectado a la cola de trabajo y topics que atiende
+    private static class Trabajador {
+        final byte[] identidad;
+        final Request.Tipo[] tipos;
+        long visto = System.currentTimeMillis(); // último READY
+        int creditos;                            // READY sin contestar: solicitudes que aún acepta
+        boolean enCola;                          // está en libres (una sola vez por tipo)
+        long latido;                             // LATIDO sin contestar desde (0: ninguno)
+
+        Trabajador(byte[] identidad, Request.Tipo[] tipos) {
+            this.identidad = identidad;
+            this.tipos = tipos;
+        }
+    }
+
+    // Solicitud codificada esperando actor libre
+    private static class EnEspera {
+        final long id;
+        final byte[] datos;
+
+        EnEspera(long id, byte[] datos) {
+            this.id = id;
+            this.datos = datos;
+        }
+    }
+
+    /*
+     * Cola de trabajo por Request.Tipo (despacho "cola")
+     * - Cada READY es un crédito del actor y cada envío (solicitud o LATIDO) gasta uno; un actor
+     *   con crédito está una sola vez en libres de cada tipo y sale al quedarse sin crédito
+     * - libres: actores con crédito, en orden de llegada (el más antiguo recibe primero; uno que
+     *   conserva crédito tras recibir vuelve al final)
+     * - enEspera: solicitudes que llegaron sin actor libre para su tipo
+     * - revisar(): sondea a los libres callados y olvida a los que no contestan
+     */
+    private static class ColaTrabajo {
+        private final ZMQ.Socket router;
+        private final Map<String, Trabajador> trabajadores = new HashMap<>();
+        private final Map<Request.Tipo, ArrayDeque<Trabajador>> libres = new EnumMap<>(Request.Tipo.class);
+        private final Map<Request.Tipo, ArrayDeque<EnEspera>> enEspera = new EnumMap<>(Request.Tipo.class);
+
+        ColaTrabajo(ZMQ.Socket router) {
+            this.router = router;
+            for (Request.Tipo t : Request.Tipo.values()) {
+                libres.put(t, new ArrayDeque<>());
+                enEspera.put(t, new ArrayDeque<>());
+            }
+        }
+
+        // Entrega la solicitud a un actor libre del tipo o la deja en espera
+        void despachar(Request.Tipo tipo, long id, byte[] datos) {
+            Trabajador t = libres.get(tipo).poll();
+            if (t == null) {
+                enEspera.get(tipo).add(new EnEspera(id, datos));
+                Log.debug("GC sin actores libres para {}, en espera: {}", tipo, enEspera.get(tipo).size());
+                return;
+            }
+            enviar(t, tipo, datos);
+            if (t.creditos > 0) libres.get(tipo).add(t); // sigue en los demás tipos en su lugar
+        }
+
+        // Procesa un mensaje "READY <topics>" de un actor: [identidad, vacío, READY ...]
+        void recibirListo(ZMsg msg) {
+            ZFrame marco = msg.pop();
+            byte[] identidad = marco.getData();
+            String clave = marco.strhex();
+            String anuncio = msg.getLast().getString(ZMQ.CHARSET);
+            msg.destroy();
+
+            Trabajador t = trabajadores.get(clave);
+            if (t == null) {
+                Request.Tipo[] tipos;
+                try {
+                    tipos = parsearTipos(anuncio);
+                } catch (RuntimeException e) {
+                    Log.aviso("GC ignoró un anuncio inválido de actor: {}", anuncio);
+                    INVALIDAS.sumar();
+                    return;
+                }
+                t = new Trabajador(identidad, tipos);
+                trabajadores.put(clave, t);
+                Log.info("GC registró actor en cola de trabajo para {}", anuncio.substring(CanalSolicitudes.READY.length()).trim());
+            }
+            t.visto = System.currentTimeMillis();
+            t.latido = 0;
+            t.creditos++;
+
+            // Si hay solicitudes en espera para alguno de sus tipos, se entrega la más antigua
+            Request.Tipo elegido = null;
+            for (Request.Tipo tipo : t.tipos) {
+                EnEspera cabeza = enEspera.get(tipo).peek();
+                if (cabeza == null) continue;
+                if (elegido == null || cabeza.id < enEspera.get(elegido).peek().id) {
+                    elegido = tipo;
+                }
+            }
+            if (elegido != null) enviar(t, elegido, enEspera.get(elegido).poll().datos);
+            if (t.creditos > 0 && !t.enCola) {
+                t.enCola = true;
+                for (Request.Tipo tipo : t.tipos) libres.get(tipo).add(t);
+            }
+        }
+
+        // Sondea a los actores libres sin noticias y quita a los que no contestaron
+        void revisar() {
+            long ahora = System.currentTimeMillis();
+            Iterator<Trabajador> it = trabajadores.values().iterator();
+            while (it.hasNext()) {
+                Trabajador t = it.next();
+                boolean caido = t.latido != 0 ? ahora - t.latido > LATIDOS_PERDIDOS * LATIDO_MS
+                        : t.creditos == 0 && ahora - t.visto > TIMEOUT_PENDIENTE_MS;
+                if (caido) {
+                    it.remove();
+                    sacarDeCola(t);
+                    ACTORES_CAIDOS.sumar();
+                    Log.aviso("GC quitó de la cola de trabajo un actor sin respuesta ({})", Arrays.toString(t.tipos));
+                } else if (t.creditos > 0 && t.latido == 0 && ahora - t.visto > LATIDO_MS) {
+                    gastarCredito(t);
+                    t.latido = ahora;
+                    enviarA(t, CanalSolicitudes.LATIDO, new byte[0]);
+                }
+            }
+        }
+
+        private void enviar(Trabajador t, Request.Tipo tipo, byte[] datos) {
+            gastarCredito(t);
+            enviarA(t, tipo.toString(), datos);
+        }
+
+        // Sin crédito el actor sale de la cola de todos sus tipos hasta su próximo READY
+        private void gastarCredito(Trabajador t) {
+            if (--t.creditos == 0) sacarDeCola(t);
+        }
+
+        private void sacarDeCola(Trabajador t) {
+            if (!t.enCola) return;
+            t.enCola = false;
+            for (Request.Tipo otro : t.tipos) libres.get(otro).remove(t);
+        }
+
+        private void enviarA(Trabajador t, String topic, byte[] datos) {
+            router.sendMore(t.identidad);
+            router.sendMore("");
+            router.sendMore(topic);
+            router.send(datos);
+        }
+
+        private static Request.Tipo[] parsearTipos(String anuncio) {
+            String[] nombres = anuncio.substring(CanalSolicitudes.READY.length()).trim().split(",");
+            Request.Tipo[] tipos = new Request.Tipo[nombres.length];
+            for (int i = 0; i < nombres.length; i++) tipos[i] = Request.Tipo.valueOf(nombres[i].trim());
+            return tipos;
+        }
+    }
 
     public static void main(String[] args) {
         if (args.length < 3) {
@@ -30,47 +259,227 @@ public class GestorCarga {
         int bindPortPS = Integer.parseInt(args[0]);   // REP: Comunicación con PS
         int bindPubPort = Integer.parseInt(args[1]);  // PUB: Distribución a actores
         int bindRepPort = Integer.parseInt(args[2]);  // REP: Respuestas de actores
+        String modo = System.getProperty("gc.modo", "sync");
+        boolean cola = System.getProperty("gc.despacho", "pub").equalsIgnoreCase("cola");
 
+        if (cola && !modo.equalsIgnoreCase("async")) {
+            Log.aviso("El despacho por cola requiere el modo async; se usa el broker");
+        }
+        Metricas.exponer("GC");
+        if (modo.equalsIgnoreCase("async") || cola) {
+            ejecutarBroker(bindPortPS, bindPubPort, bindRepPort, cola);
+        } else {
+            ejecutarSincrono(bindPortPS, bindPubPort, bindRepPort);
+        }
+    }
+
+    // Modo original: una solicitud a la vez
+    private static void ejecutarSincrono(int bindPortPS, int bindPubPort, int bindRepPort) {
         try (ZContext ctx = new ZContext()) {
             // SOCKET REP Canal para recibir solicitudes del PS
             ZMQ.Socket repPS = ctx.createSocket(SocketType.REP);
             repPS.bind("tcp://*:" + bindPortPS);
-            System.out.println("GC escuchando PS en puerto " + bindPortPS);
+            Log.info("GC escuchando PS en puerto {}", bindPortPS);
 
             // SOCKET PUB Canal para publicar solicitudes a actores
             ZMQ.Socket pub = ctx.createSocket(SocketType.PUB);
             pub.bind("tcp://*:" + bindPubPort);
-            System.out.println("GC publicando solicitudes a actores en puerto " + bindPubPort);
+            Log.info("GC publicando solicitudes a actores en puerto {}", bindPubPort);
 
-            // SOCKET REP Canal para recibir respuestas de actores
-            ZMQ.Socket repActor = ctx.createSocket(SocketType.REP);
+            // SOCKET REP (o PULL) Canal para recibir respuestas de actores
+            ZMQ.Socket repActor = ctx.createSocket(PUSH ? SocketType.PULL : SocketType.REP);
             repActor.bind("tcp://*:" + bindRepPort);
-            System.out.println("GC esperando respuestas de actores en puerto " + bindRepPort);
+            Log.info("GC esperando respuestas de actores en puerto {}{}", bindRepPort, PUSH ? " (push)" : "");
 
             while (!Thread.currentThread().isInterrupted()) {
                 // Recibir solicitud del PS
-                String reqJson = repPS.recvStr();
-                if (reqJson == null) break;
-                Request req = gson.fromJson(reqJson, Request.class);
-                System.out.println("GC recibió del PS: " + reqJson);
+                byte[] datos = repPS.recv();
+                if (datos == null) break;
+                long inicio = System.nanoTime();
+                Codec codecPS = Codecs.detectar(datos);
+                Request req = codecPS.decodificarRequest(datos);
+                Log.debug("GC recibió del PS: {} {} {}", req.getTipo(), req.getIsbn(), req.getUsuario());
+                SOLICITUDES.get(req.getTipo()).sumar();
 
                 // Publicar solicitud a actores (patrón PUB/SUB)
-                pub.sendMore(req.getTipo().toString()); // Topic (PRESTAMO, DEVOLUCION o RENOVACION)
-                pub.send(reqJson);                      // Contenido JSON
-                System.out.println("GC publicó solicitud a actores: " + req.getTipo());
+                pub.sendMore(req.getTipo().toString());                    // Topic (PRESTAMO, DEVOLUCION o RENOVACION)
+                pub.send(codecPS == codec ? datos : codec.codificarRequest(req)); // Contenido
+                Log.debug("GC publicó solicitud a actores: {}", req.getTipo());
 
                 // Esperar respuesta del actor especializado
-                System.out.println("GC esperando respuesta del actor...");
-                String actorResp = repActor.recvStr();
-                System.out.println("GC recibió del actor: " + actorResp);
+                Log.debug("GC esperando respuesta del actor...");
+                ZMsg resultados = ZMsg.recvMsg(repActor);
+                if (resultados == null) break;
+                byte[] actorResp = resultados.pop().getData(); // una solicitud en vuelo: un resultado
+                resultados.destroy();
+                String legible = Log.debug() ? Codecs.legible(actorResp) : null; // el contenido solo en debug
+                Log.debug("GC recibió del actor: {}", legible);
 
                 // Confirmar recepción al actor
-                repActor.send("ACK");
+                if (!PUSH) repActor.send(ACK);
 
-                // Reenviar respuesta al PS
-                repPS.send(actorResp);
-                System.out.println("GC respondió al PS: " + actorResp);
+                // Reenviar respuesta al PS en su formato
+                Codec codecActor = Codecs.detectar(actorResp);
+                repPS.send(codecActor == codecPS ? actorResp : codecPS.codificar(codecActor.decodificar(actorResp)));
+                RESPUESTA.desde(inicio);
+                Log.debug("GC respondió al PS: {}", legible);
             }
         }
     }
-}
\ No newline at end of file
+
+    // Modo broker: varias solicitudes en vuelo, enrutadas por id de correlación
+    private static void ejecutarBroker(int bindPortPS, int bindPubPort, int bindRepPort, boolean cola) {
+        Map<String, Pendiente> pendientes = new LinkedHashMap<>(); // orden de llegada, para expirar
+        Metricas.medidor("gc_pendientes", pendientes::size); // lectura aproximada desde el hilo HTTP
+        long secuencia = 0;
+        long proximaRevision = 0;
+
+        try (ZContext ctx = new ZContext()) {
+            // SOCKET ROUTER Canal para recibir solicitudes de varios PS a la vez
+            ZMQ.Socket routerPS = ctx.createSocket(SocketType.ROUTER);
+            routerPS.bind("tcp://*:" + bindPortPS);
+            Log.info("GC (async) escuchando PS en puerto {}", bindPortPS);
+
+            // SOCKET PUB (o ROUTER de la cola de trabajo) Canal para distribuir solicitudes a actores
+            ZMQ.Socket pub = ctx.createSocket(cola ? SocketType.ROUTER : SocketType.PUB);
+            pub.bind("tcp://*:" + bindPubPort);
+            ColaTrabajo colaTrabajo = cola ? new ColaTrabajo(pub) : null;
+            Log.info("GC (async) {} para actores en puerto {}", cola ? "con cola de trabajo" : "publicando solicitudes", bindPubPort);
+
+            // SOCKET ROUTER (o PULL) Canal para recibir respuestas de actores
+            ZMQ.Socket routerActor = ctx.createSocket(PUSH ? SocketType.PULL : SocketType.ROUTER);
+            routerActor.bind("tcp://*:" + bindRepPort);
+            Log.info("GC (async) esperando respuestas de actores en puerto {}{}", bindRepPort, PUSH ? " (push)" : "");
+
+            ZMQ.Poller poller = ctx.createPoller(3);
+            poller.register(routerPS, ZMQ.Poller.POLLIN);
+            poller.register(routerActor, ZMQ.Poller.POLLIN);
+            if (cola) poller.register(pub, ZMQ.Poller.POLLIN);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                if (poller.poll(POLL_MS) < 0) break;
+
+                // Nueva solicitud de un PS: [sobre..., vacío, json]
+                if (poller.pollin(0)) {
+                    ZMsg msg = ZMsg.recvMsg(routerPS);
+                    if (msg == null) break;
+                    ZFrame cuerpo = msg.pollLast();
+                    byte[] datos = cuerpo.getData();
+                    cuerpo.destroy();
+                    Codec codecPS = Codecs.detectar(datos);
+
+                    Request req;
+                    try {
+                        req = codecPS.decodificarRequest(datos);
+                    } catch (Exception e) {
+                        req = null;
+                    }
+                    if (req == null || req.getTipo() == null) {
+                        Log.aviso("GC recibió del PS una solicitud inválida");
+                        INVALIDAS.sumar();
+                        responder(routerPS, msg, codecPS.codificar(error("Solicitud inválida")));
+                        continue;
+                    }
+                    Log.debug("GC recibió del PS: {} {} {}", req.getTipo(), req.getIsbn(), req.getUsuario());
+                    SOLICITUDES.get(req.getTipo()).sumar();
+
+                    long n = ++secuencia;
+                    String id = Long.toString(n);
+                    req.setId(id);
+                    pendientes.put(id, new Pendiente(msg, codecPS, System.currentTimeMillis()));
+
+                    byte[] solicitud = codec.codificarRequest(req);
+                    if (cola) {
+                        colaTrabajo.despachar(req.getTipo(), n, solicitud);
+                    } else {
+                        pub.sendMore(req.getTipo().toString());
+                        pub.send(solicitud);
+                    }
+                    Log.debug("GC despachó solicitud {} a actores: {}", id, req.getTipo());
+                }
+
+                // Resultado(s) de un actor: [idActor, vacío, json] o, en push, [json, json, ...]
+                if (poller.pollin(1)) {
+                    ZMsg msg = ZMsg.recvMsg(routerActor);
+                    if (msg == null) break;
+                    if (PUSH) {
+                        if (msg.size() > 1) Log.debug("GC recibió lote de {} resultados", msg.size());
+                        LOTES_RESULTADOS.sumar();
+                        for (ZFrame f : msg) entregarResultado(routerPS, pendientes, f.getData());
+                        msg.destroy();
+                    } else {
+                        ZFrame cuerpo = msg.pollLast();
+                        byte[] actorResp = cuerpo.getData();
+                        cuerpo.destroy();
+                        responder(routerActor, msg, ACK); // El actor no espera al PS
+                        entregarResultado(routerPS, pendientes, actorResp);
+                    }
+                }
+
+                // Actor de la cola de trabajo anunciando que está libre
+                if (cola && poller.pollin(2)) {
+                    ZMsg msg = ZMsg.recvMsg(pub);
+                    if (msg == null) break;
+                    colaTrabajo.recibirListo(msg);
+                }
+
+                expirarPendientes(routerPS, pendientes);
+                if (cola && System.currentTimeMillis() >= proximaRevision) {
+                    colaTrabajo.revisar();
+                    proximaRevision = System.currentTimeMillis() + LATIDO_MS / 2;
+                }
+            }
+        }
+    }
+
+    // Enruta el resultado de un actor al PS dueño de su id de correlación
+    private static void entregarResultado(ZMQ.Socket routerPS, Map<String, Pendiente> pendientes, byte[] actorResp) {
+        JsonObject resp;
+        try {
+            resp = Codecs.detectar(actorResp).decodificar(actorResp);
+        } catch (RuntimeException e) {
+            // Sin id legible no hay a quién responder: la solicitud expira por tiempo
+            Log.aviso("GC descartó un resultado de actor inválido: {}", e.getMessage());
+            INVALIDAS.sumar();
+            return;
+        }
+        Log.debug("GC recibió del actor: {}", resp);
+        String id = resp.has("id") ? resp.remove("id").getAsString() : null;
+        Pendiente p = id != null ? pendientes.remove(id) : null;
+        if (p == null) {
+            Log.aviso("GC descartó respuesta sin solicitud pendiente (id={})", id);
+            DESCARTADAS.sumar();
+            return;
+        }
+        responder(routerPS, p.sobre, p.codec.codificar(resp));
+        RESPUESTA.desde(p.inicioNs);
+        Log.debug("GC respondió al PS (id={})", id);
+    }
+
+    // Contesta con ERROR las solicitudes que superaron el tiempo de espera
+    private static void expirarPendientes(ZMQ.Socket routerPS, Map<String, Pendiente> pendientes) {
+        long limite = System.currentTimeMillis() - TIMEOUT_PENDIENTE_MS;
+        Iterator<Map.Entry<String, Pendiente>> it = pendientes.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Pendiente> e = it.next();
+            if (e.getValue().inicio > limite) break; // el resto es más reciente
+            it.remove();
+            responder(routerPS, e.getValue().sobre, e.getValue().codec.codificar(error("Tiempo de espera agotado")));
+            Log.aviso("GC expiró la solicitud {}", e.getKey());
+            EXPIRADAS.sumar();
+        }
+    }
+
+    // Envía el cuerpo usando el sobre de enrutamiento recibido (identidades + delimitador)
+    private static void responder(ZMQ.Socket router, ZMsg sobre, byte[] cuerpo) {
+        sobre.add(cuerpo);
+        sobre.send(router);
+    }
+
+    private static JsonObject error(String mensaje) {
+        JsonObject resp = new JsonObject();
+        resp.addProperty("estatus", "ERROR");
+        resp.addProperty("mensaje", mensaje);
+        return resp;
+    }
+}
@@ -0,0 +1,158 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Trazas de GC, actores y GA con niveles y escritura asíncrona
+ * - Niveles (-Dlog.nivel, info por defecto): debug < info < aviso < error. Lo que pasa por
+ *   cada mensaje (solicitudes, respuestas, contenido JSON) es debug; info queda para
+ *   arranque, conexiones, failover y recuperación
+ * - El texto se arma solo si el nivel está habilitado: los argumentos se pasan aparte
+ *   ("{}" en el formato) y no se concatenan en el llamador; en error van después de la excepción
+ * - Muestreo (-Dlog.muestreo=N): con debug habilitado se escribe uno de cada N mensajes
+ *   debug (al azar, sin contador compartido entre hilos)
+ * - Los hilos solo dejan el registro en un buffer circular acotado (-Dlog.buffer, 8192);
+ *   un hilo "log" los escribe en stdout por tandas. Con el buffer lleno el registro se
+ *   descarta (nunca se bloquea al llamador) y se informa cuántos se perdieron
+ * - Al terminar el proceso se vacía lo pendiente
+ */
+public final class Log {
+    public enum Nivel { DEBUG, INFO, AVISO, ERROR }
+
+    private static final Nivel NIVEL = Nivel.valueOf(System.getProperty("log.nivel", "info").toUpperCase(Locale.ROOT));
+    private static final int MUESTREO = Math.max(1, Integer.getInteger("log.muestreo", 1));
+    private static final int BUFFER = Integer.getInteger("log.buffer", 8192);
+    private static final int TANDA = 256;
+
+    // Registro pendiente de escribir; el texto ya está armado
+    private static final class Registro {
+        final long instante = System.currentTimeMillis();
+        final Nivel nivel;
+        final String hilo = Thread.currentThread().getName();
+        final String mensaje;
+        final Throwable error;
+
+        Registro(Nivel nivel, String mensaje, Throwable error) {
+            this.nivel = nivel;
+            this.mensaje = mensaje;
+            this.error = error;
+        }
+    }
+
+    private static final BlockingQueue<Registro> buffer = new ArrayBlockingQueue<>(BUFFER);
+    private static final LongAdder descartados = new LongAdder();
+    private static final Object escritura = new Object(); // hilo "log" y vaciado al terminar
+
+    static {
+        Thread escritor = new Thread(Log::escribirPendientes, "log");
+        escritor.setDaemon(true);
+        escritor.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::vaciar, "log-cierre"));
+    }
+
+    private Log() {}
+
+    public static boolean debug() {
+        return NIVEL == Nivel.DEBUG;
+    }
+
+    public static void debug(String formato, Object... args) {
+        if (NIVEL != Nivel.DEBUG) return;
+        if (MUESTREO > 1 && ThreadLocalRandom.current().nextInt(MUESTREO) != 0) return;
+        encolar(Nivel.DEBUG, formato, args, null);
+    }
+
+    public static void info(String formato, Object... args) {
+        if (NIVEL.compareTo(Nivel.INFO) <= 0) encolar(Nivel.INFO, formato, args, null);
+    }
+
+    public static void aviso(String formato, Object... args) {
+        if (NIVEL.compareTo(Nivel.AVISO) <= 0) encolar(Nivel.AVISO, formato, args, null);
+    }
+
+    public static void error(String formato, Throwable error, Object... args) {
+        encolar(Nivel.ERROR, formato, args, error);
+    }
+
+    private static void encolar(Nivel nivel, String formato, Object[] args, Throwable error) {
+        if (!buffer.offer(new Registro(nivel, formatear(formato, args), error))) descartados.increment();
+    }
+
+    // Reemplaza cada "{}" por el argumento siguiente
+    private static String formatear(String formato, Object[] args) {
+        if (args.length == 0) return formato;
+        StringBuilder sb = new StringBuilder(formato.length() + 16 * args.length);
+        int desde = 0;
+        int i = 0;
+        while (i < args.length) {
+            int marca = formato.indexOf("{}", desde);
+            if (marca < 0) break;
+            sb.append(formato, desde, marca).append(args[i++]);
+            desde = marca + 2;
+        }
+        return sb.append(formato, desde, formato.length()).toString();
+    }
+
+    // Hilo "log": toma lo que haya (hasta TANDA registros) y lo escribe de una vez
+    private static void escribirPendientes() {
+        List<Registro> tanda = new ArrayList<>(TANDA);
+        try {
+            while (true) {
+                Registro primero = buffer.poll(1, TimeUnit.SECONDS);
+                synchronized (escritura) {
+                    if (primero != null) tanda.add(primero);
+                    buffer.drainTo(tanda, TANDA - tanda.size());
+                    escribir(tanda);
+                }
+                tanda.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //Escribe todo lo pendiente (al terminar el proceso)
+    public static void vaciar() {
+        List<Registro> tanda = new ArrayList<>();
+        synchronized (escritura) {
+            buffer.drainTo(tanda);
+            escribir(tanda);
+        }
+    }
+
+    private static void escribir(List<Registro> tanda) {
+        long perdidos = descartados.sumThenReset();
+        if (tanda.isEmpty() && perdidos == 0) return;
+        SimpleDateFormat hora = new SimpleDateFormat("HH:mm:ss.SSS");
+        StringBuilder sb = new StringBuilder();
+        if (perdidos > 0) sb.append("[log] ").append(perdidos).append(" registros descartados (buffer lleno)\n");
+        for (Registro r : tanda) {
+            sb.append(hora.format(new Date(r.instante))).append(' ').append(r.nivel).append(" [")
+                    .append(r.hilo).append("] ").append(r.mensaje).append('\n');
+            if (r.error != null) {
+                StringWriter traza = new StringWriter();
+                r.error.printStackTrace(new PrintWriter(traza));
+                sb.append(traza);
+            }
+        }
+        System.out.print(sb);
+        System.out.flush();
+    }
+}
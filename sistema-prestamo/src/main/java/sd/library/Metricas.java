@@ -0,0 +1,140 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * Métricas del proceso (GC, actores, GA) expuestas en texto por HTTP
+ * - Contador: eventos acumulados (solicitudes por tipo, failover, expiradas...)
+ * - Tiempo: duración de una etapa en microsegundos (cantidad, suma y máximo); el promedio
+ *   es suma/cantidad y la diferencia entre dos lecturas da el de ese intervalo
+ * - Medidor: valor instantáneo leído al consultar (pendientes, profundidad del diario...)
+ * - Contadores y tiempos con LongAdder: sin locks ni contención entre hilos en el camino
+ *   de cada solicitud. Conviene guardar el Contador/Tiempo en un campo y no buscarlo por
+ *   nombre en cada uso
+ * - Con -Dmetricas.puerto=<p> (0 por defecto: sin servidor) se sirven en
+ *   http://host:p/metricas, una línea "nombre valor" por métrica, en orden alfabético
+ */
+public final class Metricas {
+    private static final int PUERTO = Integer.getInteger("metricas.puerto", 0);
+
+    public static final class Contador {
+        private final LongAdder valor = new LongAdder();
+
+        public void sumar() {
+            valor.increment();
+        }
+
+        public void sumar(long n) {
+            valor.add(n);
+        }
+    }
+
+    public static final class Tiempo {
+        private final LongAdder cantidad = new LongAdder();
+        private final LongAdder sumaUs = new LongAdder();
+        private final LongAccumulator maximoUs = new LongAccumulator(Math::max, 0);
+
+        //Registra lo transcurrido desde inicioNs (System.nanoTime())
+        public void desde(long inicioNs) {
+            registrar((System.nanoTime() - inicioNs) / 1_000);
+        }
+
+        public void registrar(long us) {
+            cantidad.increment();
+            sumaUs.add(us);
+            maximoUs.accumulate(us);
+        }
+    }
+
+    private static final Map<String, Contador> contadores = new ConcurrentHashMap<>();
+    private static final Map<String, Tiempo> tiempos = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> medidores = new ConcurrentHashMap<>();
+    private static final AtomicBoolean expuestas = new AtomicBoolean(); // un servidor por proceso
+
+    private Metricas() {}
+
+    public static Contador contador(String nombre) {
+        return contadores.computeIfAbsent(nombre, k -> new Contador());
+    }
+
+    //Contador con etiqueta: nombre{etiqueta="valor"}
+    public static Contador contador(String nombre, String etiqueta, Object valor) {
+        return contador(nombre + "{" + etiqueta + "=\"" + valor + "\"}");
+    }
+
+    public static Tiempo tiempo(String nombre) {
+        return tiempos.computeIfAbsent(nombre, k -> new Tiempo());
+    }
+
+    //Registra (o reemplaza) un medidor; se lee solo al consultar las métricas
+    public static void medidor(String nombre, LongSupplier valor) {
+        medidores.put(nombre, valor);
+    }
+
+    //Todas las métricas en texto, una por línea
+    public static String texto() {
+        Map<String, Long> valores = new TreeMap<>();
+        contadores.forEach((n, c) -> valores.put(n, c.valor.sum()));
+        tiempos.forEach((n, t) -> {
+            valores.put(n + "_cantidad", t.cantidad.sum());
+            valores.put(n + "_suma_us", t.sumaUs.sum());
+            valores.put(n + "_max_us", t.maximoUs.get());
+        });
+        medidores.forEach((n, m) -> {
+            try {
+                valores.put(n, m.getAsLong());
+            } catch (RuntimeException e) {
+                // medidor de un componente aún no iniciado o ya cerrado
+            }
+        });
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> e : valores.entrySet()) {
+            sb.append(e.getKey()).append(' ').append(e.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    //Inicia el servidor HTTP de métricas si se configuró -Dmetricas.puerto (solo la primera vez)
+    public static void exponer(String proceso) {
+        if (PUERTO <= 0 || !expuestas.compareAndSet(false, true)) return;
+        // El hilo del servidor hereda la condición de daemon de quien lo inicia: así no
+        // impide que el proceso termine
+        Thread inicio = new Thread(() -> {
+            try {
+                HttpServer servidor = HttpServer.create(new InetSocketAddress(PUERTO), 0);
+                servidor.createContext("/metricas", intercambio -> {
+                    byte[] cuerpo = ("# " + proceso + "\n" + texto()).getBytes(StandardCharsets.UTF_8);
+                    intercambio.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                    intercambio.sendResponseHeaders(200, cuerpo.length);
+                    try (OutputStream out = intercambio.getResponseBody()) {
+                        out.write(cuerpo);
+                    }
+                });
+                servidor.start();
+                Log.info("{} publicando métricas en http://localhost:{}/metricas", proceso, PUERTO);
+            } catch (IOException e) {
+                Log.aviso("{} no pudo abrir el puerto de métricas {}: {}", proceso, PUERTO, e.getMessage());
+            }
+        }, "metricas");
+        inicio.setDaemon(true);
+        inicio.start();
+    }
+}
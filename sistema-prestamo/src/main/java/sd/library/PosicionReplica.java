@@ -0,0 +1,110 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.TreeSet;
+
+/*
+ * Posición del GA secundario en el flujo de replicación del primario
+ * - epoca: identifica una ejecución del primario (sus secuencias empiezan en 1 cada vez)
+ * - aplicada: última secuencia tal que todas las anteriores ya se aplicaron y anotaron;
+ *   las que llegan adelantadas (hilos, hueco tras un reinicio) esperan en fueraDeOrden
+ * - Se guarda en <archivo>.repl en cada punto de durabilidad (ProcesadorGA.sincronizar),
+ *   con el valor tomado antes de sincronizar: nunca apunta a algo que no esté en disco
+ * - Al reiniciar, el secundario la reporta al primario para recibir solo lo que le falta
+ *   (ver RecuperacionGA)
+ */
+public class PosicionReplica {
+    private final Path archivo;
+    private final Object escritura = new Object();
+
+    private long epoca = 0;
+    private long aplicada = 0;
+    private final TreeSet<Long> fueraDeOrden = new TreeSet<>();
+    private boolean cambioDeEpoca = false;
+
+    private long epocaGuardada = 0;
+    private long aplicadaGuardada = 0;
+
+    public PosicionReplica(String archivo) {
+        this.archivo = Paths.get(archivo);
+    }
+
+    //Lee la posición guardada (si existe)
+    public synchronized void cargar() throws IOException {
+        if (!Files.exists(archivo)) return;
+        String[] partes = new String(Files.readAllBytes(archivo), StandardCharsets.UTF_8).trim().split("\\s+");
+        epoca = epocaGuardada = Long.parseLong(partes[0]);
+        aplicada = aplicadaGuardada = Long.parseLong(partes[1]);
+        Log.info("GA posición de réplica: época {}, secuencia {}", epoca, aplicada);
+    }
+
+    //Escritura del primario ya aplicada y anotada
+    public synchronized void registrar(long epoca, long seq) {
+        if (epoca != this.epoca) {
+            // El primario se reinició: sus secuencias no continúan las nuestras
+            this.epoca = epoca;
+            aplicada = 0;
+            fueraDeOrden.clear();
+            cambioDeEpoca = true;
+        }
+        if (seq <= aplicada) return;
+        if (seq == aplicada + 1) {
+            aplicada = seq;
+            while (fueraDeOrden.remove(aplicada + 1)) aplicada++;
+        } else {
+            fueraDeOrden.add(seq);
+        }
+    }
+
+    //Tras copiar un snapshot tomado en la secuencia seq: todo lo anterior ya está incluido
+    public synchronized void fijar(long epoca, long seq) {
+        if (epoca != this.epoca) {
+            this.epoca = epoca;
+            aplicada = 0;
+            fueraDeOrden.clear();
+        }
+        aplicada = Math.max(aplicada, seq);
+        fueraDeOrden.headSet(aplicada, true).clear();
+        while (fueraDeOrden.remove(aplicada + 1)) aplicada++;
+        cambioDeEpoca = false;
+    }
+
+    public synchronized long[] actual() {
+        return new long[] { epoca, aplicada };
+    }
+
+    //Primera secuencia que falta con otras posteriores ya recibidas, o -1 si no hay hueco
+    public synchronized long hueco() {
+        return fueraDeOrden.isEmpty() ? -1 : aplicada + 1;
+    }
+
+    //true una vez por cada cambio de época visto en el flujo
+    public synchronized boolean tomarCambioDeEpoca() {
+        boolean hubo = cambioDeEpoca;
+        cambioDeEpoca = false;
+        return hubo;
+    }
+
+    //Escribe la posición dada si avanzó desde la última vez (reemplazo atómico del archivo)
+    public void guardar(long[] posicion) throws IOException {
+        synchronized (escritura) {
+            if (posicion[0] == epocaGuardada && posicion[1] <= aplicadaGuardada) return; // nada nuevo
+            Path tmp = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+            Files.write(tmp, (posicion[0] + " " + posicion[1] + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            epocaGuardada = posicion[0];
+            aplicadaGuardada = posicion[1];
+        }
+    }
+}
@@ -0,0 +1,555 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import sd.library.model.Libro;
+import sd.library.persistencia.MotorPersistencia;
+
+/*
+ * Lógica de operaciones del GA sobre el inventario en memoria, independiente de los sockets
+ * - Inventario en el mapa que da el motor (MotorPersistencia.crearInventario): ConcurrentHashMap
+ *   en el heap, o la vista sobre los archivos mapeados con mmap; las lecturas (GET_LIBRO) no
+ *   toman los locks por ISBN
+ * - Escrituras serializadas por ISBN con locks por franja (FRANJAS locks para todo el catálogo);
+ *   cambio en memoria y anotación en el motor ocurren bajo el mismo lock, así el orden del
+ *   log coincide con el de la memoria para cada libro. Si el motor (o en un secundario el
+ *   diario de resync) no anota el cambio, se deshace en memoria y la respuesta es ERROR: un
+ *   reintento del cliente no lo aplica dos veces
+ * - Cada cambio incrementa Libro.version. UPDATE_LIBRO con "versionEsperada" es condicional
+ *   (compare-and-set): si la versión guardada no coincide (o el libro no existe) responde
+ *   CONFLICT con el libro actual. Sin "versionEsperada" es incondicional: reemplaza el libro y
+ *   le asigna la versión guardada + 1. La versión que traiga el cliente nunca se guarda tal cual:
+ *   un estado ya resuelto en otro nodo (réplica, snapshot, resync, rebalanceo) entra solo por
+ *   REPLICAR o APLICAR_LOTE con updateCopia, que aplicarReplica compara por versión
+ * - PRESTAR/DEVOLVER/RENOVAR validan y aplican la regla completa bajo el lock del ISBN sobre
+ *   una copia del libro que luego reemplaza a la original (copy-on-write)
+ * - La durabilidad (sincronizar) la decide quien llama: lote del bucle secuencial,
+ *   CommitGrupal en el modo con hilos o RecuperacionGA; junto con el motor se guarda la
+ *   posición en el flujo de replicación (PosicionReplica) y, en un secundario, el diario de
+ *   escrituras hechas en failover que hay que reenviar al primario (DiarioResync)
+ * - Si sincronizar falla el GA queda cerrado a escrituras (responde ERROR, las lecturas siguen):
+ *   lo ya aplicado en memoria no está en disco, así que no se aceptan cambios encima hasta que
+ *   un nuevo intento de sincronizar (uno por -Dga.reintentoSyncMs como máximo) funcione
+ * - ELIMINAR_LIBRO con "versionEsperada" solo borra esa versión (CONFLICT con el libro actual si no)
+ * - APLICAR_LOTE aplica varias escrituras ya resueltas con la regla de REPLICAR (lo usa el
+ *   secundario para devolverle al primario lo que recibió mientras este estaba caído)
+ * - SNAPSHOT entrega el inventario por páginas a un secundario que se está recuperando.
+ *   La primera página abre el recorrido del motor (MotorPersistencia.recorrer: la lista de
+ *   referencias en el heap o los registros mapeados por posición) y cada respuesta trae en
+ *   "siguiente" la posición de la página que sigue
+ */
+public class ProcesadorGA {
+    private static final Gson gson = new Gson();
+    private static final int FRANJAS = 64;
+    private static final int PAGINA_MAX = 5000;
+    private static final long SESION_MS = 60_000; // sesión de snapshot sin usar se descarta
+    private static final long REINTENTO_SYNC_MS = Long.getLong("ga.reintentoSyncMs", 1000L);
+
+    private static final Metricas.Tiempo PERSISTENCIA = Metricas.tiempo("ga_persistencia");
+    private static final Metricas.Contador ESCRITURAS_FAILOVER = Metricas.contador("ga_escrituras_failover");
+
+    private final Map<String, Libro> inventario;
+    private final MotorPersistencia motor;
+    private final PosicionReplica posicion;
+    private final DiarioResync diario; // null si no es secundario
+    private final Object[] candados = new Object[FRANJAS];
+
+    // Snapshots en curso por id de sesión
+    private static class Sesion {
+        final MotorPersistencia.Recorrido recorrido;
+        volatile long usada = System.currentTimeMillis();
+
+        Sesion(MotorPersistencia.Recorrido recorrido) {
+            this.recorrido = recorrido;
+        }
+    }
+
+    private final Map<String, Sesion> sesiones = new ConcurrentHashMap<>();
+
+    // Cerrado a escrituras tras un sincronizar fallido
+    private volatile boolean sinDurabilidad = false;
+    private volatile long proximoIntento = 0;
+
+    // ISBN escritos mientras se copia un snapshot del primario (null fuera de la copia)
+    private volatile Set<String> tocados;
+
+    public ProcesadorGA(MotorPersistencia motor, PosicionReplica posicion, DiarioResync diario) {
+        this.motor = motor;
+        this.inventario = motor.crearInventario();
+        this.posicion = posicion;
+        this.diario = diario;
+        for (int i = 0; i < FRANJAS; i++) candados[i] = new Object();
+    }
+
+    //Carga el inventario inicial y la posición de réplica
+    public void cargar() throws IOException {
+        motor.cargar(inventario);
+        posicion.cargar();
+        if (diario != null) diario.cargar();
+    }
+
+    public MotorPersistencia getMotor() { return motor; }
+
+    public PosicionReplica getPosicion() { return posicion; }
+
+    public DiarioResync getDiario() { return diario; }
+
+    //Punto de durabilidad: lo anotado queda en disco y con ello la posición de réplica y el diario
+    public void sincronizar() throws IOException {
+        long inicio = System.nanoTime();
+        long[] pos = posicion.actual(); // antes: todo lo que cubren ya está anotado en el motor
+        int marca = diario != null ? diario.marca() : 0;
+        try {
+            motor.sincronizar();
+            posicion.guardar(pos);
+            if (diario != null) diario.sincronizar(marca);
+        } catch (IOException | RuntimeException e) {
+            cerrarEscrituras();
+            throw e;
+        }
+        if (sinDurabilidad) Log.info("GA recuperó la persistencia, vuelve a aceptar escrituras");
+        sinDurabilidad = false;
+        PERSISTENCIA.desde(inicio);
+    }
+
+    private void cerrarEscrituras() {
+        if (!sinDurabilidad) Log.aviso("GA deja de aceptar escrituras hasta que la persistencia se recupere");
+        sinDurabilidad = true;
+        proximoIntento = System.currentTimeMillis() + REINTENTO_SYNC_MS;
+    }
+
+    //Con la persistencia caída reintenta sincronizar (a lo sumo uno por REINTENTO_SYNC_MS)
+    private boolean aceptaEscrituras() {
+        if (!sinDurabilidad) return true;
+        if (System.currentTimeMillis() < proximoIntento) return false;
+        try {
+            sincronizar();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Log.error("GA sigue sin poder sincronizar la persistencia", e);
+            return false;
+        }
+    }
+
+    public static boolean esEscritura(String tipo) {
+        return tipo.equals("UPDATE_LIBRO") || tipo.equals("ELIMINAR_LIBRO") || tipo.equals("REPLICAR")
+                || tipo.equals("APLICAR_LOTE") || esOperacionAtomica(tipo);
+    }
+
+    public static boolean esOperacionAtomica(String tipo) {
+        return tipo.equals("PRESTAR") || tipo.equals("DEVOLVER") || tipo.equals("RENOVAR");
+    }
+
+    //Mensaje que se propaga al secundario: el estado resultante, no la operación a re-ejecutar
+    public static String mensajeReplica(String tipo, JsonObject req, JsonObject resp) {
+        if (tipo.equals("REPLICAR")) return req.getAsJsonObject("op").toString(); // encadenar réplicas
+        if (esOperacionAtomica(tipo)) return updateCopia(resp.getAsJsonObject("libro")).toString();
+        if (tipo.equals("UPDATE_LIBRO")) {
+            JsonObject libro = req.getAsJsonObject("libro").deepCopy();
+            libro.addProperty("version", resp.get("version").getAsLong()); // la que asignó este GA
+            return updateCopia(libro).toString();
+        }
+        return req.toString();
+    }
+
+    //Evento de cambio para las caches de los actores: pares { isbn, versión } (versión -1 si se eliminó)
+    public static String[] evento(String tipo, JsonObject req, JsonObject resp) {
+        if (tipo.equals("REPLICAR")) {
+            JsonObject op = req.getAsJsonObject("op");
+            return evento(op.get("type").getAsString(), op, resp);
+        }
+        if (tipo.equals("APLICAR_LOTE")) {
+            List<String> pares = new ArrayList<>();
+            for (JsonElement e : req.getAsJsonArray("ops")) {
+                JsonObject op = e.getAsJsonObject();
+                if (op.get("type").getAsString().equals("ELIMINAR_LIBRO")) {
+                    pares.add(op.get("isbn").getAsString());
+                    pares.add("-1");
+                } else {
+                    JsonObject libro = op.getAsJsonObject("libro");
+                    pares.add(libro.get("isbn").getAsString());
+                    pares.add(libro.has("version") ? libro.get("version").getAsString() : "0");
+                }
+            }
+            return pares.toArray(new String[0]);
+        }
+        if (tipo.equals("ELIMINAR_LIBRO")) return new String[] { req.get("isbn").getAsString(), "-1" };
+        if (esOperacionAtomica(tipo)) {
+            JsonObject libro = resp.getAsJsonObject("libro");
+            return new String[] { libro.get("isbn").getAsString(), libro.get("version").getAsString() };
+        }
+        return new String[] { req.getAsJsonObject("libro").get("isbn").getAsString(), resp.get("version").getAsString() };
+    }
+
+    //Operación que copia un estado ya aplicado en otro nodo, con su versión (solo para aplicarReplica)
+    public static JsonObject updateCopia(JsonObject libro) {
+        JsonObject update = new JsonObject();
+        update.addProperty("type", "UPDATE_LIBRO");
+        update.addProperty("copia", true);
+        update.add("libro", libro);
+        return update;
+    }
+
+    //Petición APLICAR_LOTE con la copia de un libro (rebalanceo hacia otro shard)
+    public static JsonObject loteCopia(JsonObject libro) {
+        JsonArray ops = new JsonArray();
+        ops.add(updateCopia(libro));
+        JsonObject lote = new JsonObject();
+        lote.addProperty("type", "APLICAR_LOTE");
+        lote.add("ops", ops);
+        return lote;
+    }
+
+    //Procesa una petición contra el inventario en memoria (seguro entre hilos)
+    public JsonObject procesar(String tipo, JsonObject req) {
+        if (esEscritura(tipo) && !aceptaEscrituras()) {
+            JsonObject resp = new JsonObject();
+            resp.addProperty("estatus", "ERROR");
+            resp.addProperty("mensaje", "GA sin persistencia, no acepta escrituras");
+            return resp;
+        }
+        return ejecutar(tipo, req);
+    }
+
+    private JsonObject ejecutar(String tipo, JsonObject req) {
+        JsonObject resp = new JsonObject();
+
+        // Procesar según tipo de operación
+        switch (tipo) {
+            case "PING": // heartbeat de los clientes
+                resp.addProperty("estatus", "OK");
+                break;
+
+            case "GET_LIBRO": {
+                String isbn = req.get("isbn").getAsString();
+                Libro libro = inventario.get(isbn);
+                if (libro != null) {
+                    resp.addProperty("estatus", "OK");
+                    resp.add("libro", gson.toJsonTree(libro)); // Serializar objeto Libro
+                } else {
+                    resp.addProperty("estatus", "ERROR");
+                    resp.addProperty("mensaje", "Libro no encontrado");
+                }
+                break;
+            }
+
+            case "UPDATE_LIBRO": {
+                JsonObject libroJson = req.getAsJsonObject("libro");
+                Libro libro = gson.fromJson(libroJson, Libro.class); // Deserializar
+                synchronized (candado(libro.getIsbn())) {
+                    Libro actual = inventario.get(libro.getIsbn());
+                    if (req.has("versionEsperada")) {
+                        if (actual == null || actual.getVersion() != req.get("versionEsperada").getAsLong()) {
+                            // Otro actor modificó (o eliminó) el libro desde que este lo leyó
+                            resp.addProperty("estatus", "CONFLICT");
+                            resp.addProperty("mensaje", "Versión desactualizada");
+                            if (actual != null) resp.add("libro", gson.toJsonTree(actual));
+                            break;
+                        }
+                        libro.setVersion(actual.getVersion() + 1);
+                    } else {
+                        // incondicional: sigue la secuencia guardada ("copia" de un cliente se ignora)
+                        libro.setVersion(actual == null ? 0 : actual.getVersion() + 1);
+                    }
+                    guardar(resp, libro.getIsbn(), libro, actual, true); // Persistir en disco (en el lote)
+                    if (!esOk(resp)) break;
+                    resp.addProperty("version", libro.getVersion());
+                }
+                resp.addProperty("mensaje", "Libro actualizado localmente");
+                break;
+            }
+
+            case "PRESTAR":
+            case "DEVOLVER":
+            case "RENOVAR": {
+                String isbn = req.get("isbn").getAsString();
+                String usuario = req.get("usuario").getAsString();
+                synchronized (candado(isbn)) {
+                    Libro actual = inventario.get(isbn);
+                    if (actual == null) {
+                        resp.addProperty("estatus", "ERROR");
+                        resp.addProperty("mensaje", "Libro no encontrado");
+                        break;
+                    }
+                    Libro libro = new Libro(actual); // GET_LIBRO concurrentes ven el estado anterior o el nuevo
+                    String mensaje = aplicarOperacion(tipo, libro, usuario, resp);
+                    if (!resp.has("estatus")) { // la operación procede
+                        libro.setVersion(actual.getVersion() + 1);
+                        guardar(resp, isbn, libro, actual, true);
+                        if (!esOk(resp)) break;
+                        resp.add("libro", gson.toJsonTree(libro));
+                    }
+                    resp.addProperty("mensaje", mensaje);
+                }
+                break;
+            }
+
+            case "REPLICAR": {
+                resp = aplicarReplica(req.getAsJsonObject("op"));
+                long epoca = req.has("epoca") ? req.get("epoca").getAsLong() : 0;
+                if (resp.get("estatus").getAsString().equals("OK")) posicion.registrar(epoca, req.get("seq").getAsLong());
+                resp.add("seq", req.get("seq"));
+                break;
+            }
+
+            case "APLICAR_LOTE": {
+                resp = aplicarReplica(req);
+                break;
+            }
+
+            case "SNAPSHOT": {
+                String id = req.has("sesion") ? req.get("sesion").getAsString() : null;
+                Sesion sesion;
+                if (id == null) {
+                    sesiones.values().removeIf(s -> s.usada + SESION_MS < System.currentTimeMillis());
+                    id = UUID.randomUUID().toString();
+                    sesion = new Sesion(motor.recorrer(inventario));
+                    sesiones.put(id, sesion);
+                    resp.addProperty("total", inventario.size());
+                } else if ((sesion = sesiones.get(id)) == null) {
+                    resp.addProperty("estatus", "ERROR");
+                    resp.addProperty("mensaje", "Sesión de snapshot vencida");
+                    break;
+                }
+                sesion.usada = System.currentTimeMillis();
+                int desde = req.has("desde") ? req.get("desde").getAsInt() : 0;
+                int limite = Math.max(1, Math.min(req.has("limite") ? req.get("limite").getAsInt() : PAGINA_MAX, PAGINA_MAX));
+                JsonArray libros = new JsonArray();
+                int siguiente = sesion.recorrido.pagina(desde, limite, l -> libros.add(gson.toJsonTree(l)));
+                boolean fin = siguiente < 0;
+                if (fin) sesiones.remove(id);
+                resp.addProperty("estatus", "OK");
+                resp.addProperty("sesion", id);
+                resp.add("libros", libros);
+                resp.addProperty("fin", fin);
+                if (!fin) resp.addProperty("siguiente", siguiente);
+                break;
+            }
+
+            case "LISTAR_ISBN": {
+                JsonArray isbns = new JsonArray();
+                for (String isbn : inventario.keySet()) isbns.add(isbn);
+                resp.addProperty("estatus", "OK");
+                resp.add("isbns", isbns);
+                break;
+            }
+
+            case "ELIMINAR_LIBRO": {
+                String isbn = req.get("isbn").getAsString();
+                synchronized (candado(isbn)) {
+                    Libro actual = inventario.get(isbn);
+                    if (req.has("versionEsperada") && actual != null && actual.getVersion() != req.get("versionEsperada").getAsLong()) {
+                        // Cambió desde que se copió (rebalanceo): no se borra la versión nueva
+                        resp.addProperty("estatus", "CONFLICT");
+                        resp.addProperty("mensaje", "Versión desactualizada");
+                        resp.add("libro", gson.toJsonTree(actual));
+                        break;
+                    }
+                    if (actual != null) {
+                        guardar(resp, isbn, null, actual, true);
+                        if (!esOk(resp)) break;
+                    } else {
+                        resp.addProperty("estatus", "OK");
+                    }
+                }
+                resp.addProperty("mensaje", "Libro eliminado");
+                break;
+            }
+
+            default:
+                resp.addProperty("estatus", "ERROR");
+                resp.addProperty("mensaje", "Tipo desconocido: " + tipo);
+        }
+        return resp;
+    }
+
+    /*
+     * Escritura recibida del primario: estado resultante (UPDATE_LIBRO de copia) o
+     * eliminación. Un libro se reemplaza solo si la versión recibida no es menor que la
+     * guardada, así aplicar dos veces o en otro orden deja el mismo resultado.
+     * Lo usan también RecuperacionGA (tramo del log y páginas de snapshot).
+     */
+    public JsonObject aplicarReplica(JsonObject op) {
+        JsonObject resp = new JsonObject();
+        Set<String> copiando = tocados;
+        if (op.get("type").getAsString().equals("APLICAR_LOTE")) {
+            int aplicadas = 0;
+            for (JsonElement e : op.getAsJsonArray("ops")) {
+                JsonObject r = aplicarReplica(e.getAsJsonObject());
+                if (!r.get("estatus").getAsString().equals("OK")) return r;
+                aplicadas++;
+            }
+            resp.addProperty("aplicadas", aplicadas);
+        } else if (op.get("type").getAsString().equals("ELIMINAR_LIBRO")) {
+            String isbn = op.get("isbn").getAsString();
+            synchronized (candado(isbn)) {
+                if (copiando != null) copiando.add(isbn);
+                Libro actual = inventario.get(isbn);
+                if (actual != null) guardar(resp, isbn, null, actual, false);
+            }
+        } else {
+            Libro libro = gson.fromJson(op.getAsJsonObject("libro"), Libro.class);
+            synchronized (candado(libro.getIsbn())) {
+                if (copiando != null) copiando.add(libro.getIsbn());
+                Libro actual = inventario.get(libro.getIsbn());
+                if (actual == null || actual.getVersion() <= libro.getVersion()) {
+                    guardar(resp, libro.getIsbn(), libro, actual, false);
+                }
+            }
+            resp.addProperty("version", libro.getVersion());
+        }
+        if (!resp.has("estatus")) resp.addProperty("estatus", "OK"); // ya estaba aplicada
+        return resp;
+    }
+
+    //Empieza la copia de un snapshot del primario; retorna los ISBN que había antes de copiarlo
+    public Set<String> iniciarCopia() {
+        tocados = ConcurrentHashMap.newKeySet();
+        return new HashSet<>(inventario.keySet());
+    }
+
+    /*
+     * Termina la copia: los libros que ya estaban y no llegaron ni en el snapshot ni por el
+     * flujo de réplica durante la copia se eliminaron en el primario. Retorna cuántos se quitaron.
+     */
+    public int terminarCopia(Set<String> previos) {
+        Set<String> vistos = tocados;
+        int eliminados = 0;
+        for (String isbn : previos) {
+            synchronized (candado(isbn)) {
+                Libro actual = inventario.get(isbn);
+                if (vistos.contains(isbn) || actual == null) continue;
+                JsonObject resp = new JsonObject();
+                guardar(resp, isbn, null, actual, false);
+                if (esOk(resp)) eliminados++;
+            }
+        }
+        tocados = null;
+        return eliminados;
+    }
+
+    /*
+     * Reglas de préstamo, devolución y renovación sobre la copia del libro
+     * (también las usan los actores en modo CAS, ver ClienteGA.actualizarConReintento).
+     * Retorna el mensaje para el cliente; si la operación no procede deja
+     * estatus ERROR en la respuesta y el libro sin tocar.
+     */
+    static String aplicarOperacion(String tipo, Libro libro, String usuario, JsonObject resp) {
+        LocalDate nuevaFecha = LocalDate.now().plusDays(Libro.DIAS_PRESTAMO);
+        switch (tipo) {
+            case "PRESTAR":
+                if (libro.getCopiasDisponibles() <= 0) return rechazar(resp, "No hay copias disponibles");
+                libro.prestarA(usuario, nuevaFecha);
+                return "Préstamo registrado";
+
+            case "DEVOLVER":
+                if (!libro.estaPrestadoA(usuario)) return rechazar(resp, "El usuario no tiene este libro");
+                libro.devolverA(usuario);
+                return "Devolución exitosa";
+
+            default: // RENOVAR
+                if (!libro.estaPrestadoA(usuario)) return rechazar(resp, "El usuario no tiene este libro para renovar");
+                int count = libro.renovacionesDe(usuario);
+                if (count >= Libro.MAX_RENOVACIONES) return rechazar(resp, "Máximo de renovaciones alcanzado");
+                libro.renovarA(usuario, nuevaFecha);
+                return "Renovación exitosa (" + (count + 1) + ")";
+        }
+    }
+
+    private static String rechazar(JsonObject resp, String mensaje) {
+        resp.addProperty("estatus", "ERROR");
+        return mensaje;
+    }
+
+    private Object candado(String isbn) {
+        return candados[(isbn.hashCode() & 0x7fffffff) % FRANJAS];
+    }
+
+    private interface Anotacion {
+        void aplicar() throws IOException;
+    }
+
+    /*
+     * Publica el cambio (libro, o null para eliminar) y lo anota en el motor y, si es la escritura
+     * de un cliente en un secundario, en el diario de resync. Si una anotación falla vuelve al
+     * estado anterior con estatus ERROR: nadie sigue viendo, ni se replica (solo se replica OK),
+     * un cambio que no quedó anotado. Se llama bajo el candado del ISBN
+     */
+    private void guardar(JsonObject resp, String isbn, Libro libro, Libro anterior, boolean deCliente) {
+        publicar(isbn, libro);
+        anotar(resp, () -> anotarEnMotor(isbn, libro));
+        if (!esOk(resp)) {
+            publicar(isbn, anterior);
+            resp.addProperty("mensaje", "No se pudo guardar el cambio");
+            return;
+        }
+        if (diario == null || !deCliente) return;
+        try {
+            // Escritura de un cliente en el secundario: queda para reenviarla al primario
+            diario.anotar(libro != null ? updateCopia(gson.toJsonTree(libro).getAsJsonObject()).toString() : eliminacion(isbn));
+            ESCRITURAS_FAILOVER.sumar();
+        } catch (IOException e) {
+            Log.error("GA no pudo anotar la escritura en el diario de resync", e);
+            resp.addProperty("estatus", "ERROR");
+            resp.addProperty("mensaje", "No se pudo guardar el cambio");
+            publicar(isbn, anterior);
+            try {
+                anotarEnMotor(isbn, anterior); // el motor ya tenía el cambio: se anota el estado anterior encima
+            } catch (IOException e2) {
+                Log.error("GA no pudo deshacer en la persistencia un cambio rechazado por el diario", e2);
+            }
+            cerrarEscrituras(); // el diario quedó inservible hasta que un sincronizar funcione
+        }
+    }
+
+    private void publicar(String isbn, Libro libro) {
+        if (libro != null) inventario.put(isbn, libro);
+        else inventario.remove(isbn);
+    }
+
+    private void anotarEnMotor(String isbn, Libro libro) throws IOException {
+        if (libro != null) motor.registrar(libro);
+        else motor.eliminar(isbn);
+    }
+
+    private static String eliminacion(String isbn) {
+        JsonObject op = new JsonObject();
+        op.addProperty("type", "ELIMINAR_LIBRO");
+        op.addProperty("isbn", isbn);
+        return op.toString();
+    }
+
+    private static boolean esOk(JsonObject resp) {
+        return resp.get("estatus").getAsString().equals("OK");
+    }
+
+    //Anota el cambio en el motor de persistencia (se hace durable al vaciar el lote)
+    private static void anotar(JsonObject resp, Anotacion anotacion) {
+        try {
+            anotacion.aplicar();
+            resp.addProperty("estatus", "OK");
+        } catch (IOException e) {
+            Log.error("GA no pudo anotar el cambio en la persistencia", e);
+            resp.addProperty("estatus", "ERROR");
+        }
+    }
+}
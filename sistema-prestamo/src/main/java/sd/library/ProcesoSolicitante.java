@@ -7,6 +7,8 @@
 package sd.library;
 
 import com.google.gson.Gson;
+import sd.library.codec.Codec;
+import sd.library.codec.Codecs;
 import sd.library.model.Request;
 import org.zeromq.SocketType;
 import org.zeromq.ZContext;
@@ -22,9 +24,11 @@ import java.util.Locale;
  * - Lee solicitudes desde archivo de texto
  * - Las envía secuencialmente al GC
  * - Espera y muestra respuestas
+ * - Formato de las solicitudes con -Dcodec=json|binario
  */
 public class ProcesoSolicitante {
     private static final Gson gson = new Gson();
+    private static final Codec codec = Codecs.configurado();
 
     public static void main(String[] args) throws Exception {
         if (args.length < 3) {
@@ -62,9 +66,9 @@ public class ProcesoSolicitante {
                     
                     // Envío y recepción sincrónica
                     System.out.println("PS -> GC: " + json);
-                    req.send(json);
-                    String resp = req.recvStr(0); // 0 = sin espera
-                    System.out.println("GC -> PS: " + resp);
+                    req.send(codec.codificarRequest(r));
+                    byte[] resp = req.recv(0); // 0 = sin espera
+                    System.out.println("GC -> PS: " + Codecs.legible(resp));
 
                     // Pequeña pausa para evitar saturación
                     Thread.sleep(200);
@@ -7,32 +7,41 @@
 package sd.library.PruebasRend;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 
 /*
  * Procesa y analiza archivos de tiempos de respuesta
- * - Agrega todos los tiempos de respuesta de múltiples instancias PSRend
+ * - Une los histogramas (hist_ps_*.hlog, ver RegistroLatencias) de múltiples instancias
+ *   PSRend o GeneradorCarga en un solo Histograma: memoria constante sin importar cuántas
+ *   solicitudes se midieron
  * - Calcula estadísticas descriptivas:
- *   - Tiempo promedio de respuesta
- *   - Desviación estándar (variabilidad)
+ *   - Percentiles p50, p90, p99, p99.9 y máximo (las esperas largas que el promedio oculta)
+ *   - Tiempo promedio de respuesta y desviación estándar (variabilidad)
  *   - Cantidad total de mediciones
- * 
- * Metodos de calculo
- * - Promedio: medida de tendencia central
- * - Varianza: promedio de las diferencias cuadráticas con la media
- * - Desviación estándar: raíz cuadrada de la varianza
+ * - Serie de throughput: solicitudes respondidas por segundo sumando todas las instancias
+ *
+ * Tiempos en milisegundos con resolución de microsegundos (error relativo < 0.1%)
  */
 public class AnalizadorTiempos {
     public static void main(String[] args) throws IOException {
         // Agrupar todos los tiempos
-        List<Long> tiempos = new ArrayList<>();
+        Histograma tiempos = new Histograma();
+        TreeMap<Long, Long> porSegundo = new TreeMap<>(); // segundo (epoch) -> solicitudes
 
-        // Encuentra todos los archivos CSV de tiempos
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get("."), "times_ps_*.csv")) {
+        // Encuentra todos los archivos de histogramas
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get("."), "hist_ps_*.hlog")) {
             for (Path p : stream) {
                 try {
-                    Files.lines(p).map(Long::parseLong).forEach(tiempos::add);
+                    for (String linea : Files.readAllLines(p, StandardCharsets.UTF_8)) {
+                        if (linea.isEmpty() || linea.startsWith("#")) continue;
+                        // inicio_ms,duracion_ms,maximo_us,histograma
+                        String[] campos = linea.split(",", 4);
+                        Histograma intervalo = Histograma.decodificar(campos[3]);
+                        tiempos.sumar(intervalo);
+                        porSegundo.merge(Long.parseLong(campos[0]) / 1000, intervalo.total(), Long::sum);
+                    }
                 } catch (Exception ignored) {
                     // Ignora archivos con formato invalido y permite continuar con otros archivos válidos
                 }
@@ -40,32 +49,32 @@ public class AnalizadorTiempos {
         }
 
         // Manejo de caso sin datos
-        if (tiempos.isEmpty()) {
+        if (tiempos.total() == 0) {
             System.out.println("SolicitudesMedidas=0");
             System.out.println("TiempoPromedio=0");
             System.out.println("DesviacionEstandar=0");
             return;
         }
 
-        // Calculo de estadisticas
-        
-        // PROMEDIO: Suma de todos los valores / cantidad de valores
-        double promedio = tiempos.stream()
-                .mapToLong(Long::longValue)
-                .average()
-                .orElse(0);
+        System.out.println("SolicitudesMedidas=" + tiempos.total());
+        System.out.println("TiempoPromedio=" + ms(tiempos.media()));
+        System.out.println("DesviacionEstandar=" + ms(tiempos.desviacion()));
+        System.out.println("P50=" + ms(tiempos.percentil(50)));
+        System.out.println("P90=" + ms(tiempos.percentil(90)));
+        System.out.println("P99=" + ms(tiempos.percentil(99)));
+        System.out.println("P99.9=" + ms(tiempos.percentil(99.9)));
+        System.out.println("Maximo=" + ms(tiempos.maximo()));
 
-        // VARIANZA: Medida de dispersión de los datos
-        double varianza = tiempos.stream()
-                .mapToDouble(t -> Math.pow(t - promedio, 2))  
-                .average()                                    
-                .orElse(0);                                  
-
-        // DESVIACIÓN ESTÁNDAR: Raíz cuadrada de la varianza
-        double desv = Math.sqrt(varianza);
+        // Serie de throughput, desde el primer segundo con mediciones (los segundos sin respuestas en 0)
+        System.out.println("Segundo,Solicitudes");
+        long primero = porSegundo.firstKey();
+        for (long seg = primero; seg <= porSegundo.lastKey(); seg++) {
+            System.out.println((seg - primero) + "," + porSegundo.getOrDefault(seg, 0L));
+        }
+    }
 
-        System.out.println("SolicitudesMedidas=" + tiempos.size());
-        System.out.println("TiempoPromedio=" + String.format("%.2f", promedio));
-        System.out.println("DesviacionEstandar=" + String.format("%.2f", desv));
+    // Microsegundos a milisegundos con dos decimales
+    private static String ms(double us) {
+        return String.format(Locale.ROOT, "%.2f", us / 1000.0);
     }
-}
\ No newline at end of file
+}
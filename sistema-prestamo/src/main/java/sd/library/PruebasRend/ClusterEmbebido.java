@@ -0,0 +1,298 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.PruebasRend;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.DataFormatException;
+
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+import org.zeromq.ZMQException;
+
+import sd.library.ActorPrestamo;
+import sd.library.ActorSuscriptor;
+import sd.library.GestorAlmacenamiento;
+import sd.library.GestorCarga;
+import sd.library.Log;
+import sd.library.Metricas;
+import sd.library.codec.Codecs;
+import sd.library.model.Request;
+
+/*
+ * Sistema completo en un solo proceso para pruebas de rendimiento de extremo a extremo
+ * - Levanta GA primario y secundario, GC y -Dcluster.actores actores de cada tipo
+ *   (ActorPrestamo y ActorSuscriptor), cada uno en sus hilos y con sus sockets tcp en
+ *   localhost: los mismos mains y protocolos que el despliegue, sin los cinco procesos
+ * - Trabaja sobre copias del inventario en un directorio temporal (-Dcluster.dir)
+ * - Espera a que una sonda atraviese GC -> actor -> GA y luego corre GeneradorCarga
+ *   (lazo abierto, -Dps.*) contra el GC
+ * - Caída del GA primario a los -Dcluster.caidaS segundos de iniciada la carga (su
+ *   contexto se cierra sin vaciar nada, como un proceso que muere) y, con
+ *   -Dcluster.reinicioS, reinicio sobre los mismos archivos
+ * - Al terminar muestra la serie por segundo del histograma de GeneradorCarga (solicitudes,
+ *   p99 y máximo) marcando la caída y el reinicio, y el costo del failover: segundos con
+ *   p99 por encima del doble del p99 previo a la caída
+ * - Sale con código 1 si no se midió ninguna respuesta (sirve como verificación en CI)
+ *
+ * La configuración de los componentes es la de siempre (-Dgc.*, -Dactor.*, -Dga.*,
+ * -Dcodec, -Dlog.*) y la comparten todos. El GC corre en modo async salvo que se pida otro;
+ * con más de un actor por tipo se usa la cola de trabajo del GC (cada solicitud la procesa
+ * un solo actor).
+ *
+ * Puertos a partir de -Dcluster.puerto (7555): PS, PUB a actores, resultados, GA, GA secundario
+ *
+ * Uso:
+ * java ClusterEmbebido <inventario.json> <ArchivoRequests>
+ */
+public class ClusterEmbebido {
+    private static final int PUERTO = Integer.getInteger("cluster.puerto", 7555);
+    private static final int ACTORES = Integer.getInteger("cluster.actores", 1);
+    private static final long CAIDA_S = Long.getLong("cluster.caidaS", -1L);     // < 0: sin caída
+    private static final long REINICIO_S = Long.getLong("cluster.reinicioS", -1L); // < 0: no vuelve
+    private static final long ARRANQUE_MS = 30_000;
+    private static final long SUSCRIPCION_MS = 500;
+    private static final String HOST = "localhost";
+
+    // GA con su propio contexto: cerrarlo equivale a matar el proceso
+    private static class NodoGA {
+        private final String nombre;
+        private final int port;
+        private final String archivo;
+        private final String replicaHost;
+        private final int replicaPort;
+        private final String primario;
+        private ZContext ctx;
+        private Thread hilo;
+
+        NodoGA(String nombre, int port, String archivo, String replicaHost, int replicaPort, String primario) {
+            this.nombre = nombre;
+            this.port = port;
+            this.archivo = archivo;
+            this.replicaHost = replicaHost;
+            this.replicaPort = replicaPort;
+            this.primario = primario;
+        }
+
+        synchronized void iniciar() {
+            GestorAlmacenamiento ga = new GestorAlmacenamiento(port, archivo, replicaHost, replicaPort, primario);
+            ZContext contexto = new ZContext();
+            ctx = contexto;
+            hilo = iniciarHilo(nombre, () -> ga.ejecutar(contexto));
+        }
+
+        synchronized void caer() throws InterruptedException {
+            ctx.close();
+            hilo.join(5000);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Uso: java ClusterEmbebido <inventario.json> <ArchivoRequests>");
+            System.exit(1);
+        }
+        // El GC sync espera para siempre una solicitud que el PUB descartó antes de que el SUB
+        // se conectara; el broker la expira y deja seguir a la sonda
+        if (System.getProperty("gc.modo") == null) System.setProperty("gc.modo", "async");
+        if (ACTORES > 1) {
+            // Con PUB/SUB cada actor suscrito procesaría todas las solicitudes
+            System.setProperty("gc.modo", "async");
+            System.setProperty("gc.despacho", "cola");
+            System.setProperty("actor.recepcion", "cola");
+        }
+
+        Path dir = System.getProperty("cluster.dir") != null ? Paths.get(System.getProperty("cluster.dir"))
+                : Files.createTempDirectory("cluster");
+        Files.createDirectories(dir);
+        String archP = copiar(Paths.get(args[0]), dir.resolve("primario.json"));
+        String archS = copiar(Paths.get(args[0]), dir.resolve("secundario.json"));
+        String requests = args[1];
+
+        int portPS = PUERTO, portPub = PUERTO + 1, portRep = PUERTO + 2, portGA = PUERTO + 3, portGAS = PUERTO + 4;
+        Metricas.exponer("Cluster"); // un solo servidor: métricas de todos los componentes juntas
+
+        NodoGA secundario = new NodoGA("ga-secundario", portGAS, archS, null, 0, HOST + ":" + portGA);
+        NodoGA primario = new NodoGA("ga-primario", portGA, archP, HOST, portGAS, "");
+        secundario.iniciar();
+        primario.iniciar();
+        iniciarHilo("gc", () -> GestorCarga.main(new String[] {
+                String.valueOf(portPS), String.valueOf(portPub), String.valueOf(portRep) }));
+        String[] argsActor = { HOST, String.valueOf(portPub), HOST, String.valueOf(portGA), HOST,
+                String.valueOf(portGAS), HOST, String.valueOf(portRep) };
+        for (int i = 0; i < ACTORES; i++) {
+            iniciarHilo("actor-prestamo-" + i, () -> ActorPrestamo.main(argsActor));
+            iniciarHilo("actor-suscriptor-" + i, () -> ActorSuscriptor.main(argsActor));
+        }
+
+        if (!esperarListo(portPS, requests)) {
+            System.out.println("Cluster: el sistema no respondió en " + ARRANQUE_MS / 1000 + " s");
+            System.exit(1);
+        }
+        System.out.println("Cluster: GC, " + ACTORES + " actor(es) por tipo y GA primario/secundario listos en "
+                + dir + " (puertos " + portPS + "-" + portGAS + ")");
+
+        // Caída y reinicio del primario, en segundos desde el inicio de la carga
+        long inicio = System.currentTimeMillis();
+        AtomicLongArray eventos = new AtomicLongArray(new long[] { -1, -1 }); // epoch ms de caída y reinicio
+        if (CAIDA_S >= 0) {
+            Thread fallas = new Thread(() -> {
+                try {
+                    Thread.sleep(CAIDA_S * 1000);
+                    eventos.set(0, System.currentTimeMillis());
+                    primario.caer();
+                    System.out.println("Cluster: GA primario caído a los " + CAIDA_S + " s");
+                    if (REINICIO_S > CAIDA_S) {
+                        Thread.sleep((REINICIO_S - CAIDA_S) * 1000);
+                        eventos.set(1, System.currentTimeMillis());
+                        primario.iniciar();
+                        System.out.println("Cluster: GA primario reiniciado a los " + REINICIO_S + " s");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "cluster-fallas");
+            fallas.setDaemon(true);
+            fallas.start();
+        }
+
+        GeneradorCarga.main(new String[] { requests, HOST, String.valueOf(portPS) });
+
+        long medidas = reportar(ultimoHistograma(inicio), inicio, eventos);
+        Log.vaciar();
+        System.exit(medidas > 0 ? 0 : 1); // los hilos de los componentes no terminan solos
+    }
+
+    private static Thread iniciarHilo(String nombre, Runnable r) {
+        Thread t = new Thread(() -> {
+            try {
+                r.run();
+            } catch (ZMQException e) {
+                // contexto cerrado (caída simulada)
+            } catch (RuntimeException e) {
+                Log.error("Cluster: {} terminó con error", e, nombre);
+            }
+        }, nombre);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static String copiar(Path origen, Path destino) throws IOException {
+        Files.copy(origen, destino, StandardCopyOption.REPLACE_EXISTING);
+        for (String sufijo : new String[] { ".wal", ".repl", ".resync" }) {
+            Files.deleteIfExists(Paths.get(destino + sufijo)); // estado de una corrida anterior
+        }
+        return destino.toString();
+    }
+
+    // Sonda por el camino completo: DEVOLUCION sin préstamo (error de negocio, no cambia nada)
+    private static boolean esperarListo(int portPS, String requests) throws IOException {
+        String isbn = null;
+        for (String linea : Files.readAllLines(Paths.get(requests), StandardCharsets.UTF_8)) {
+            String[] partes = linea.trim().split(",");
+            if (partes.length >= 2 && !linea.trim().startsWith("#")) {
+                isbn = partes[1].trim();
+                break;
+            }
+        }
+        if (isbn == null) throw new IllegalArgumentException("El archivo no tiene solicitudes");
+        byte[] sonda = Codecs.configurado().codificarRequest(new Request(Request.Tipo.DEVOLUCION, isbn, "SONDA"));
+
+        try (ZContext ctx = new ZContext()) {
+            ZMQ.Socket dealer = ctx.createSocket(SocketType.DEALER);
+            dealer.setReceiveTimeOut(500);
+            dealer.connect("tcp://" + HOST + ":" + portPS);
+            long limite = System.currentTimeMillis() + ARRANQUE_MS;
+            try {
+                Thread.sleep(SUSCRIPCION_MS); // tiempo para que los SUB de los actores se conecten
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            while (System.currentTimeMillis() < limite) {
+                dealer.sendMore("");
+                dealer.send(sonda);
+                if (dealer.recv() != null) { // delimitador
+                    dealer.recv();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // hist_ps_<id>.hlog que escribió GeneradorCarga en esta corrida
+    private static Path ultimoHistograma(long desde) throws IOException {
+        Path ultimo = null;
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(Paths.get("."), "hist_ps_*.hlog")) {
+            for (Path p : archivos) {
+                long modificado = Files.getLastModifiedTime(p).toMillis();
+                if (modificado >= desde && (ultimo == null || modificado > Files.getLastModifiedTime(ultimo).toMillis())) {
+                    ultimo = p;
+                }
+            }
+        }
+        return ultimo;
+    }
+
+    // Serie por segundo desde el inicio de la carga y costo del failover; devuelve las medidas
+    private static long reportar(Path hlog, long inicio, AtomicLongArray eventos) throws IOException, DataFormatException {
+        if (hlog == null) return 0;
+        TreeMap<Long, Histograma> porSegundo = new TreeMap<>();
+        for (String linea : Files.readAllLines(hlog, StandardCharsets.UTF_8)) {
+            if (linea.startsWith("#") || linea.trim().isEmpty()) continue;
+            String[] c = linea.split(",", 4);
+            long segundo = (Long.parseLong(c[0]) - inicio) / 1000;
+            porSegundo.computeIfAbsent(segundo, k -> new Histograma()).sumar(Histograma.decodificar(c[3]));
+        }
+        if (porSegundo.isEmpty()) return 0;
+
+        long caida = eventos.get(0) < 0 ? Long.MAX_VALUE : (eventos.get(0) - inicio) / 1000;
+        long reinicio = eventos.get(1) < 0 ? Long.MAX_VALUE : (eventos.get(1) - inicio) / 1000;
+        Histograma base = new Histograma();
+        long total = 0;
+        System.out.println("Segundo,Solicitudes,P99_ms,Max_ms,Evento");
+        for (long s = porSegundo.firstKey(); s <= porSegundo.lastKey(); s++) {
+            Histograma h = porSegundo.getOrDefault(s, new Histograma());
+            total += h.total();
+            if (s < caida) base.sumar(h);
+            String evento = s == caida ? "caida GA primario" : s == reinicio ? "reinicio GA primario" : "";
+            System.out.println(s + "," + h.total() + "," + ms(h.percentil(99)) + "," + ms(h.maximo()) + "," + evento);
+        }
+
+        if (caida != Long.MAX_VALUE && base.total() > 0) {
+            long p99Base = base.percentil(99);
+            long degradados = 0, peorP99 = 0, peorMax = 0;
+            for (long s = caida; s <= porSegundo.lastKey(); s++) {
+                Histograma h = porSegundo.get(s);
+                long p99 = h == null ? Long.MAX_VALUE : h.percentil(99); // segundo sin respuestas
+                if (p99 > 2 * p99Base) degradados++;
+                if (h != null) {
+                    peorP99 = Math.max(peorP99, p99);
+                    peorMax = Math.max(peorMax, h.maximo());
+                }
+            }
+            System.out.println("Costo del failover: " + degradados + " s con p99 > 2x la base (p99 base "
+                    + ms(p99Base) + " ms, peor p99 " + ms(peorP99) + " ms, máximo " + ms(peorMax) + " ms)");
+        }
+        return total;
+    }
+
+    private static String ms(long us) {
+        return String.format(Locale.ROOT, "%.3f", us / 1000.0);
+    }
+}
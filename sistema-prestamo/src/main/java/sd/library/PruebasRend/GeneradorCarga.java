@@ -0,0 +1,271 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.PruebasRend;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+import com.google.gson.JsonObject;
+
+import sd.library.codec.Codec;
+import sd.library.codec.Codecs;
+import sd.library.model.Request;
+
+/*
+ * Generador de carga en lazo abierto para pruebas de rendimiento
+ *
+ * Diferencias con PSRend (lazo cerrado):
+ * - Las solicitudes salen a una tasa objetivo (-Dps.tasa solicitudes/s), sin esperar la
+ *   respuesta anterior: si el sistema se atrasa, las solicitudes se acumulan en vuelo
+ * - La latencia se mide desde el instante en que la solicitud DEBÍA salir según el
+ *   calendario, no desde que salió: un atraso del propio generador o del GC cuenta como
+ *   espera (sin omisión coordinada)
+ * - Varias solicitudes en vuelo sobre -Dps.conexiones sockets DEALER. Cada solicitud lleva
+ *   su número de secuencia como sobre [seq, vacío, solicitud]; el GC (REP o ROUTER) lo
+ *   devuelve con la respuesta y así se correlaciona
+ *
+ * Propiedades:
+ * - -Dps.tasa (100): solicitudes por segundo
+ * - -Dps.llegadas=poisson|constante (poisson): intervalos exponenciales o fijos
+ * - -Dps.duracionS (120) y -Dps.calentamientoS (10): lo enviado durante el calentamiento
+ *   no se mide
+ * - -Dps.mezcla=PRESTAMO:50,DEVOLUCION:30,RENOVACION:20: peso de cada tipo; las líneas
+ *   del archivo de ese tipo se usan en orden. Sin mezcla se recorre el archivo tal cual
+ * - -Dps.esperaFinalMs (5000): espera de las respuestas en vuelo al terminar
+ * - -Dps.semilla: semilla del calendario Poisson y de la mezcla (repetible)
+ *
+ * Salida:
+ * - hist_ps_<id>.hlog: histogramas por intervalo de la latencia en microsegundos
+ *   (RegistroLatencias, se unen con AnalizadorTiempos)
+ * - count_ps_<id>.txt: solicitudes medidas (compatible con AnalizadorConteo)
+ * - Resumen: enviadas, respondidas, errores, sin respuesta, tasa lograda y percentiles
+ *
+ * Uso:
+ * java GeneradorCarga <ArchivoRequests> <gcHost> <gcPort>
+ */
+public class GeneradorCarga {
+    private static final double TASA = Double.parseDouble(System.getProperty("ps.tasa", "100"));
+    private static final boolean POISSON = System.getProperty("ps.llegadas", "poisson").equalsIgnoreCase("poisson");
+    private static final long DURACION_S = Long.getLong("ps.duracionS", 120);
+    private static final long CALENTAMIENTO_S = Long.getLong("ps.calentamientoS", 10);
+    private static final int CONEXIONES = Integer.getInteger("ps.conexiones", 4);
+    private static final long ESPERA_FINAL_MS = Long.getLong("ps.esperaFinalMs", 5000);
+
+    private static final Codec codec = Codecs.configurado();
+
+    // Solicitudes del archivo a repetir, según la mezcla pedida
+    private static class Mezcla {
+        private final List<byte[]> todas = new ArrayList<>();
+        private final Map<Request.Tipo, List<byte[]>> porTipo = new EnumMap<>(Request.Tipo.class);
+        private final Map<Request.Tipo, Integer> siguiente = new EnumMap<>(Request.Tipo.class);
+        private Request.Tipo[] tipos;
+        private double[] acumulado; // pesos acumulados, null: recorrer el archivo en orden
+        private int posicion = 0;
+
+        Mezcla(List<String> lineas, String pesos) {
+            for (String line : lineas) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split(",");
+                if (parts.length < 2) continue;
+                Request.Tipo t = Request.Tipo.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+                String usuario = parts.length > 2 ? parts[2].trim() : "DESCONOCIDO";
+                byte[] datos = codec.codificarRequest(new Request(t, parts[1].trim(), usuario));
+                todas.add(datos);
+                porTipo.computeIfAbsent(t, k -> new ArrayList<>()).add(datos);
+            }
+            if (todas.isEmpty()) throw new IllegalArgumentException("El archivo no tiene solicitudes");
+            if (pesos == null || pesos.trim().isEmpty()) return;
+
+            List<Request.Tipo> ts = new ArrayList<>();
+            List<Double> ws = new ArrayList<>();
+            for (String par : pesos.split(",")) {
+                String[] p = par.split(":");
+                Request.Tipo t = Request.Tipo.valueOf(p[0].trim().toUpperCase(Locale.ROOT));
+                double w = Double.parseDouble(p[1].trim());
+                if (w <= 0) continue;
+                if (!porTipo.containsKey(t)) throw new IllegalArgumentException("El archivo no tiene solicitudes " + t);
+                ts.add(t);
+                ws.add(w);
+            }
+            tipos = ts.toArray(new Request.Tipo[0]);
+            acumulado = new double[tipos.length];
+            double suma = 0;
+            for (int i = 0; i < tipos.length; i++) acumulado[i] = suma += ws.get(i);
+            for (int i = 0; i < tipos.length; i++) acumulado[i] /= suma;
+        }
+
+        byte[] proxima(Random azar) {
+            if (acumulado == null) return todas.get(posicion++ % todas.size());
+            double u = azar.nextDouble();
+            int i = 0;
+            while (i < tipos.length - 1 && u >= acumulado[i]) i++;
+            List<byte[]> lista = porTipo.get(tipos[i]);
+            int n = siguiente.getOrDefault(tipos[i], 0);
+            siguiente.put(tipos[i], n + 1);
+            return lista.get(n % lista.size());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Uso: java GeneradorCarga <ArchivoRequests> <gcHost> <gcPort>");
+            System.exit(1);
+        }
+        if (TASA <= 0 || CONEXIONES < 1) {
+            System.out.println("ps.tasa y ps.conexiones deben ser positivos");
+            System.exit(1);
+        }
+
+        String file = args[0];
+        String gcHost = args[1];
+        int gcPort = Integer.parseInt(args[2]);
+        String psId = UUID.randomUUID().toString().substring(0, 4);
+        String semilla = System.getProperty("ps.semilla");
+        Random azar = semilla != null ? new Random(Long.parseLong(semilla)) : new Random();
+
+        Mezcla mezcla = new Mezcla(Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8),
+                System.getProperty("ps.mezcla"));
+
+        RegistroLatencias latencias = new RegistroLatencias(psId);
+        Map<Long, Long> enVuelo = new HashMap<>(); // seq -> instante programado (ns)
+        long enviadas = 0, respondidas = 0, errores = 0, maxEnVuelo = 0;
+        long atrasoMax = 0; // mayor atraso del envío respecto al calendario (ns)
+
+        try (ZContext ctx = new ZContext()) {
+            ZMQ.Socket[] sockets = new ZMQ.Socket[CONEXIONES];
+            ZMQ.Poller poller = ctx.createPoller(CONEXIONES);
+            for (int i = 0; i < CONEXIONES; i++) {
+                sockets[i] = ctx.createSocket(SocketType.DEALER);
+                sockets[i].setSndHWM(0); // sin tope: el calendario no se detiene por el GC
+                sockets[i].setRcvHWM(0);
+                sockets[i].connect("tcp://" + gcHost + ":" + gcPort);
+                poller.register(sockets[i], ZMQ.Poller.POLLIN);
+            }
+            System.out.println("PS [" + psId + "] generando " + TASA + " solicitudes/s ("
+                    + (POISSON ? "poisson" : "constante") + ") hacia " + gcHost + ":" + gcPort + " por "
+                    + CONEXIONES + " conexiones, " + DURACION_S + " s + " + CALENTAMIENTO_S + " s de calentamiento");
+
+            long inicio = System.nanoTime();
+            long inicioMedicion = inicio + CALENTAMIENTO_S * 1_000_000_000L;
+            long fin = inicioMedicion + DURACION_S * 1_000_000_000L;
+            long corte = Long.MAX_VALUE; // fin de la espera de las respuestas en vuelo
+            double intervaloNs = 1_000_000_000.0 / TASA;
+            long programada = inicio; // instante en que debe salir la próxima solicitud
+            long seq = 0;
+
+            while (true) {
+                long ahora = System.nanoTime();
+
+                // Enviar todo lo que el calendario ya debía haber enviado
+                while (programada <= ahora && programada < fin) {
+                    seq++;
+                    ZMQ.Socket s = sockets[(int) (seq % CONEXIONES)];
+                    s.send(aBytes(seq), ZMQ.SNDMORE);
+                    s.send(new byte[0], ZMQ.SNDMORE);
+                    s.send(mezcla.proxima(azar), 0);
+                    enVuelo.put(seq, programada);
+                    enviadas++;
+                    atrasoMax = Math.max(atrasoMax, ahora - programada);
+                    double salto = POISSON ? -Math.log(1.0 - azar.nextDouble()) * intervaloNs : intervaloNs;
+                    programada += (long) salto;
+                }
+                maxEnVuelo = Math.max(maxEnVuelo, enVuelo.size());
+
+                if (programada >= fin) {
+                    if (corte == Long.MAX_VALUE) corte = Math.max(ahora, fin) + ESPERA_FINAL_MS * 1_000_000L;
+                    if (enVuelo.isEmpty() || ahora >= corte) break;
+                }
+
+                // Esperar respuestas hasta el próximo envío programado
+                long hasta = programada < fin ? programada : corte;
+                long esperaMs = Math.max(0, (hasta - System.nanoTime()) / 1_000_000);
+                if (poller.poll(esperaMs) < 0) break;
+
+                for (int i = 0; i < CONEXIONES; i++) {
+                    if (!poller.pollin(i)) continue;
+                    // Respuesta: [seq, vacío, resultado]; se vacía todo lo que ya llegó
+                    byte[] marca;
+                    while ((marca = sockets[i].recv(ZMQ.DONTWAIT)) != null) {
+                        sockets[i].recv(); // delimitador
+                        byte[] resp = sockets[i].recv();
+                        long recibida = System.nanoTime();
+                        Long enviada = enVuelo.remove(aLong(marca));
+                        if (enviada == null) continue; // respuesta posterior al corte
+                        respondidas++;
+                        if (enviada < inicioMedicion) continue; // calentamiento
+                        latencias.registrar((recibida - enviada) / 1_000);
+                        JsonObject r = Codecs.detectar(resp).decodificar(resp);
+                        if (r.has("estatus") && r.get("estatus").getAsString().equals("ERROR")) errores++;
+                    }
+                }
+            }
+            System.out.println("PS [" + psId + "] terminó la generación.");
+        }
+
+        // Las que siguen en vuelo tras la espera final no tienen latencia: se reportan aparte
+        long sinRespuesta = enVuelo.size();
+
+        Histograma medidas = latencias.total();
+
+        try {
+            latencias.close();
+            Path timesFile = latencias.archivo();
+            Path countFile = Paths.get("count_ps_" + psId + ".txt");
+            Files.write(countFile, String.valueOf(medidas.total()).getBytes(StandardCharsets.UTF_8));
+
+            System.out.println("PS [" + psId + "] finalizado.");
+            System.out.println("   - Solicitudes enviadas: " + enviadas + " (máximo en vuelo " + maxEnVuelo
+                    + ", atraso máximo del generador " + atrasoMax / 1_000_000 + " ms)");
+            System.out.println("   - Respondidas: " + respondidas + ", medidas con error: " + errores + ", sin respuesta: " + sinRespuesta);
+            System.out.println("   - Medidas: " + medidas.total() + " (tasa lograda "
+                    + String.format(Locale.ROOT, "%.1f", medidas.total() / (double) DURACION_S) + "/s)");
+            if (medidas.total() > 0) {
+                System.out.println("   - Latencia ms: p50=" + percentil(medidas, 50) + " p90=" + percentil(medidas, 90)
+                        + " p99=" + percentil(medidas, 99) + " p99.9=" + percentil(medidas, 99.9)
+                        + " max=" + percentil(medidas, 100));
+            }
+            System.out.println("   - Archivo de tiempos (us): " + timesFile.getFileName());
+            System.out.println("   - Archivo de conteo: " + countFile.getFileName());
+        } catch (IOException e) {
+            System.err.println("Error al guardar resultados: " + e.getMessage());
+        }
+    }
+
+    // Percentil p de las latencias (us), en milisegundos
+    private static String percentil(Histograma h, double p) {
+        return String.format(Locale.ROOT, "%.3f", h.percentil(p) / 1000.0);
+    }
+
+    // Secuencia en el frame de sobre (8 bytes, big endian)
+    private static byte[] aBytes(long v) {
+        byte[] b = new byte[8];
+        for (int i = 7; i >= 0; i--, v >>>= 8) b[i] = (byte) v;
+        return b;
+    }
+
+    private static long aLong(byte[] b) {
+        long v = 0;
+        for (int i = 0; i < b.length; i++) v = (v << 8) | (b[i] & 0xff);
+        return v;
+    }
+}
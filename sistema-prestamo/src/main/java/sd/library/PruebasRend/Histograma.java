@@ -0,0 +1,191 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.PruebasRend;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+ * Histograma de latencias al estilo HDR (valores enteros, en microsegundos)
+ * - Memoria constante: un arreglo de contadores, sin guardar cada medición
+ * - Cubetas log-lineales: exactas hasta 2^BITS y luego 2^BITS cubetas por cada potencia de
+ *   dos, así el error relativo de un percentil es menor a 1/2^BITS (~0.1%)
+ * - Valores mayores a MAXIMO (más de una hora) se cuentan en la última cubeta; el máximo
+ *   real se guarda aparte
+ * - codificar()/decodificar(): forma compacta para los archivos de registro (pares
+ *   índice-contador en varint, comprimidos y en Base64)
+ */
+public class Histograma {
+    private static final int BITS = 10;
+    private static final int SUBCUBETAS = 1 << BITS;
+    private static final long MAXIMO = 1L << 32; // us, ~71 minutos
+    private static final int CUBETAS = indice(MAXIMO - 1) + 1;
+
+    private final long[] contadores = new long[CUBETAS];
+    private long total = 0;
+    private long minimo = Long.MAX_VALUE;
+    private long maximo = 0;
+
+    public void registrar(long valor) {
+        if (valor < 0) valor = 0;
+        contadores[indice(Math.min(valor, MAXIMO - 1))]++;
+        total++;
+        if (valor < minimo) minimo = valor;
+        if (valor > maximo) maximo = valor;
+    }
+
+    //Suma las mediciones de otro histograma (otra instancia u otro intervalo)
+    public void sumar(Histograma otro) {
+        for (int i = 0; i < CUBETAS; i++) contadores[i] += otro.contadores[i];
+        total += otro.total;
+        minimo = Math.min(minimo, otro.minimo);
+        maximo = Math.max(maximo, otro.maximo);
+    }
+
+    public void reiniciar() {
+        Arrays.fill(contadores, 0);
+        total = 0;
+        minimo = Long.MAX_VALUE;
+        maximo = 0;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public long maximo() {
+        return maximo;
+    }
+
+    public long minimo() {
+        return total == 0 ? 0 : minimo;
+    }
+
+    //Valor bajo el cual queda el p% de las mediciones (límite superior de su cubeta)
+    public long percentil(double p) {
+        if (total == 0) return 0;
+        if (p >= 100) return maximo;
+        long objetivo = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += contadores[i];
+            if (acumulado >= objetivo) return Math.min(maximo, superior(i));
+        }
+        return maximo;
+    }
+
+    public double media() {
+        if (total == 0) return 0;
+        double suma = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            if (contadores[i] != 0) suma += contadores[i] * medio(i);
+        }
+        return suma / total;
+    }
+
+    public double desviacion() {
+        if (total == 0) return 0;
+        double media = media();
+        double suma = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            if (contadores[i] != 0) suma += contadores[i] * Math.pow(medio(i) - media, 2);
+        }
+        return Math.sqrt(suma / total);
+    }
+
+    //Contadores no vacíos como pares (salto de índice, contador) en varint, comprimidos y en Base64
+    public String codificar() {
+        ByteArrayOutputStream datos = new ByteArrayOutputStream();
+        escribirVarint(datos, minimo());
+        escribirVarint(datos, maximo);
+        int anterior = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            if (contadores[i] == 0) continue;
+            escribirVarint(datos, i - anterior);
+            escribirVarint(datos, contadores[i]);
+            anterior = i;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(datos.toByteArray());
+        deflater.finish();
+        ByteArrayOutputStream comprimido = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) comprimido.write(buffer, 0, deflater.deflate(buffer));
+        deflater.end();
+        return Base64.getEncoder().encodeToString(comprimido.toByteArray());
+    }
+
+    public static Histograma decodificar(String texto) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(Base64.getDecoder().decode(texto));
+        ByteArrayOutputStream datos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        while (!inflater.finished()) {
+            int n = inflater.inflate(buffer);
+            if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) throw new DataFormatException("Histograma truncado");
+            datos.write(buffer, 0, n);
+        }
+        inflater.end();
+
+        byte[] b = datos.toByteArray();
+        int[] pos = { 0 };
+        Histograma h = new Histograma();
+        long minimo = leerVarint(b, pos);
+        h.maximo = leerVarint(b, pos);
+        int i = 0;
+        while (pos[0] < b.length) {
+            i += (int) leerVarint(b, pos);
+            long n = leerVarint(b, pos);
+            h.contadores[i] += n;
+            h.total += n;
+        }
+        h.minimo = h.total == 0 ? Long.MAX_VALUE : minimo;
+        return h;
+    }
+
+    // Cubeta de un valor: lineal bajo 2^BITS, luego SUBCUBETAS por potencia de dos
+    private static int indice(long valor) {
+        if (valor < SUBCUBETAS) return (int) valor;
+        int desplazamiento = 63 - Long.numberOfLeadingZeros(valor) - BITS;
+        return ((desplazamiento + 1) << BITS) + (int) ((valor >>> desplazamiento) - SUBCUBETAS);
+    }
+
+    private static long inferior(int indice) {
+        if (indice < SUBCUBETAS) return indice;
+        int desplazamiento = (indice >> BITS) - 1;
+        return ((long) ((indice & (SUBCUBETAS - 1)) + SUBCUBETAS)) << desplazamiento;
+    }
+
+    private static long superior(int indice) {
+        return indice < SUBCUBETAS ? indice : inferior(indice) + (1L << ((indice >> BITS) - 1)) - 1;
+    }
+
+    private static double medio(int indice) {
+        return (inferior(indice) + superior(indice)) / 2.0;
+    }
+
+    private static void escribirVarint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long leerVarint(byte[] b, int[] pos) {
+        long v = 0;
+        for (int corrimiento = 0; ; corrimiento += 7) {
+            byte x = b[pos[0]++];
+            v |= (long) (x & 0x7F) << corrimiento;
+            if ((x & 0x80) == 0) return v;
+        }
+    }
+}
@@ -17,7 +17,6 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
@@ -33,9 +32,13 @@ import java.util.UUID;
  * - Ciclo continuo de solicitudes
  * 
  * Metricas medidas:
- * - Tiempo de respuesta por solicitud (nanosegundos → milisegundos)
+ * - Tiempo de respuesta por solicitud en microsegundos, en un Histograma por segundo
+ *   (memoria constante) registrado en hist_ps_<id>.hlog
  * - Cantidad total de solicitudes procesadas
- * - Archivos de salida para análisis posterior
+ * - Archivos de salida para análisis posterior (AnalizadorTiempos, AnalizadorConteo)
+ *
+ * Es de lazo cerrado (una solicitud a la vez): para latencia bajo una tasa de llegada
+ * dada usar GeneradorCarga
  */
 public class PSRend {
     private static final Gson gson = new Gson();
@@ -53,7 +56,7 @@ public class PSRend {
         String psId = UUID.randomUUID().toString().substring(0, 4); // ID único de 4 caracteres
 
         // Estructura para capturar metricas
-        List<Long> tiempos = new ArrayList<>();   // Almacena todos los tiempos de respuesta
+        RegistroLatencias tiempos = new RegistroLatencias(psId); // Histogramas de tiempos de respuesta
         int procesadas = 0;                       // Contador de solicitudes procesadas
         long inicio = System.currentTimeMillis(); // Marca de tiempo inicial
         long duracion = 120_000;                  // Duración total: 2 minutos en milisegundos
@@ -100,8 +103,8 @@ public class PSRend {
                     long t1 = System.nanoTime();  // Timestamp después de recibir
 
                     // Calcula y almacena la metrica
-                    long deltaMs = (t1 - t0) / 1_000_000; // Conversión nanosegundos → milisegundos
-                    tiempos.add(deltaMs);         // Agregar a lista de tiempos
+                    long deltaUs = (t1 - t0) / 1_000; // Conversión nanosegundos → microsegundos
+                    tiempos.registrar(deltaUs);   // Agregar al histograma
                     procesadas++;                 // Incrementar contador
 
                     // Log de Actividad
@@ -119,9 +122,9 @@ public class PSRend {
 
         // Persistencia de resultados
         try {
-            // Archivo de tiempos
-            Path timesFile = Paths.get("times_ps_" + psId + ".csv");
-            Files.write(timesFile, () -> tiempos.stream().<CharSequence>map(Object::toString).iterator());
+            // Archivo de tiempos (último intervalo)
+            tiempos.close();
+            Path timesFile = tiempos.archivo();
 
             // Archivo de conteos
             Path countFile = Paths.get("count_ps_" + psId + ".txt");
@@ -130,6 +133,8 @@ public class PSRend {
             // Reporte final
             System.out.println("PS [" + psId + "] finalizado.");
             System.out.println("   - Solicitudes procesadas: " + procesadas);
+            System.out.println("   - Tiempo de respuesta ms: p50=" + tiempos.total().percentil(50) / 1000.0
+                    + " p99=" + tiempos.total().percentil(99) / 1000.0 + " max=" + tiempos.total().maximo() / 1000.0);
             System.out.println("   - Archivo de tiempos: " + timesFile.getFileName());
             System.out.println("   - Archivo de conteo: " + countFile.getFileName());
         } catch (IOException e) {
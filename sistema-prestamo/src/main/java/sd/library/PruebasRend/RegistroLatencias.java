@@ -0,0 +1,72 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.PruebasRend;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/*
+ * Registro de latencias de una instancia de prueba (PSRend, GeneradorCarga)
+ * - Acumula en un Histograma por intervalo de -Dps.intervaloMs (1000) y uno total
+ * - Al cerrar cada intervalo escribe una línea en hist_ps_<id>.hlog:
+ *     <inicio epoch ms>,<duración ms>,<máximo us>,<histograma codificado>
+ *   AnalizadorTiempos une los archivos de todas las instancias: percentiles del total y
+ *   solicitudes por segundo a lo largo de la prueba
+ */
+public class RegistroLatencias implements AutoCloseable {
+    private static final long INTERVALO_MS = Long.getLong("ps.intervaloMs", 1000);
+
+    private final Path archivo;
+    private final BufferedWriter salida;
+    private final Histograma total = new Histograma();
+    private final Histograma intervalo = new Histograma();
+    private long inicioIntervalo = System.currentTimeMillis();
+
+    public RegistroLatencias(String psId) throws IOException {
+        archivo = Paths.get("hist_ps_" + psId + ".hlog");
+        salida = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8);
+        salida.write("#Latencias en microsegundos de PS [" + psId + "], un histograma cada " + INTERVALO_MS + " ms\n");
+        salida.write("#inicio_ms,duracion_ms,maximo_us,histograma\n");
+    }
+
+    //Una medición en microsegundos
+    public void registrar(long us) throws IOException {
+        long ahora = System.currentTimeMillis();
+        if (ahora - inicioIntervalo >= INTERVALO_MS) cerrarIntervalo(ahora);
+        intervalo.registrar(us);
+        total.registrar(us);
+    }
+
+    public Histograma total() {
+        return total;
+    }
+
+    public Path archivo() {
+        return archivo;
+    }
+
+    // Escribe el intervalo en curso (si tiene mediciones) y salta al que contiene 'ahora'
+    private void cerrarIntervalo(long ahora) throws IOException {
+        long duracion = Math.min(INTERVALO_MS, ahora - inicioIntervalo);
+        if (intervalo.total() > 0) {
+            salida.write(inicioIntervalo + "," + duracion + "," + intervalo.maximo() + ","
+                    + intervalo.codificar() + "\n");
+            intervalo.reiniciar();
+        }
+        inicioIntervalo += Math.max(1, (ahora - inicioIntervalo) / INTERVALO_MS) * INTERVALO_MS;
+    }
+
+    @Override
+    public void close() throws IOException {
+        cerrarIntervalo(System.currentTimeMillis());
+        salida.close();
+    }
+}
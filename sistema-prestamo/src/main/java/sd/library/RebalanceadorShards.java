@@ -0,0 +1,131 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/*
+ * Mueve libros entre shards del GA cuando cambia la lista de shards
+ * - Pide a cada primario actual sus ISBN (LISTAR_ISBN)
+ * - Calcula el dueño de cada ISBN en el anillo nuevo
+ * - Copia al nuevo dueño (GET_LIBRO + APLICAR_LOTE con la copia y su versión) y luego lo elimina del origen con
+ *   ELIMINAR_LIBRO condicional a la versión copiada. Si un actor escribió en el origen entre
+ *   la copia y el borrado, el origen responde CONFLICT con el libro nuevo y se copia otra vez:
+ *   ninguna escritura aceptada por el origen se pierde
+ * - Mientras los actores no se reinicien (paso 3) siguen escribiendo al origen; después del
+ *   borrado esas escrituras fallan con "Libro no encontrado" (el cliente ve el error)
+ * - Cada primario replica los cambios a su secundario como cualquier otra escritura
+ *
+ * Procedimiento al agregar un shard:
+ * 1. Levantar el nuevo par GA primario/secundario con inventario vacío
+ * 2. Ejecutar este proceso con la lista actual y la lista nueva
+ * 3. Reiniciar los actores con la lista nueva en -Dga.shards
+ *
+ * Uso:
+ * java RebalanceadorShards <shardsActuales> <shardsNuevos>
+ *   (formato "hostP:puertoP/hostS:puertoS,hostP:puertoP/hostS:puertoS")
+ */
+public class RebalanceadorShards {
+    private static final int TIMEOUT_MS = 5000;
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Uso: java RebalanceadorShards <shardsActuales> <shardsNuevos>");
+            System.exit(1);
+        }
+
+        List<String[]> actuales = ClienteGA.parsearShards(args[0]);
+        List<String[]> nuevos = ClienteGA.parsearShards(args[1]);
+
+        // Mismo anillo que construyen los actores con la lista nueva
+        AnilloConsistente<String> anillo = new AnilloConsistente<>(ClienteGA.NODOS_VIRTUALES);
+        for (String[] d : nuevos) anillo.agregar(d[0] + ":" + d[1], d[0] + ":" + d[1]);
+
+        int movidos = 0;
+        try (ZContext ctx = new ZContext()) {
+            Map<String, ZMQ.Socket> sockets = new HashMap<>();
+
+            for (String[] d : actuales) {
+                String origen = d[0] + ":" + d[1];
+                ZMQ.Socket so = socketPara(ctx, sockets, origen);
+
+                JsonObject listar = new JsonObject();
+                listar.addProperty("type", "LISTAR_ISBN");
+                JsonObject lista = solicitar(so, listar);
+                int n = lista.getAsJsonArray("isbns").size();
+                Log.info("Shard {}: {} libros", origen, n);
+
+                for (JsonElement e : lista.getAsJsonArray("isbns")) {
+                    String isbn = e.getAsString();
+                    String destino = anillo.nodoPara(isbn);
+                    if (destino.equals(origen)) continue;
+
+                    JsonObject get = new JsonObject();
+                    get.addProperty("type", "GET_LIBRO");
+                    get.addProperty("isbn", isbn);
+                    JsonObject libro = solicitar(so, get);
+                    if (!"OK".equals(libro.get("estatus").getAsString())) continue; // eliminado mientras tanto
+
+                    JsonObject estado = libro.getAsJsonObject("libro");
+                    while (true) {
+                        JsonObject copia = solicitar(socketPara(ctx, sockets, destino), ProcesadorGA.loteCopia(estado));
+                        if (!"OK".equals(copia.get("estatus").getAsString())) {
+                            throw new IllegalStateException("El shard " + destino + " rechazó " + isbn + ": " + copia);
+                        }
+
+                        JsonObject eliminar = new JsonObject();
+                        eliminar.addProperty("type", "ELIMINAR_LIBRO");
+                        eliminar.addProperty("isbn", isbn);
+                        eliminar.addProperty("versionEsperada", estado.get("version").getAsLong());
+                        JsonObject borrado = solicitar(so, eliminar);
+                        if ("OK".equals(borrado.get("estatus").getAsString())) break;
+                        if (!"CONFLICT".equals(borrado.get("estatus").getAsString())) {
+                            throw new IllegalStateException("El shard " + origen + " no eliminó " + isbn + ": " + borrado);
+                        }
+                        estado = borrado.getAsJsonObject("libro"); // escrito durante la copia: copiar de nuevo
+                        Log.info("ISBN {} cambió durante la copia, se copia la versión {}", isbn, estado.get("version"));
+                    }
+                    movidos++;
+                    Log.info("ISBN {}: {} -> {}", isbn, origen, destino);
+                }
+            }
+        } catch (IllegalStateException e) {
+            Log.aviso("Rebalanceo interrumpido: {}", e.getMessage());
+            Log.aviso("Libros movidos antes del error: {} (se puede volver a ejecutar)", movidos);
+            System.exit(2);
+        }
+        Log.info("Rebalanceo terminado. Libros movidos: {}", movidos);
+    }
+
+    private static ZMQ.Socket socketPara(ZContext ctx, Map<String, ZMQ.Socket> sockets, String nodo) {
+        ZMQ.Socket s = sockets.get(nodo);
+        if (s == null) {
+            s = ctx.createSocket(SocketType.REQ);
+            s.setReceiveTimeOut(TIMEOUT_MS);
+            s.connect("tcp://" + nodo);
+            sockets.put(nodo, s);
+        }
+        return s;
+    }
+
+    private static JsonObject solicitar(ZMQ.Socket s, JsonObject peticion) {
+        s.send(peticion.toString());
+        String resp = s.recvStr();
+        if (resp == null) throw new IllegalStateException("GA sin respuesta para " + peticion);
+        return JsonParser.parseString(resp).getAsJsonObject();
+    }
+}
@@ -0,0 +1,216 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+import org.zeromq.ZMQException;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/*
+ * Puesta al día del GA secundario contra su primario (propiedad -Dga.primario=host:puerto)
+ * - Al arrancar, al ver un cambio de época en el flujo o si queda un hueco que el flujo no
+ *   llena, reporta su posición con PONERSE_AL_DIA {epoca, seq}
+ * - Si el primario aún tiene ese tramo en su log responde las escrituras que faltan
+ *   (por páginas de -Dga.paginaRecuperacion); el costo depende del tamaño del hueco
+ * - Si no (otra época o hueco más viejo que el log) se copia el inventario con SNAPSHOT
+ *   por páginas. La primera página trae la secuencia del primario al tomarlo: lo anterior
+ *   está en la copia y lo posterior llega por el flujo normal de REPLICAR
+ * - Todo se aplica por versión (ProcesadorGA.aplicarReplica), así convive con el flujo en vivo
+ * - Cada página se hace durable junto con la nueva posición antes de pedir la siguiente
+ * - En el otro sentido reenvía el DiarioResync (escrituras de failover) en lotes APLICAR_LOTE
+ *   de -Dga.loteResync entradas, seguidos mientras el primario responda
+ */
+public class RecuperacionGA implements Runnable {
+    private static final int PAGINA = Integer.getInteger("ga.paginaRecuperacion", 1000);
+    private static final int LOTE_RESYNC = Integer.getInteger("ga.loteResync", 500);
+    private static final int TIMEOUT_MS = 5000;
+    private static final long REVISION_MS = 2000;
+
+    private static final Metricas.Contador REENVIADAS = Metricas.contador("ga_resync_reenviadas");
+    private static final Metricas.Contador RECUPERADAS = Metricas.contador("ga_recuperadas_log");
+    private static final Metricas.Contador SNAPSHOTS = Metricas.contador("ga_snapshots_copiados");
+
+    private final ZContext ctx;
+    private final ProcesadorGA procesador;
+    private final String primario;
+
+    public RecuperacionGA(ZContext ctx, ProcesadorGA procesador, String primario) {
+        this.ctx = ctx;
+        this.procesador = procesador;
+        this.primario = primario;
+    }
+
+    @Override
+    public void run() {
+        PosicionReplica posicion = procesador.getPosicion();
+        boolean pendiente = true; // al arrancar siempre se consulta
+        long huecoAnterior = -1;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // Un hueco que sigue igual tras una revisión no es solo desorden entre hilos
+                long hueco = posicion.hueco();
+                if (posicion.tomarCambioDeEpoca() || hueco >= 0 && hueco == huecoAnterior) pendiente = true;
+                huecoAnterior = hueco;
+
+                DiarioResync diario = procesador.getDiario();
+                try {
+                    if (diario != null && diario.pendientes() > 0) reenviarDiario(diario);
+                    if (pendiente) pendiente = !ponerseAlDia();
+                } catch (IOException e) {
+                    Log.error("GA falló al recuperarse con {}", e, primario);
+                }
+                Thread.sleep(REVISION_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ZMQException e) {
+            // contexto cerrado
+        }
+    }
+
+    //Devuelve al primario las escrituras de failover; false si no respondió o rechazó un lote
+    private boolean reenviarDiario(DiarioResync diario) throws IOException {
+        ZMQ.Socket req = conectar();
+        try {
+            int reenviadas = 0;
+            while (true) {
+                List<String> lote = diario.tomar(LOTE_RESYNC);
+                if (lote.isEmpty()) break;
+                JsonArray ops = new JsonArray(lote.size());
+                for (String op : lote) ops.add(JsonParser.parseString(op));
+                JsonObject pedido = new JsonObject();
+                pedido.addProperty("type", "APLICAR_LOTE");
+                pedido.add("ops", ops);
+                JsonObject resp = pedir(req, pedido);
+                if (resp == null) return false;
+                if (!resp.get("estatus").getAsString().equals("OK")) {
+                    Log.aviso("GA primario {} rechazó el lote de resync: {}", primario, resp);
+                    return false;
+                }
+                diario.confirmar(lote.size());
+                REENVIADAS.sumar(lote.size());
+                reenviadas += lote.size();
+            }
+            if (reenviadas > 0) Log.info("GA reenvió {} escrituras de failover a {}", reenviadas, primario);
+            return true;
+        } finally {
+            req.close();
+        }
+    }
+
+    //Una ronda completa de recuperación; false si el primario no respondió
+    private boolean ponerseAlDia() throws IOException {
+        ZMQ.Socket req = conectar();
+        try {
+            long aplicadas = 0;
+            while (true) {
+                long[] pos = procesador.getPosicion().actual();
+                JsonObject pedido = new JsonObject();
+                pedido.addProperty("type", "PONERSE_AL_DIA");
+                pedido.addProperty("epoca", pos[0]);
+                pedido.addProperty("seq", pos[1]);
+                pedido.addProperty("limite", PAGINA);
+                JsonObject resp = pedir(req, pedido);
+                if (resp == null) return false;
+
+                if (resp.get("estatus").getAsString().equals("SNAPSHOT")) return copiarSnapshot(req);
+
+                long epoca = resp.get("epoca").getAsLong();
+                for (JsonElement e : resp.getAsJsonArray("ops")) {
+                    JsonObject entrada = e.getAsJsonObject();
+                    procesador.aplicarReplica(entrada.getAsJsonObject("op"));
+                    procesador.getPosicion().registrar(epoca, entrada.get("seq").getAsLong());
+                    aplicadas++;
+                    RECUPERADAS.sumar();
+                }
+                procesador.sincronizar();
+                if (resp.get("fin").getAsBoolean()) {
+                    long[] fin = procesador.getPosicion().actual();
+                    Log.info("GA al día con {}: {} escrituras recuperadas del log (secuencia {})", primario, aplicadas, fin[1]);
+                    return true;
+                }
+            }
+        } finally {
+            req.close();
+        }
+    }
+
+    //Copia el inventario del primario por páginas
+    private boolean copiarSnapshot(ZMQ.Socket req) throws IOException {
+        long inicio = System.currentTimeMillis();
+        Set<String> previos = procesador.iniciarCopia();
+        boolean completa = false;
+        try {
+            JsonObject pedido = new JsonObject();
+            pedido.addProperty("type", "SNAPSHOT");
+            pedido.addProperty("desde", 0);
+            pedido.addProperty("limite", PAGINA);
+            JsonObject resp = pedir(req, pedido);
+            if (resp == null || !resp.get("estatus").getAsString().equals("OK")) return false;
+            long epoca = resp.get("epoca").getAsLong();
+            long seq = resp.get("seq").getAsLong();
+            int total = resp.get("total").getAsInt();
+            pedido.add("sesion", resp.get("sesion"));
+
+            int copiados = 0;
+            int paginas = 0;
+            while (true) {
+                for (JsonElement libro : resp.getAsJsonArray("libros")) {
+                    procesador.aplicarReplica(ProcesadorGA.updateCopia(libro.getAsJsonObject()));
+                    copiados++;
+                }
+                paginas++;
+                procesador.sincronizar();
+                if (resp.get("fin").getAsBoolean()) break;
+
+                pedido.add("desde", resp.get("siguiente"));
+                resp = pedir(req, pedido);
+                if (resp == null || !resp.get("estatus").getAsString().equals("OK")) return false;
+            }
+
+            int eliminados = procesador.terminarCopia(previos);
+            completa = true;
+            procesador.getPosicion().fijar(epoca, seq);
+            procesador.sincronizar();
+            SNAPSHOTS.sumar();
+            Log.info("GA copió snapshot de {}: {}/{} libros en {} páginas, {} eliminados, secuencia {} ({} ms)",
+                    primario, copiados, total, paginas, eliminados, seq, System.currentTimeMillis() - inicio);
+            return true;
+        } finally {
+            if (!completa) procesador.terminarCopia(Collections.<String>emptySet()); // se reintenta completa
+        }
+    }
+
+    private ZMQ.Socket conectar() {
+        ZMQ.Socket req = ctx.createSocket(SocketType.REQ);
+        req.setLinger(0);
+        req.setReceiveTimeOut(TIMEOUT_MS);
+        req.connect("tcp://" + primario);
+        return req;
+    }
+
+    private JsonObject pedir(ZMQ.Socket req, JsonObject pedido) {
+        req.send(pedido.toString());
+        String resp = req.recvStr();
+        if (resp == null) {
+            Log.aviso("GA sin respuesta de {} para {}, se reintenta en {} ms", primario, pedido.get("type").getAsString(), REVISION_MS);
+            return null;
+        }
+        return JsonParser.parseString(resp).getAsJsonObject();
+    }
+}
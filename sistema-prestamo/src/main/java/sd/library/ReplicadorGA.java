@@ -0,0 +1,193 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.util.ArrayDeque;
+
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/*
+ * Flujo de replicación del GA primario hacia el secundario
+ * - DEALER conectado al ROUTER del secundario: las escrituras durables se envían en
+ *   orden como {"type":"REPLICAR","seq":n,"op":{...}} sin esperar respuesta (pipeline)
+ * - El secundario confirma posiciones: "recibido" al leer el mensaje (su bucle o su proxy
+ *   con -Dga.hilos) y "aplicado" cuando el cambio es durable en su disco
+ * - Lo usa un solo hilo (bucle del GA o CommitGrupal), dueño del socket
+ *
+ * Durabilidad (propiedad -Dga.replicacion), esperar() se llama una vez por lote:
+ * - sync (por defecto): el cliente recibe respuesta cuando el secundario aplicó el lote
+ * - semisync: basta con que el secundario lo haya recibido
+ * - async: no se espera; el rezago se reporta en las métricas
+ * Si el secundario no confirma en -Dga.replicaTimeoutMs, o el envío no cabe en la cola del
+ * DEALER, se pasa a modo asíncrono hasta que se ponga al día, así una réplica caída no cuesta
+ * el timeout en cada escritura ni bloquea al hilo que replica.
+ *
+ * Recuperación del secundario:
+ * - epoca distingue cada ejecución del primario (las secuencias reinician en 1)
+ * - Las últimas -Dga.logReplicacion escrituras quedan en un log circular en memoria;
+ *   tramo() entrega las posteriores a la posición que reporta un secundario reiniciado,
+ *   o indica que necesita un snapshot si la época no coincide o el hueco ya salió del log
+ * - tramo() lo llaman los hilos que atienden peticiones: el log tiene su propio lock
+ */
+public class ReplicadorGA {
+    private static final String MODO = System.getProperty("ga.replicacion", "sync");
+    private static final long TIMEOUT_MS = Long.getLong("ga.replicaTimeoutMs", 2000L);
+    private static final long METRICAS_MS = 10_000;
+    private static final int MAX_EN_VUELO = 100_000; // marcas de tiempo guardadas para medir rezago
+    private static final int LOG_MAX = Integer.getInteger("ga.logReplicacion", 100_000);
+
+    private final ZMQ.Socket dealer;
+    private final String destino;
+    private final boolean esperaAplicado;
+    private final boolean esperaRecibido;
+
+    private final long epoca = System.currentTimeMillis();
+    private final String[] log = new String[LOG_MAX]; // escritura seq en log[seq % LOG_MAX]
+    private long enviada = 0;    // última secuencia enviada (escrita bajo el lock del log)
+    private long recibida = 0;   // última confirmada como recibida
+    private long aplicada = 0;   // última confirmada como durable en el secundario
+    private boolean degradado = false;
+
+    // { seq, instante de envío } de lo no aplicado, para el rezago en ms
+    private final ArrayDeque<long[]> enVuelo = new ArrayDeque<>();
+    private long ultimoRezagoMs = 0;
+    private long proximasMetricas = System.currentTimeMillis() + METRICAS_MS;
+
+    public ReplicadorGA(ZContext ctx, String host, int port) {
+        this.destino = host + ":" + port;
+        this.esperaAplicado = MODO.equalsIgnoreCase("sync");
+        this.esperaRecibido = MODO.equalsIgnoreCase("semisync");
+        dealer = ctx.createSocket(SocketType.DEALER);
+        dealer.setSndHWM(MAX_EN_VUELO);
+        dealer.setLinger(0);
+        dealer.connect("tcp://" + destino);
+        Log.info("GA replicando ({}) hacia {}", MODO, destino);
+    }
+
+    //Envía una escritura durable al secundario sin bloquear; retorna su secuencia
+    public long enviar(String replica) {
+        long seq;
+        synchronized (log) {
+            seq = ++enviada;
+            log[(int) (seq % LOG_MAX)] = replica;
+        }
+        String msg = "{\"type\":\"REPLICAR\",\"epoca\":" + epoca + ",\"seq\":" + seq + ",\"op\":" + replica + "}";
+        // Delimitador (como lo haría un REQ) sin bloquear: con la cola llena o el secundario sin
+        // conexión no se envía nada; el hueco lo llena su puesta al día (PONERSE_AL_DIA)
+        if (!dealer.send("", ZMQ.SNDMORE | ZMQ.DONTWAIT) || !dealer.send(msg, ZMQ.DONTWAIT)) {
+            if (!degradado) Log.aviso("Réplica {} saturada desde la secuencia {}, se continúa en modo asíncrono", destino, seq);
+            degradado = true;
+        }
+        if (enVuelo.size() >= MAX_EN_VUELO) enVuelo.poll();
+        enVuelo.add(new long[] { seq, System.currentTimeMillis() });
+        return seq;
+    }
+
+    //Posición actual del flujo { epoca, última secuencia enviada } (para snapshots)
+    public long[] posicion() {
+        synchronized (log) {
+            return new long[] { epoca, enviada };
+        }
+    }
+
+    //Escrituras posteriores a desde (hasta max) para un secundario que se pone al día
+    public JsonObject tramo(long epocaSecundario, long desde, int max) {
+        JsonObject resp = new JsonObject();
+        synchronized (log) {
+            long primera = Math.max(1, enviada - LOG_MAX + 1); // la más antigua que sigue en el log
+            if (epocaSecundario != epoca || desde > enviada || desde + 1 < primera) {
+                resp.addProperty("estatus", "SNAPSHOT");
+                return resp;
+            }
+            long hasta = Math.min(enviada, desde + max);
+            JsonArray ops = new JsonArray((int) (hasta - desde));
+            for (long seq = desde + 1; seq <= hasta; seq++) {
+                JsonObject entrada = new JsonObject();
+                entrada.addProperty("seq", seq);
+                entrada.add("op", JsonParser.parseString(log[(int) (seq % LOG_MAX)]));
+                ops.add(entrada);
+            }
+            resp.addProperty("estatus", "OK");
+            resp.addProperty("epoca", epoca);
+            resp.add("ops", ops);
+            resp.addProperty("fin", hasta == enviada);
+        }
+        return resp;
+    }
+
+    //Espera (según el modo) la confirmación de todo lo enviado hasta seq
+    public void esperar(long seq) {
+        drenar(0);
+        if (degradado || !(esperaAplicado || esperaRecibido)) {
+            reportar();
+            return;
+        }
+        long limite = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!confirmada(seq)) {
+            long resta = limite - System.currentTimeMillis();
+            if (resta <= 0) {
+                degradado = true;
+                Log.aviso("Réplica {} no confirmó la secuencia {}, se continúa en modo asíncrono hasta que se ponga al día",
+                        destino, seq);
+                break;
+            }
+            drenar(resta);
+        }
+        reportar();
+    }
+
+    private boolean confirmada(long seq) {
+        return esperaAplicado ? aplicada >= seq : recibida >= seq;
+    }
+
+    // Lee las confirmaciones disponibles; espera hasta esperaMs por la primera
+    private void drenar(long esperaMs) {
+        dealer.setReceiveTimeOut((int) esperaMs);
+        while (true) {
+            String delimitador = dealer.recvStr();
+            if (delimitador == null) return;
+            String cuerpo = dealer.recvStr();
+            dealer.setReceiveTimeOut(0);
+            if (cuerpo == null) return;
+
+            JsonObject ack = JsonParser.parseString(cuerpo).getAsJsonObject();
+            if (!ack.has("seq")) continue;
+            long seq = ack.get("seq").getAsLong();
+            recibida = Math.max(recibida, seq);
+            if (ack.has("estatus")) { // respuesta final: aplicada y durable
+                if (!ack.get("estatus").getAsString().equals("OK")) {
+                    Log.aviso("Réplica rechazó la secuencia {}: {}", seq, cuerpo);
+                }
+                aplicada = Math.max(aplicada, seq);
+                long ahora = System.currentTimeMillis();
+                while (!enVuelo.isEmpty() && enVuelo.peek()[0] <= seq) ultimoRezagoMs = ahora - enVuelo.poll()[1];
+            }
+        }
+    }
+
+    private void reportar() {
+        if (degradado && aplicada >= enviada) {
+            degradado = false;
+            Log.info("Réplica {} al día, se retoma el modo {}", destino, MODO);
+        }
+        long ahora = System.currentTimeMillis();
+        if (ahora < proximasMetricas) return;
+        proximasMetricas = ahora + METRICAS_MS;
+        Log.info("{}", metricas());
+    }
+
+    public String metricas() {
+        return "[Replicación " + destino + "] época=" + epoca + " enviada=" + enviada + " recibida=" + recibida + " aplicada=" + aplicada
+                + " rezago=" + (enviada - aplicada) + " ops (" + ultimoRezagoMs + " ms)" + (degradado ? " degradada" : "");
+    }
+}
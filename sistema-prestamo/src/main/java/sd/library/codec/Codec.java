@@ -0,0 +1,36 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.codec;
+
+import com.google.gson.JsonObject;
+
+import sd.library.model.Request;
+
+/*
+ * Formato de los mensajes entre PS, GC, actores y GA
+ * - Sobres (peticiones/respuestas del GA, resultados de actores): JsonObject, o directo a
+ *   una clase con los campos que interesan (p. ej. la respuesta del GA con su Libro)
+ * - Solicitudes del PS: Request con ruta tipada (sin árbol intermedio)
+ *
+ * Implementaciones en Codecs: JSON (texto, para depurar) y BINARIO (compacto).
+ * Cada mensaje se decodifica con Codecs.detectar() y se responde con el mismo codec,
+ * así un nodo atiende a la vez clientes JSON y binarios.
+ */
+public interface Codec {
+    String nombre();
+
+    byte[] codificar(JsonObject msg);
+
+    JsonObject decodificar(byte[] datos);
+
+    //Sobre leído directo al tipo (sin árbol intermedio); los campos que el tipo no tiene se ignoran
+    <T> T decodificar(byte[] datos, Class<T> tipo);
+
+    byte[] codificarRequest(Request req);
+
+    Request decodificarRequest(byte[] datos);
+}
@@ -0,0 +1,718 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.codec;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import sd.library.model.Request;
+
+/*
+ * Formato binario compacto con prefijos de longitud
+ *
+ * Cabecera: MAGIA (0xB1) + clase de mensaje ('O' sobre, 'R' Request)
+ *
+ * Sobre: árbol etiquetado
+ * - etiqueta de 1 byte por valor: null, true, false, entero (varint zigzag), double (8 bytes),
+ *   texto (varint longitud + UTF-8), palabra del diccionario (varint índice), arreglo y objeto
+ *   (varint cantidad + elementos), libro
+ * - claves: varint 0 + texto, o índice+1 en PALABRAS (las claves habituales ocupan 1 byte)
+ * - libro: un objeto "libro" con la forma de Libro se escribe con layout fijo, sin nombres
+ *   de campo: isbn, titulo, copiasDisponibles, version, prestadoA, renovaciones, fechaLim
+ *
+ * Request: tipo (ordinal, 0xFF si no hay) + isbn, usuario, id (textos anulables)
+ *
+ * Lectura: decodificar(datos, tipo) entrega el sobre directo al tipo pedido a través de
+ * LectorBinario (un libro llega a Libro sin pasar por JsonObject). Toda longitud se revisa
+ * contra lo que queda del mensaje: uno truncado o mal formado da IllegalArgumentException.
+ *
+ * PALABRAS solo admite agregar al final: los índices son parte del formato.
+ */
+class CodecBinario implements Codec {
+    static final byte MAGIA = (byte) 0xB1;
+    private static final byte SOBRE = 'O';
+    private static final byte REQUEST = 'R';
+
+    private static final byte T_NULL = 0;
+    private static final byte T_TRUE = 1;
+    private static final byte T_FALSE = 2;
+    private static final byte T_ENTERO = 3;
+    private static final byte T_DOUBLE = 4;
+    private static final byte T_TEXTO = 5;
+    private static final byte T_PALABRA = 6;
+    private static final byte T_ARREGLO = 7;
+    private static final byte T_OBJETO = 8;
+    private static final byte T_LIBRO = 9;
+
+    private static final String[] PALABRAS = {
+        "type", "isbn", "usuario", "id", "estatus", "mensaje", "libro", "version",
+        "versionEsperada", "isbns", "titulo", "copiasDisponibles", "prestadoA", "renovaciones", "fechaLim",
+        "OK", "ERROR", "CONFLICT", "GET_LIBRO", "UPDATE_LIBRO", "LISTAR_ISBN", "ELIMINAR_LIBRO",
+        "PRESTAR", "DEVOLVER", "RENOVAR"
+    };
+    private static final Map<String, Integer> INDICE = new HashMap<>();
+    static {
+        for (int i = 0; i < PALABRAS.length; i++) INDICE.put(PALABRAS[i], i);
+    }
+
+    private static final Request.Tipo[] TIPOS = Request.Tipo.values();
+    private static final Gson gson = new Gson();
+
+    @Override
+    public String nombre() { return "binario"; }
+
+    @Override
+    public byte[] codificar(JsonObject msg) {
+        Salida s = new Salida(128);
+        s.byte_(MAGIA);
+        s.byte_(SOBRE);
+        escribirObjeto(s, msg);
+        return s.bytes();
+    }
+
+    @Override
+    public JsonObject decodificar(byte[] datos) {
+        return decodificar(datos, JsonObject.class);
+    }
+
+    @Override
+    public <T> T decodificar(byte[] datos, Class<T> tipo) {
+        Entrada e = new Entrada(datos);
+        e.cabecera(SOBRE);
+        if (e.mirar() != T_OBJETO) throw new IllegalArgumentException("Mensaje binario inválido: el sobre no es un objeto");
+        try {
+            T valor = gson.getAdapter(tipo).read(new LectorBinario(e));
+            e.fin();
+            return valor;
+        } catch (IOException | IllegalStateException ex) {
+            throw new IllegalArgumentException("Mensaje binario inválido: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public byte[] codificarRequest(Request req) {
+        Salida s = new Salida(48);
+        s.byte_(MAGIA);
+        s.byte_(REQUEST);
+        s.byte_(req.getTipo() == null ? (byte) 0xFF : (byte) req.getTipo().ordinal());
+        s.textoAnulable(req.getIsbn());
+        s.textoAnulable(req.getUsuario());
+        s.textoAnulable(req.getId());
+        return s.bytes();
+    }
+
+    @Override
+    public Request decodificarRequest(byte[] datos) {
+        Entrada e = new Entrada(datos);
+        e.cabecera(REQUEST);
+        int tipo = e.byte_() & 0xFF;
+        if (tipo != 0xFF && tipo >= TIPOS.length) throw new IllegalArgumentException("Tipo de Request binario desconocido: " + tipo);
+        Request req = new Request(tipo == 0xFF ? null : TIPOS[tipo], e.textoAnulable(), e.textoAnulable());
+        req.setId(e.textoAnulable());
+        e.fin();
+        return req;
+    }
+
+    // ---- Escritura ----
+
+    private static void escribir(Salida s, JsonElement v) {
+        if (v == null || v.isJsonNull()) {
+            s.byte_(T_NULL);
+        } else if (v.isJsonObject()) {
+            escribirObjeto(s, v.getAsJsonObject());
+        } else if (v.isJsonArray()) {
+            JsonArray a = v.getAsJsonArray();
+            s.byte_(T_ARREGLO);
+            s.varint(a.size());
+            for (JsonElement x : a) escribir(s, x);
+        } else {
+            JsonPrimitive p = v.getAsJsonPrimitive();
+            if (p.isBoolean()) {
+                s.byte_(p.getAsBoolean() ? T_TRUE : T_FALSE);
+            } else if (p.isNumber()) {
+                escribirNumero(s, p);
+            } else {
+                String texto = p.getAsString();
+                Integer i = INDICE.get(texto);
+                if (i != null) {
+                    s.byte_(T_PALABRA);
+                    s.varint(i);
+                } else {
+                    s.byte_(T_TEXTO);
+                    s.texto(texto);
+                }
+            }
+        }
+    }
+
+    private static void escribirNumero(Salida s, JsonPrimitive p) {
+        Number n = p.getAsNumber();
+        if (n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte) {
+            s.byte_(T_ENTERO);
+            s.zigzag(n.longValue());
+            return;
+        }
+        if (!(n instanceof Double || n instanceof Float)) {
+            // número leído de JSON (LazilyParsedNumber): entero si su texto lo es
+            try {
+                long l = Long.parseLong(n.toString());
+                s.byte_(T_ENTERO);
+                s.zigzag(l);
+                return;
+            } catch (NumberFormatException ignored) {
+                // no es entero
+            }
+        }
+        s.byte_(T_DOUBLE);
+        s.long_(Double.doubleToRawLongBits(n.doubleValue()));
+    }
+
+    private static void escribirObjeto(Salida s, JsonObject o) {
+        s.byte_(T_OBJETO);
+        s.varint(o.size());
+        for (Map.Entry<String, JsonElement> e : o.entrySet()) {
+            escribirClave(s, e.getKey());
+            JsonElement v = e.getValue();
+            if (e.getKey().equals("libro") && v.isJsonObject() && formaDeLibro(v.getAsJsonObject())) {
+                escribirLibro(s, v.getAsJsonObject());
+            } else {
+                escribir(s, v);
+            }
+        }
+    }
+
+    private static void escribirClave(Salida s, String clave) {
+        Integer i = INDICE.get(clave);
+        if (i != null) {
+            s.varint(i + 1);
+        } else {
+            s.varint(0);
+            s.texto(clave);
+        }
+    }
+
+    //true si el objeto tiene solo campos de Libro con sus tipos (se puede escribir con layout fijo)
+    private static boolean formaDeLibro(JsonObject o) {
+        for (Map.Entry<String, JsonElement> e : o.entrySet()) {
+            JsonElement v = e.getValue();
+            switch (e.getKey()) {
+                case "isbn":
+                case "titulo":
+                    if (!v.isJsonNull() && !(v.isJsonPrimitive() && v.getAsJsonPrimitive().isString())) return false;
+                    break;
+                case "copiasDisponibles":
+                case "version":
+                    if (!(v.isJsonPrimitive() && v.getAsJsonPrimitive().isNumber())) return false;
+                    break;
+                case "prestadoA":
+                    if (!v.isJsonArray()) return false;
+                    for (JsonElement x : v.getAsJsonArray()) {
+                        if (!(x.isJsonPrimitive() && x.getAsJsonPrimitive().isString())) return false;
+                    }
+                    break;
+                case "renovaciones":
+                    if (!v.isJsonObject()) return false;
+                    for (Map.Entry<String, JsonElement> x : v.getAsJsonObject().entrySet()) {
+                        if (!(x.getValue().isJsonPrimitive() && x.getValue().getAsJsonPrimitive().isNumber())) return false;
+                    }
+                    break;
+                case "fechaLim":
+                    if (!v.isJsonObject()) return false;
+                    for (Map.Entry<String, JsonElement> x : v.getAsJsonObject().entrySet()) {
+                        if (!(x.getValue().isJsonPrimitive() && x.getValue().getAsJsonPrimitive().isString())) return false;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static void escribirLibro(Salida s, JsonObject l) {
+        s.byte_(T_LIBRO);
+        s.textoAnulable(l.has("isbn") && !l.get("isbn").isJsonNull() ? l.get("isbn").getAsString() : null);
+        s.textoAnulable(l.has("titulo") && !l.get("titulo").isJsonNull() ? l.get("titulo").getAsString() : null);
+        s.zigzag(l.has("copiasDisponibles") ? l.get("copiasDisponibles").getAsLong() : 0);
+        s.zigzag(l.has("version") ? l.get("version").getAsLong() : 0);
+
+        JsonArray prestadoA = l.has("prestadoA") ? l.getAsJsonArray("prestadoA") : new JsonArray();
+        s.varint(prestadoA.size());
+        for (JsonElement u : prestadoA) s.texto(u.getAsString());
+
+        JsonObject renovaciones = l.has("renovaciones") ? l.getAsJsonObject("renovaciones") : new JsonObject();
+        s.varint(renovaciones.size());
+        for (Map.Entry<String, JsonElement> r : renovaciones.entrySet()) {
+            s.texto(r.getKey());
+            s.zigzag(r.getValue().getAsLong());
+        }
+
+        JsonObject fechaLim = l.has("fechaLim") ? l.getAsJsonObject("fechaLim") : new JsonObject();
+        s.varint(fechaLim.size());
+        for (Map.Entry<String, JsonElement> f : fechaLim.entrySet()) {
+            s.texto(f.getKey());
+            s.texto(f.getValue().getAsString());
+        }
+    }
+
+    // ---- Lectura ----
+
+    /*
+     * JsonReader sobre el formato binario: el TypeAdapter del tipo pedido (Libro.Json, el
+     * reflexivo de Gson o el de JsonObject) lee directo de los bytes, sin árbol intermedio.
+     * El libro de layout fijo se presenta como un objeto con los campos de Libro.Json (isbn y
+     * titulo solo si no son null); la versión, que en el formato va antes de los préstamos,
+     * se lee al abrir el libro y se entrega al final.
+     */
+    private static final class LectorBinario extends JsonReader {
+        // Cómo está escrito cada valor/clave de un contenedor
+        private static final int ETIQUETADO = 0;  // valor con etiqueta / clave del diccionario
+        private static final int TEXTO = 1;       // texto con longitud, sin etiqueta
+        private static final int ZIGZAG = 2;      // entero zigzag, sin etiqueta
+
+        private static final int OBJETO = 0;
+        private static final int ARREGLO = 1;
+        private static final int LIBRO = 2;
+
+        // Campos del libro en el orden en que se presentan, el de Libro.Json (etapas de un marco LIBRO)
+        private static final String[] CAMPOS_LIBRO = {
+            "isbn", "titulo", "copiasDisponibles", "prestadoA", "renovaciones", "fechaLim", "version"
+        };
+
+        private static final class Marco {
+            final int clase;
+            final int modoClave;
+            final int modoValor;
+            int restantes;          // OBJETO/ARREGLO: elementos sin leer
+            boolean clavePendiente; // OBJETO/LIBRO: ya se leyó la clave, falta el valor
+            int etapa;              // LIBRO: índice en CAMPOS_LIBRO
+            String isbn;
+            String titulo;
+            long copias;
+            long version;
+
+            Marco(int clase, int restantes, int modoClave, int modoValor) {
+                this.clase = clase;
+                this.restantes = restantes;
+                this.modoClave = modoClave;
+                this.modoValor = modoValor;
+            }
+        }
+
+        private final Entrada e;
+        private final ArrayDeque<Marco> marcos = new ArrayDeque<>();
+        private boolean terminado = false;
+
+        LectorBinario(Entrada e) {
+            super(new StringReader(""));
+            this.e = e;
+        }
+
+        @Override
+        public JsonToken peek() {
+            Marco m = marcos.peek();
+            if (m == null) return terminado ? JsonToken.END_DOCUMENT : JsonToken.BEGIN_OBJECT;
+            if (m.clase == LIBRO) {
+                saltarNulosDelLibro(m);
+                if (m.etapa >= CAMPOS_LIBRO.length) return JsonToken.END_OBJECT;
+                if (!m.clavePendiente) return JsonToken.NAME;
+                switch (m.etapa) {
+                    case 0: case 1: return JsonToken.STRING;
+                    case 3: return JsonToken.BEGIN_ARRAY;
+                    case 4: case 5: return JsonToken.BEGIN_OBJECT;
+                    default: return JsonToken.NUMBER;
+                }
+            }
+            if (m.restantes == 0 && !m.clavePendiente) return m.clase == OBJETO ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+            if (m.clase == OBJETO && !m.clavePendiente) return JsonToken.NAME;
+            if (m.modoValor == TEXTO) return JsonToken.STRING;
+            if (m.modoValor == ZIGZAG) return JsonToken.NUMBER;
+            byte t = e.mirar();
+            switch (t) {
+                case T_NULL: return JsonToken.NULL;
+                case T_TRUE: case T_FALSE: return JsonToken.BOOLEAN;
+                case T_ENTERO: case T_DOUBLE: return JsonToken.NUMBER;
+                case T_TEXTO: case T_PALABRA: return JsonToken.STRING;
+                case T_ARREGLO: return JsonToken.BEGIN_ARRAY;
+                case T_OBJETO: case T_LIBRO: return JsonToken.BEGIN_OBJECT;
+                default: throw new IllegalArgumentException("Etiqueta binaria desconocida: " + t);
+            }
+        }
+
+        private static void saltarNulosDelLibro(Marco m) {
+            if (m.clavePendiente) return;
+            if (m.etapa == 0 && m.isbn == null) m.etapa = 1;
+            if (m.etapa == 1 && m.titulo == null) m.etapa = 2;
+        }
+
+        private void esperar(JsonToken esperado) {
+            JsonToken t = peek();
+            if (t != esperado) throw new IllegalStateException("Se esperaba " + esperado + " y hay " + t + " en " + getPath());
+        }
+
+        // Un valor del marco actual queda consumido
+        private void valorLeido() {
+            Marco m = marcos.peek();
+            if (m == null) {
+                terminado = true;
+            } else if (m.clase == LIBRO) {
+                m.clavePendiente = false;
+                m.etapa++;
+            } else {
+                m.clavePendiente = false;
+                if (m.clase == ARREGLO) m.restantes--;
+            }
+        }
+
+        @Override
+        public void beginObject() {
+            esperar(JsonToken.BEGIN_OBJECT);
+            Marco m = marcos.peek();
+            if (m != null && m.clase == LIBRO) {
+                // renovaciones (usuario -> entero) o fechaLim (usuario -> texto)
+                marcos.push(new Marco(OBJETO, e.cantidad(), TEXTO, m.etapa == 4 ? ZIGZAG : TEXTO));
+                return;
+            }
+            if (e.byte_() == T_LIBRO) {
+                Marco libro = new Marco(LIBRO, 0, TEXTO, TEXTO);
+                libro.isbn = e.textoAnulable();
+                libro.titulo = e.textoAnulable();
+                libro.copias = e.zigzag();
+                libro.version = e.zigzag();
+                marcos.push(libro);
+            } else {
+                marcos.push(new Marco(OBJETO, e.cantidad(), ETIQUETADO, ETIQUETADO));
+            }
+        }
+
+        @Override
+        public void endObject() {
+            esperar(JsonToken.END_OBJECT);
+            marcos.pop();
+            valorLeido();
+        }
+
+        @Override
+        public void beginArray() {
+            esperar(JsonToken.BEGIN_ARRAY);
+            Marco m = marcos.peek();
+            if (m.clase == LIBRO) {
+                marcos.push(new Marco(ARREGLO, e.cantidad(), TEXTO, TEXTO)); // prestadoA
+            } else {
+                e.byte_(); // T_ARREGLO
+                marcos.push(new Marco(ARREGLO, e.cantidad(), ETIQUETADO, ETIQUETADO));
+            }
+        }
+
+        @Override
+        public void endArray() {
+            esperar(JsonToken.END_ARRAY);
+            marcos.pop();
+            valorLeido();
+        }
+
+        @Override
+        public boolean hasNext() {
+            JsonToken t = peek();
+            return t != JsonToken.END_OBJECT && t != JsonToken.END_ARRAY && t != JsonToken.END_DOCUMENT;
+        }
+
+        @Override
+        public String nextName() {
+            esperar(JsonToken.NAME);
+            Marco m = marcos.peek();
+            m.clavePendiente = true;
+            if (m.clase == LIBRO) return CAMPOS_LIBRO[m.etapa];
+            m.restantes--;
+            if (m.modoClave == TEXTO) return e.texto();
+            int k = e.varint();
+            return k == 0 ? e.texto() : e.palabra(k - 1);
+        }
+
+        @Override
+        public String nextString() {
+            JsonToken t = peek();
+            if (t != JsonToken.STRING && t != JsonToken.NUMBER) {
+                throw new IllegalStateException("Se esperaba STRING y hay " + t + " en " + getPath());
+            }
+            Marco m = marcos.peek();
+            String v;
+            if (m.clase == LIBRO) {
+                v = m.etapa == 0 ? m.isbn : m.etapa == 1 ? m.titulo : Long.toString(m.etapa == 2 ? m.copias : m.version);
+            } else if (m.modoValor == TEXTO) {
+                v = e.texto();
+            } else if (m.modoValor == ZIGZAG) {
+                v = Long.toString(e.zigzag());
+            } else {
+                byte etiqueta = e.byte_();
+                switch (etiqueta) {
+                    case T_TEXTO: v = e.texto(); break;
+                    case T_PALABRA: v = e.palabra(e.varint()); break;
+                    case T_ENTERO: v = Long.toString(e.zigzag()); break;
+                    default: v = Double.toString(Double.longBitsToDouble(e.long_()));
+                }
+            }
+            valorLeido();
+            return v;
+        }
+
+        @Override
+        public long nextLong() {
+            esperar(JsonToken.NUMBER);
+            Marco m = marcos.peek();
+            long v;
+            if (m.clase == LIBRO) {
+                v = m.etapa == 2 ? m.copias : m.version;
+            } else if (m.modoValor == ZIGZAG || e.byte_() == T_ENTERO) {
+                v = e.zigzag();
+            } else {
+                double d = Double.longBitsToDouble(e.long_());
+                v = (long) d;
+                if (v != d) throw new NumberFormatException("No es un entero: " + d + " en " + getPath());
+            }
+            valorLeido();
+            return v;
+        }
+
+        @Override
+        public int nextInt() {
+            String ruta = getPath();
+            long v = nextLong();
+            if (v != (int) v) throw new NumberFormatException("Fuera de rango para int: " + v + " en " + ruta);
+            return (int) v;
+        }
+
+        @Override
+        public double nextDouble() {
+            esperar(JsonToken.NUMBER);
+            Marco m = marcos.peek();
+            if (m.clase == LIBRO || m.modoValor == ZIGZAG) return nextLong();
+            double v = e.byte_() == T_ENTERO ? e.zigzag() : Double.longBitsToDouble(e.long_());
+            valorLeido();
+            return v;
+        }
+
+        @Override
+        public boolean nextBoolean() {
+            esperar(JsonToken.BOOLEAN);
+            boolean v = e.byte_() == T_TRUE;
+            valorLeido();
+            return v;
+        }
+
+        @Override
+        public void nextNull() {
+            esperar(JsonToken.NULL);
+            e.byte_();
+            valorLeido();
+        }
+
+        @Override
+        public void skipValue() {
+            int profundidad = 0;
+            do {
+                switch (peek()) {
+                    case BEGIN_ARRAY: beginArray(); profundidad++; break;
+                    case BEGIN_OBJECT: beginObject(); profundidad++; break;
+                    case END_ARRAY: endArray(); profundidad--; break;
+                    case END_OBJECT: endObject(); profundidad--; break;
+                    case NAME: nextName(); break;
+                    case BOOLEAN: nextBoolean(); break;
+                    case NULL: nextNull(); break;
+                    case END_DOCUMENT: return;
+                    default: nextString();
+                }
+            } while (profundidad > 0);
+        }
+
+        @Override
+        public String getPath() {
+            return "byte " + e.pos;
+        }
+
+        @Override
+        public String toString() {
+            return "LectorBinario en " + getPath();
+        }
+
+        @Override
+        public void close() {
+            marcos.clear();
+            terminado = true;
+        }
+    }
+
+    // Buffer de escritura que crece al doble
+    private static final class Salida {
+        private byte[] buf;
+        private int pos;
+
+        Salida(int capacidad) {
+            buf = new byte[capacidad];
+        }
+
+        private void asegurar(int n) {
+            if (pos + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+        }
+
+        void byte_(byte b) {
+            asegurar(1);
+            buf[pos++] = b;
+        }
+
+        void varint(long v) {
+            asegurar(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void zigzag(long v) {
+            varint((v << 1) ^ (v >> 63));
+        }
+
+        void long_(long v) {
+            asegurar(8);
+            for (int i = 7; i >= 0; i--) buf[pos++] = (byte) (v >>> (i * 8));
+        }
+
+        void texto(String t) {
+            byte[] b = t.getBytes(StandardCharsets.UTF_8);
+            varint(b.length);
+            asegurar(b.length);
+            System.arraycopy(b, 0, buf, pos, b.length);
+            pos += b.length;
+        }
+
+        // longitud+1, 0 para null
+        void textoAnulable(String t) {
+            if (t == null) {
+                varint(0);
+                return;
+            }
+            byte[] b = t.getBytes(StandardCharsets.UTF_8);
+            varint(b.length + 1L);
+            asegurar(b.length);
+            System.arraycopy(b, 0, buf, pos, b.length);
+            pos += b.length;
+        }
+
+        byte[] bytes() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    // Buffer de lectura: toda lectura revisa que los bytes estén, un mensaje truncado no pasa del final
+    private static final class Entrada {
+        private final byte[] buf;
+        private int pos;
+
+        Entrada(byte[] buf) {
+            this.buf = buf;
+        }
+
+        void cabecera(byte clase) {
+            if (buf.length < 2 || buf[0] != MAGIA || buf[1] != clase) {
+                throw new IllegalArgumentException("Mensaje binario inválido");
+            }
+            pos = 2;
+        }
+
+        private void necesita(long n) {
+            if (n < 0 || n > buf.length - pos) {
+                throw new IllegalArgumentException("Mensaje binario truncado: faltan bytes en la posición " + pos
+                        + " de " + buf.length);
+            }
+        }
+
+        byte mirar() {
+            necesita(1);
+            return buf[pos];
+        }
+
+        byte byte_() {
+            necesita(1);
+            return buf[pos++];
+        }
+
+        int varint() {
+            long v = varlong();
+            if (v < 0 || v > Integer.MAX_VALUE) throw new IllegalArgumentException("Longitud binaria inválida: " + v);
+            return (int) v;
+        }
+
+        // Cantidad de elementos: cada uno ocupa al menos un byte
+        int cantidad() {
+            int n = varint();
+            necesita(n);
+            return n;
+        }
+
+        long varlong() {
+            long v = 0;
+            for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+                byte b = byte_();
+                v |= (long) (b & 0x7F) << desplazamiento;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IllegalArgumentException("Varint binario de más de 10 bytes en la posición " + pos);
+        }
+
+        long zigzag() {
+            long v = varlong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        long long_() {
+            necesita(8);
+            long v = 0;
+            for (int i = 0; i < 8; i++) v = (v << 8) | (buf[pos++] & 0xFF);
+            return v;
+        }
+
+        String texto() {
+            int n = varint();
+            necesita(n);
+            String t = new String(buf, pos, n, StandardCharsets.UTF_8);
+            pos += n;
+            return t;
+        }
+
+        String textoAnulable() {
+            int n = varint();
+            if (n == 0) return null;
+            necesita(n - 1);
+            String t = new String(buf, pos, n - 1, StandardCharsets.UTF_8);
+            pos += n - 1;
+            return t;
+        }
+
+        String palabra(int i) {
+            if (i >= PALABRAS.length) throw new IllegalArgumentException("Palabra binaria desconocida: " + i);
+            return PALABRAS[i];
+        }
+
+        void fin() {
+            if (pos != buf.length) throw new IllegalArgumentException("Mensaje binario con " + (buf.length - pos) + " bytes de más");
+        }
+    }
+}
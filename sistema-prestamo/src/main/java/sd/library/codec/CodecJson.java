@@ -0,0 +1,53 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import sd.library.model.Request;
+
+/*
+ * JSON compacto en UTF-8 (sin pretty printing): el formato legible de siempre
+ */
+class CodecJson implements Codec {
+    private static final Gson gson = new Gson();
+
+    @Override
+    public String nombre() { return "json"; }
+
+    @Override
+    public byte[] codificar(JsonObject msg) {
+        return msg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public JsonObject decodificar(byte[] datos) {
+        return decodificar(datos, JsonObject.class);
+    }
+
+    @Override
+    public <T> T decodificar(byte[] datos, Class<T> tipo) {
+        T valor = gson.fromJson(new InputStreamReader(new ByteArrayInputStream(datos), StandardCharsets.UTF_8), tipo);
+        if (valor == null) throw new IllegalArgumentException("Mensaje JSON vacío");
+        return valor;
+    }
+
+    @Override
+    public byte[] codificarRequest(Request req) {
+        return gson.toJson(req).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Request decodificarRequest(byte[] datos) {
+        return gson.fromJson(new String(datos, StandardCharsets.UTF_8), Request.class);
+    }
+}
@@ -0,0 +1,50 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Selección del codec
+ * - Propiedad -Dcodec=json|binario: formato con el que un proceso inicia conversaciones
+ *   (PS hacia GC, GC hacia actores, actores hacia GC y GA)
+ * - detectar(): formato de un mensaje recibido por su primer byte; un mensaje binario
+ *   empieza con CodecBinario.MAGIA, que no puede iniciar un documento JSON
+ */
+public final class Codecs {
+    public static final Codec JSON = new CodecJson();
+    public static final Codec BINARIO = new CodecBinario();
+
+    private Codecs() {}
+
+    //Codec configurado para este proceso (json por defecto)
+    public static Codec configurado() {
+        return porNombre(System.getProperty("codec", "json"));
+    }
+
+    public static Codec porNombre(String nombre) {
+        if (nombre.equalsIgnoreCase("binario")) return BINARIO;
+        if (nombre.equalsIgnoreCase("json")) return JSON;
+        throw new IllegalArgumentException("Codec desconocido: " + nombre);
+    }
+
+    //Texto del mensaje para trazas (el JSON tal cual; el binario se decodifica)
+    public static String legible(byte[] datos) {
+        Codec c = detectar(datos);
+        if (c == JSON) return new String(datos, StandardCharsets.UTF_8);
+        try {
+            return c.decodificar(datos).toString();
+        } catch (RuntimeException e) {
+            return "<binario " + datos.length + " bytes>"; // Request u otro contenido
+        }
+    }
+
+    //Codec con el que fue escrito un mensaje recibido
+    public static Codec detectar(byte[] datos) {
+        return datos.length > 0 && datos[0] == CodecBinario.MAGIA ? BINARIO : JSON;
+    }
+}
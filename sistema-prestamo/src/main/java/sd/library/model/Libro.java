@@ -6,38 +6,58 @@
 **************************************************************/
 package sd.library.model;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
 /*
  * Atributos:
  * - isbn: Identificador único del libro
  * - titulo: Título descriptivo
  * - copiasDisponibles: Contador de disponibilidad
- * - prestadoA: Lista de usuarios con préstamos activos
- * - renovaciones: Mapa usuario -> contador de renovaciones
- * - fechaLim: Mapa usuario -> fecha límite de devolución
- * 
+ * - prestamos: Préstamos activos, una entrada compacta por usuario (ver Prestamos):
+ *   nombre de usuario internado (TablaUsuarios), copias, fecha límite como día (epoch) y renovaciones
+ * - version: Contador de modificaciones (control de concurrencia optimista en el GA)
+ *
+ * En JSON (archivos, GA, réplica) conserva la forma de siempre con el adaptador Json:
+ * prestadoA (lista, un elemento por copia), renovaciones (usuario -> contador) y
+ * fechaLim (usuario -> fecha ISO). getPrestadoA/getRenovaciones/getFechaLim devuelven
+ * esas vistas como copias de solo lectura.
+ * En binario (PersistenciaMapeada) los préstamos se guardan tal cual: ver escribirPrestamos.
+ *
  * Metodos:
  * - prestarA(): Registra préstamo a usuario
  * - devolverA(): Procesa devolución
  * - renovarA(): Extiende préstamo existente
  */
+@JsonAdapter(Libro.Json.class)
 public class Libro {
+    public static final int MAX_RENOVACIONES = 2; // renovaciones permitidas por préstamo
+    public static final int DIAS_PRESTAMO = 7;    // días hasta la fecha límite
+
     private String isbn;
     private String titulo;
     private int copiasDisponibles;
-    private List<String> prestadoA;
-    private Map<String, Integer> renovaciones;
-    private Map<String, String> fechaLim;
+    private Prestamos prestamos;
+    private long version;
 
     // Constructor por defecto con inicialización
     public Libro() {
-        this.prestadoA = new ArrayList<>();
-        this.renovaciones = new HashMap<>();
-        this.fechaLim = new HashMap<>();
+        this.prestamos = new Prestamos();
     }
 
     // Constructor parametrizado
@@ -48,6 +68,15 @@ public class Libro {
         this.copiasDisponibles = copiasDisponibles;
     }
 
+    // Constructor copia (el GA modifica copias para no exponer estados intermedios)
+    public Libro(Libro otro) {
+        this.isbn = otro.isbn;
+        this.titulo = otro.titulo;
+        this.copiasDisponibles = otro.copiasDisponibles;
+        this.prestamos = new Prestamos(otro.prestamos);
+        this.version = otro.version;
+    }
+
     // Getters y Setters
     public String getIsbn() { return isbn; }
     public void setIsbn(String isbn) { this.isbn = isbn; }
@@ -56,49 +85,225 @@ public class Libro {
     public void setTitulo(String titulo) { this.titulo = titulo; }
 
     public int getCopiasDisponibles() { return copiasDisponibles; }
-    public void setCopiasDisponibles(int copiasDisponibles) { 
-        this.copiasDisponibles = copiasDisponibles; 
+    public void setCopiasDisponibles(int copiasDisponibles) {
+        this.copiasDisponibles = copiasDisponibles;
     }
 
-    public List<String> getPrestadoA() { return prestadoA; }
-    public void setPrestadoA(List<String> prestadoA) { this.prestadoA = prestadoA; }
+    public List<String> getPrestadoA() {
+        List<String> lista = new ArrayList<>();
+        for (int i = 0; i < prestamos.cantidad(); i++) {
+            String usuario = prestamos.usuario(i);
+            for (int c = 0; c < prestamos.copias(i); c++) lista.add(usuario);
+        }
+        return Collections.unmodifiableList(lista);
+    }
+
+    public Map<String, Integer> getRenovaciones() {
+        Map<String, Integer> mapa = new LinkedHashMap<>();
+        for (int i = 0; i < prestamos.cantidad(); i++) {
+            byte r = prestamos.renovaciones(i);
+            if (r != Prestamos.SIN_RENOVACIONES) mapa.put(prestamos.usuario(i), (int) r);
+        }
+        return Collections.unmodifiableMap(mapa);
+    }
 
-    public Map<String, Integer> getRenovaciones() { return renovaciones; }
-    public void setRenovaciones(Map<String, Integer> renovaciones) { 
-        this.renovaciones = renovaciones; 
+    public Map<String, String> getFechaLim() {
+        Map<String, String> mapa = new LinkedHashMap<>();
+        for (int i = 0; i < prestamos.cantidad(); i++) {
+            int f = prestamos.fecha(i);
+            if (f != Prestamos.SIN_FECHA) mapa.put(prestamos.usuario(i), LocalDate.ofEpochDay(f).toString());
+        }
+        return Collections.unmodifiableMap(mapa);
     }
 
-    public Map<String, String> getFechaLim() { return fechaLim; }
-    public void setFechaLim(Map<String, String> fechaLim) { this.fechaLim = fechaLim; }
-    
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
     //Verifica si un usuario tiene prestado este libro
     public boolean estaPrestadoA(String usuario) {
-        return prestadoA.contains(usuario);
+        int pos = posicion(usuario);
+        return pos >= 0 && prestamos.copias(pos) > 0;
+    }
+
+    //Renovaciones del préstamo del usuario (0 si no tiene registro)
+    public int renovacionesDe(String usuario) {
+        int pos = posicion(usuario);
+        return pos < 0 || prestamos.renovaciones(pos) == Prestamos.SIN_RENOVACIONES ? 0 : prestamos.renovaciones(pos);
     }
 
     //Registra un préstamo a un usuario
-    public void prestarA(String usuario, String fechaLimite) {
-        prestadoA.add(usuario);
+    public void prestarA(String usuario, LocalDate fechaLimite) {
+        int pos = prestamos.obtener(usuario);
+        prestamos.fijarCopias(pos, prestamos.copias(pos) + 1);
         copiasDisponibles--;
-        renovaciones.put(usuario, 0); // Inicializar contador
-        fechaLim.put(usuario, fechaLimite);
+        prestamos.fijarRenovaciones(pos, 0); // Inicializar contador
+        prestamos.fijarFecha(pos, (int) fechaLimite.toEpochDay());
+    }
+
+    public void prestarA(String usuario, String fechaLimite) {
+        prestarA(usuario, LocalDate.parse(fechaLimite));
     }
 
     //Procesa la devolución de un libro
     public void devolverA(String usuario) {
-        if (prestadoA.remove(usuario)) {
-            copiasDisponibles++;
-            renovaciones.remove(usuario);
-            fechaLim.remove(usuario);
+        int pos = posicion(usuario);
+        if (pos < 0 || prestamos.copias(pos) == 0) return;
+        copiasDisponibles++;
+        int quedan = prestamos.copias(pos) - 1;
+        if (quedan == 0) {
+            prestamos.quitar(pos);
+        } else {
+            // Devolver una copia borra el contador y la fecha del usuario (como quitarlo de los mapas)
+            prestamos.fijarCopias(pos, quedan);
+            prestamos.fijarRenovaciones(pos, Prestamos.SIN_RENOVACIONES);
+            prestamos.fijarFecha(pos, Prestamos.SIN_FECHA);
         }
     }
 
     //Renueva el préstamo de un usuario
+    public void renovarA(String usuario, LocalDate nuevaFecha) {
+        int pos = posicion(usuario);
+        if (pos < 0 || prestamos.copias(pos) == 0) return;
+        byte count = prestamos.renovaciones(pos);
+        prestamos.fijarRenovaciones(pos, (count == Prestamos.SIN_RENOVACIONES ? 0 : count) + 1);
+        prestamos.fijarFecha(pos, (int) nuevaFecha.toEpochDay());
+    }
+
     public void renovarA(String usuario, String nuevaFecha) {
-        if (prestadoA.contains(usuario)) {
-            int count = renovaciones.getOrDefault(usuario, 0);
-            renovaciones.put(usuario, count + 1);
-            fechaLim.put(usuario, nuevaFecha);
+        renovarA(usuario, LocalDate.parse(nuevaFecha));
+    }
+
+    //Bytes que ocupa escribirPrestamos()
+    public int bytesPrestamos() {
+        int total = 4;
+        for (int i = 0; i < prestamos.cantidad(); i++) {
+            total += 9 + prestamos.usuario(i).getBytes(StandardCharsets.UTF_8).length;
+        }
+        return total;
+    }
+
+    /*
+     * Préstamos en binario: cantidad de entradas (int) y por entrada usuario (short con el
+     * largo + UTF-8), copias (short), fecha límite en días epoch (int, SIN_FECHA si no hay) y
+     * renovaciones (byte, -1 si no hay registro). Escribe desde la posición actual del buffer.
+     */
+    public void escribirPrestamos(ByteBuffer destino) {
+        destino.putInt(prestamos.cantidad());
+        for (int i = 0; i < prestamos.cantidad(); i++) {
+            byte[] usuario = prestamos.usuario(i).getBytes(StandardCharsets.UTF_8);
+            destino.putShort((short) usuario.length).put(usuario);
+            destino.putShort((short) prestamos.copias(i));
+            destino.putInt(prestamos.fecha(i));
+            destino.put(prestamos.renovaciones(i));
+        }
+    }
+
+    //Agrega los préstamos escritos por escribirPrestamos() (el libro se crea sin préstamos)
+    public void leerPrestamos(ByteBuffer origen) {
+        int cantidad = origen.getInt();
+        for (int i = 0; i < cantidad; i++) {
+            byte[] usuario = new byte[origen.getShort()];
+            origen.get(usuario);
+            int pos = prestamos.obtener(new String(usuario, StandardCharsets.UTF_8));
+            prestamos.fijarCopias(pos, origen.getShort());
+            prestamos.fijarFecha(pos, origen.getInt());
+            prestamos.fijarRenovaciones(pos, origen.get());
+        }
+    }
+
+    private int posicion(String usuario) {
+        return prestamos.posicion(usuario);
+    }
+
+    /*
+     * Libro <-> JSON con los mismos campos y el mismo orden que producía Gson por reflexión
+     * (isbn, titulo, copiasDisponibles, prestadoA, renovaciones, fechaLim, version), así los
+     * archivos, la réplica y el layout fijo de CodecBinario no cambian. Campos desconocidos
+     * se ignoran.
+     */
+    static final class Json extends TypeAdapter<Libro> {
+        @Override
+        public void write(JsonWriter out, Libro libro) throws IOException {
+            Prestamos p = libro.prestamos;
+            out.beginObject();
+            out.name("isbn").value(libro.isbn);
+            out.name("titulo").value(libro.titulo);
+            out.name("copiasDisponibles").value(libro.copiasDisponibles);
+            out.name("prestadoA").beginArray();
+            for (int i = 0; i < p.cantidad(); i++) {
+                String usuario = p.usuario(i);
+                for (int c = 0; c < p.copias(i); c++) out.value(usuario);
+            }
+            out.endArray();
+            out.name("renovaciones").beginObject();
+            for (int i = 0; i < p.cantidad(); i++) {
+                if (p.renovaciones(i) != Prestamos.SIN_RENOVACIONES) {
+                    out.name(p.usuario(i)).value(p.renovaciones(i));
+                }
+            }
+            out.endObject();
+            out.name("fechaLim").beginObject();
+            for (int i = 0; i < p.cantidad(); i++) {
+                if (p.fecha(i) != Prestamos.SIN_FECHA) {
+                    out.name(p.usuario(i)).value(LocalDate.ofEpochDay(p.fecha(i)).toString());
+                }
+            }
+            out.endObject();
+            out.name("version").value(libro.version);
+            out.endObject();
+        }
+
+        @Override
+        public Libro read(JsonReader in) throws IOException {
+            Libro libro = new Libro();
+            Prestamos p = libro.prestamos;
+            in.beginObject();
+            while (in.hasNext()) {
+                String campo = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (campo) {
+                    case "isbn": libro.isbn = in.nextString(); break;
+                    case "titulo": libro.titulo = in.nextString(); break;
+                    case "copiasDisponibles": libro.copiasDisponibles = in.nextInt(); break;
+                    case "version": libro.version = in.nextLong(); break;
+                    case "prestadoA":
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            int pos = p.obtener(in.nextString());
+                            p.fijarCopias(pos, p.copias(pos) + 1);
+                        }
+                        in.endArray();
+                        break;
+                    case "renovaciones":
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            int pos = p.obtener(in.nextName());
+                            p.fijarRenovaciones(pos, in.nextInt());
+                        }
+                        in.endObject();
+                        break;
+                    case "fechaLim":
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            int pos = p.obtener(in.nextName());
+                            String fecha = in.nextString();
+                            try {
+                                p.fijarFecha(pos, (int) LocalDate.parse(fecha).toEpochDay());
+                            } catch (DateTimeParseException e) {
+                                throw new JsonParseException("Fecha límite inválida en libro " + libro.isbn + ": " + fecha, e);
+                            }
+                        }
+                        in.endObject();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return libro;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.model;
+
+import java.util.Arrays;
+
+/*
+ * Préstamos activos de un libro en arreglos de primitivos, una entrada por usuario:
+ * - usuario: nombre internado en TablaUsuarios (un String por usuario en todo el inventario)
+ * - copias: cuántas copias tiene (un usuario puede llevar varias)
+ * - fecha: fecha límite en días desde 1970-01-01 (LocalDate.toEpochDay), SIN_FECHA si no hay
+ * - renovaciones: renovaciones hechas, SIN_RENOVACIONES si no hay registro
+ * Una entrada con 0 copias conserva fecha/renovaciones que venían sin préstamo en el JSON.
+ *
+ * Búsqueda por usuario: recorrido lineal hasta LINEAL entradas; con más (títulos
+ * populares) se mantiene un índice hash abierto sobre las posiciones, así la consulta es
+ * O(1). Quitar mueve la última entrada al hueco (el orden no se conserva).
+ */
+final class Prestamos {
+    static final int SIN_FECHA = Integer.MIN_VALUE;
+    static final byte SIN_RENOVACIONES = -1;
+
+    private static final int LINEAL = 8;
+    private static final String[] SIN_STRING = new String[0];
+    private static final int[] SIN_INT = new int[0];
+    private static final short[] SIN_SHORT = new short[0];
+    private static final byte[] SIN_BYTE = new byte[0];
+
+    private String[] usuarios = SIN_STRING;
+    private short[] copias = SIN_SHORT;
+    private int[] fechas = SIN_INT;
+    private byte[] renovaciones = SIN_BYTE;
+    private int n;
+    private int[] indice; // posición + 1 por ranura (0: vacía); null mientras n <= LINEAL
+
+    Prestamos() {}
+
+    Prestamos(Prestamos otro) {
+        n = otro.n;
+        usuarios = Arrays.copyOf(otro.usuarios, n);
+        copias = Arrays.copyOf(otro.copias, n);
+        fechas = Arrays.copyOf(otro.fechas, n);
+        renovaciones = Arrays.copyOf(otro.renovaciones, n);
+        indice = otro.indice == null ? null : otro.indice.clone();
+    }
+
+    int cantidad() { return n; }
+
+    String usuario(int pos) { return usuarios[pos]; }
+
+    int copias(int pos) { return copias[pos]; }
+
+    int fecha(int pos) { return fechas[pos]; }
+
+    byte renovaciones(int pos) { return renovaciones[pos]; }
+
+    void fijarCopias(int pos, int c) { copias[pos] = (short) c; }
+
+    void fijarFecha(int pos, int epochDia) { fechas[pos] = epochDia; }
+
+    void fijarRenovaciones(int pos, int r) { renovaciones[pos] = (byte) Math.min(r, Byte.MAX_VALUE); }
+
+    //Posición de la entrada del usuario o -1
+    int posicion(String usuario) {
+        if (indice == null) {
+            for (int i = 0; i < n; i++) if (usuarios[i].equals(usuario)) return i;
+            return -1;
+        }
+        int r = ranura(usuario);
+        return r < 0 ? -1 : indice[r] - 1;
+    }
+
+    //Posición de la entrada del usuario, creándola vacía si no existe
+    int obtener(String usuario) {
+        int pos = posicion(usuario);
+        if (pos >= 0) return pos;
+        if (n == usuarios.length) {
+            int cap = Math.max(2, 2 * n);
+            usuarios = Arrays.copyOf(usuarios, cap);
+            copias = Arrays.copyOf(copias, cap);
+            fechas = Arrays.copyOf(fechas, cap);
+            renovaciones = Arrays.copyOf(renovaciones, cap);
+        }
+        pos = n++;
+        usuarios[pos] = TablaUsuarios.internar(usuario);
+        copias[pos] = 0;
+        fechas[pos] = SIN_FECHA;
+        renovaciones[pos] = SIN_RENOVACIONES;
+        if (indice != null && 2 * n > indice.length) {
+            reconstruirIndice(2 * indice.length);
+        } else if (indice != null) {
+            insertar(usuario, pos);
+        } else if (n > LINEAL) {
+            reconstruirIndice(Integer.highestOneBit(4 * n));
+        }
+        return pos;
+    }
+
+    //Quita la entrada; la última ocupa su lugar
+    void quitar(int pos) {
+        if (indice != null) borrarRanura(ranura(usuarios[pos]));
+        int ultima = n - 1;
+        if (pos != ultima) {
+            if (indice != null) indice[ranura(usuarios[ultima])] = pos + 1;
+            usuarios[pos] = usuarios[ultima];
+            copias[pos] = copias[ultima];
+            fechas[pos] = fechas[ultima];
+            renovaciones[pos] = renovaciones[ultima];
+        }
+        usuarios[ultima] = null; // no retiene el nombre (TablaUsuarios lo suelta cuando nadie lo usa)
+        n = ultima;
+    }
+
+    private int inicio(String usuario) {
+        int h = usuario.hashCode() * 0x9E3779B9;
+        return (h ^ h >>> 16) & (indice.length - 1);
+    }
+
+    private int ranura(String usuario) {
+        int m = indice.length - 1;
+        for (int r = inicio(usuario); indice[r] != 0; r = (r + 1) & m) {
+            if (usuarios[indice[r] - 1].equals(usuario)) return r;
+        }
+        return -1;
+    }
+
+    private void insertar(String usuario, int pos) {
+        int m = indice.length - 1;
+        int r = inicio(usuario);
+        while (indice[r] != 0) r = (r + 1) & m;
+        indice[r] = pos + 1;
+    }
+
+    // Borrado en sondeo lineal: corre hacia atrás las entradas que quedarían inalcanzables
+    private void borrarRanura(int libre) {
+        int m = indice.length - 1;
+        for (int r = (libre + 1) & m; indice[r] != 0; r = (r + 1) & m) {
+            int ideal = inicio(usuarios[indice[r] - 1]);
+            boolean alcanzable = libre <= r ? libre < ideal && ideal <= r : libre < ideal || ideal <= r;
+            if (!alcanzable) {
+                indice[libre] = indice[r];
+                libre = r;
+            }
+        }
+        indice[libre] = 0;
+    }
+
+    private void reconstruirIndice(int capacidad) {
+        indice = new int[capacidad];
+        for (int i = 0; i < n; i++) insertar(usuarios[i], i);
+    }
+}
@@ -11,6 +11,7 @@ package sd.library.model;
  * - tipo: PRESTAMO, DEVOLUCION, RENOVACION
  * - isbn: Identificador del libro
  * - usuario: Identificador del usuario
+ * - id: Identificador de correlación asignado por el GC (modo async)
  */
 public class Request {
     public enum Tipo {
@@ -22,6 +23,7 @@ public class Request {
     private Tipo tipo;
     private String isbn;
     private String usuario;
+    private String id;
 
     // Constructor por defecto
     public Request() {}
@@ -42,4 +44,7 @@ public class Request {
 
     public String getUsuario() { return usuario; }
     public void setUsuario(String usuario) { this.usuario = usuario; }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.model;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/*
+ * Nombres de usuario internados para los préstamos (Prestamos): un solo String por usuario
+ * en todo el inventario, sin importar cuántos libros tenga prestados
+ * - Referencias débiles: cuando ningún préstamo usa el nombre el recolector lo libera junto
+ *   con su entrada, así la tabla no crece con los usuarios que ya devolvieron todo y no hay
+ *   tope que pueda fallar al cargar el inventario o al aplicar una réplica
+ * - Segura entre hilos: FRANJAS mapas con su propio lock, elegidos por el hash del nombre
+ */
+final class TablaUsuarios {
+    private static final int FRANJAS = 16;
+
+    @SuppressWarnings("unchecked")
+    private static final Map<String, WeakReference<String>>[] franjas = new Map[FRANJAS];
+
+    static {
+        for (int i = 0; i < FRANJAS; i++) franjas[i] = new WeakHashMap<>();
+    }
+
+    private TablaUsuarios() {}
+
+    //Instancia compartida del nombre (la primera que se vio mientras alguien la use)
+    static String internar(String usuario) {
+        int h = usuario.hashCode();
+        Map<String, WeakReference<String>> franja = franjas[(h ^ h >>> 16) & (FRANJAS - 1)];
+        synchronized (franja) {
+            WeakReference<String> ref = franja.get(usuario);
+            String compartido = ref == null ? null : ref.get();
+            if (compartido != null) return compartido;
+            franja.put(usuario, new WeakReference<>(usuario));
+            return usuario;
+        }
+    }
+}
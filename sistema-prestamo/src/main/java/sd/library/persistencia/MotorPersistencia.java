@@ -0,0 +1,72 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.persistencia;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import sd.library.model.Libro;
+
+/*
+ * Motor de persistencia del inventario del GA
+ * - crearInventario(): mapa con el que trabaja el GA; por defecto un ConcurrentHashMap en
+ *   el heap, un motor puede devolver una vista sobre su propio almacenamiento
+ * - cargar(): llena el mapa del GA con el estado en disco; el motor conserva la
+ *   referencia al mapa para poder escribir snapshots completos
+ * - registrar()/eliminar(): anotan un cambio ya aplicado en memoria
+ * - sincronizar(): punto de durabilidad; al volver, los cambios anotados están en disco
+ * - recorrer(): el inventario por páginas para SNAPSHOT; por defecto fija la lista de libros
+ *   del mapa (referencias, el mapa ya está en el heap), mmap recorre sus registros por posición
+ *
+ * Implementaciones (propiedad -Dga.persistencia):
+ * - json: reescribe el archivo completo (comportamiento original)
+ * - wal: log de escritura anticipada + snapshot periódico
+ * - mmap: registros de tamaño fijo en archivos mapeados a memoria (el inventario vive fuera del heap);
+ *   el ISBN ocupa hasta 32 bytes UTF-8: un inventario con ISBN más largos no se carga
+ */
+public interface MotorPersistencia extends AutoCloseable {
+    default Map<String, Libro> crearInventario() {
+        return new ConcurrentHashMap<>();
+    }
+
+    void cargar(Map<String, Libro> inventario) throws IOException;
+
+    void registrar(Libro libro) throws IOException;
+
+    void eliminar(String isbn) throws IOException;
+
+    void sincronizar() throws IOException;
+
+    default Recorrido recorrer(Map<String, Libro> inventario) {
+        List<Libro> libros = new ArrayList<>(inventario.values());
+        return (desde, limite, destino) -> {
+            int hasta = Math.min(Math.max(0, desde) + limite, libros.size());
+            for (int i = Math.max(0, desde); i < hasta; i++) destino.accept(libros.get(i));
+            return hasta < libros.size() ? hasta : -1;
+        };
+    }
+
+    @Override
+    void close() throws IOException;
+
+    //Crea el motor indicado por -Dga.persistencia para el archivo de inventario
+    static MotorPersistencia crear(String archivo) {
+        String tipo = System.getProperty("ga.persistencia", "json");
+        if (tipo.equalsIgnoreCase("wal")) return new PersistenciaWal(archivo);
+        if (tipo.equalsIgnoreCase("mmap")) return new PersistenciaMapeada(archivo); // ISBN de hasta 32 bytes
+        return new PersistenciaJson(archivo);
+    }
+
+    //Página de hasta limite libros desde la posición indicada (0: inicio); retorna la siguiente o -1 al terminar
+    interface Recorrido {
+        int pagina(int desde, int limite, Consumer<Libro> destino);
+    }
+}
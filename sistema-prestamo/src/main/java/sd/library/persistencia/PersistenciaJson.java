@@ -0,0 +1,124 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.persistencia;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import sd.library.Log;
+import sd.library.model.Libro;
+
+/*
+ * Persistencia original del GA: el inventario completo en un arreglo JSON
+ * - Cada sincronizar() con cambios reescribe el archivo entero (costo O(catálogo))
+ * - Los métodos estáticos leen/escriben el mismo formato para los snapshots del WAL
+ * - Lectura y escritura en streaming (JsonReader/JsonWriter con buffer), libro por libro:
+ *   la memoria extra es la de un libro, no la del archivo completo
+ */
+public class PersistenciaJson implements MotorPersistencia {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    private final Path archivo;
+    private Map<String, Libro> inventario;
+    private boolean sucio = false;
+
+    public PersistenciaJson(String archivo) {
+        this.archivo = Paths.get(archivo);
+    }
+
+    @Override
+    public void cargar(Map<String, Libro> inventario) throws IOException {
+        this.inventario = inventario;
+        leerSnapshot(archivo, inventario);
+        Log.info("Inventario cargado ({} libros)", inventario.size());
+    }
+
+    @Override
+    public synchronized void registrar(Libro libro) {
+        sucio = true;
+    }
+
+    @Override
+    public synchronized void eliminar(String isbn) {
+        sucio = true;
+    }
+
+    @Override
+    public synchronized void sincronizar() throws IOException {
+        if (!sucio) return;
+        escribirSnapshot(archivo, inventario.values());
+        sucio = false;
+        Log.debug("Inventario actualizado");
+    }
+
+    @Override
+    public void close() throws IOException {
+        sincronizar();
+    }
+
+    interface Lector {
+        void leer(Libro libro) throws IOException;
+    }
+
+    //Carga el inventario desde archivo JSON (vacío si no existe)
+    static void leerSnapshot(Path archivo, Map<String, Libro> destino) throws IOException {
+        leerSnapshot(archivo, l -> destino.put(l.getIsbn(), l));
+    }
+
+    //Recorre el arreglo JSON del archivo entregando un libro a la vez (archivo vacío o null: nada)
+    static void leerSnapshot(Path archivo, Lector lector) throws IOException {
+        if (!Files.exists(archivo) || Files.size(archivo) == 0) return;
+        try (BufferedReader entrada = Files.newBufferedReader(archivo, StandardCharsets.UTF_8);
+                JsonReader json = gson.newJsonReader(entrada)) {
+            json.setLenient(true); // igual que gson.fromJson(String)
+            if (json.peek() == JsonToken.NULL) return;
+            json.beginArray();
+            while (json.hasNext()) {
+                Libro libro = gson.fromJson(json, Libro.class);
+                if (libro != null) lector.leer(libro);
+            }
+            json.endArray();
+        } catch (IllegalStateException e) {
+            throw new JsonSyntaxException("Inventario inválido en " + archivo, e);
+        }
+    }
+
+    //Escribe el inventario completo en un temporal (libro por libro) y lo renombra sobre el archivo
+    static void escribirSnapshot(Path archivo, Collection<Libro> libros) throws IOException {
+        Path tmp = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            BufferedWriter salida = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(canal), StandardCharsets.UTF_8), 1 << 16);
+            JsonWriter json = gson.newJsonWriter(salida); // mismo formato que gson.toJson (indentado)
+            json.beginArray();
+            for (Libro l : libros) gson.toJson(l, Libro.class, json);
+            json.endArray();
+            json.flush();
+            canal.force(true); // el rename no debe dejar visible un archivo sin contenido en disco
+        }
+        Files.move(tmp, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
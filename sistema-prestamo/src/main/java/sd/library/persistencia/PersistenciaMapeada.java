@@ -0,0 +1,891 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.persistencia;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import sd.library.Log;
+import sd.library.model.Libro;
+
+/*
+ * Inventario en archivos mapeados a memoria (-Dga.persistencia=mmap)
+ * - <archivo>.libros: cabecera y un par de registros de 64 bytes por libro (el par nunca
+ *   cruza un sector). Cada registro: estado, ISBN (largo + hasta ISBN_MAX = 32 bytes UTF-8),
+ *   copiasDisponibles, version, posición y largo de su entrada en el área de préstamos,
+ *   secuencia y CRC32 de registro + entrada. Vale el lado con la secuencia siguiente a la del otro
+ * - <archivo>.prestamos.<generación>: área de solo agregar con el título y los préstamos de
+ *   cada libro (Libro.escribirPrestamos). Un cambio agrega una entrada y escribe el registro
+ *   en el otro lado del par: el lado ya forzado no se toca hasta que sincronizar() fuerce el
+ *   nuevo (mientras tanto los cambios siguientes reescriben el lado nuevo)
+ * - Un libro conserva su par mientras exista, también al compactar; SNAPSHOT recorre los
+ *   pares por posición (recorrer) sin copiar el catálogo al heap
+ * - El GA trabaja sobre crearInventario(): get decodifica el libro desde el archivo, así el
+ *   catálogo no vive en el heap (queda el índice ISBN -> registro, un int por ranura).
+ *   put/remove quedan pendientes hasta registrar()/eliminar(), que los escriben; si la
+ *   escritura falla el cambio sigue visible y sincronizar() lo reintenta. put/remove no
+ *   decodifican el libro anterior: retornan null (el GA no usa ese valor)
+ * - Arranque: si no existen los archivos se importa una vez el JSON de siempre (desde ahí
+ *   ese archivo ya no se actualiza); un ISBN de más de ISBN_MAX bytes detiene la importación
+ *   con un error que lo nombra y no deja archivos a medias; si existen solo se recorren los registros para armar
+ *   el índice. Tras un cierre no limpio se verifica el CRC de ambos lados de cada par: un
+ *   lado incompleto se ignora y el libro queda en la versión del otro, la última forzada
+ * - sincronizar(): force() de ambos mapeos. Cuando las entradas muertas superan a las vivas
+ *   (y COMPACTAR_MINIMO) se escribe una generación nueva sin ellas y el archivo de registros
+ *   se reemplaza con un rename atómico
+ * - Los mapeos crecen al doble; cada archivo admite hasta 2 GB
+ */
+public class PersistenciaMapeada implements MotorPersistencia {
+    private static final int MAGICO = 0x53444c42; // "SDLB"
+    private static final int FORMATO = 2;
+    private static final int CABECERA = 128; // alinea los pares a 128 bytes
+    private static final int REGISTRO = 64;
+    private static final int PAR = 2 * REGISTRO;
+    private static final int ISBN_MAX = 32;
+    private static final int REGISTROS_INICIAL = 1024;
+    private static final int AREA_INICIAL = 1 << 20;
+    private static final long COMPACTAR_MINIMO = 1 << 20;
+    private static final int PAGINA = 256; // libros decodificados por toma del lock al recorrer
+
+    // Cabecera: mágico (0), formato (4), generación (8), cierre limpio (16)
+    private static final int C_GENERACION = 8;
+    private static final int C_LIMPIO = 16;
+
+    // Registro: estado (0), largo del ISBN (1), ISBN (2..33), copias (34), version (38),
+    // posición de la entrada (46), largo de la entrada (54), secuencia (58), CRC (60)
+    private static final int R_ESTADO = 0;
+    private static final int R_ISBN = 1;
+    private static final int R_COPIAS = 34;
+    private static final int R_VERSION = 38;
+    private static final int R_POSICION = 46;
+    private static final int R_LARGO = 54;
+    private static final int R_SECUENCIA = 58;
+    private static final int R_CRC = 60;
+    private static final byte LIBRE = 0;
+    private static final byte OCUPADO = 1;
+
+    private static final Libro BORRADO = new Libro(); // eliminación pendiente de eliminar()
+
+    private final Path snapshot;
+    private final Path registros;
+    private final Map<String, Libro> pendientes = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // mapeos, índice y pendientes escritos
+    private final Inventario vista = new Inventario();
+
+    private FileChannel canalRegistros;
+    private FileChannel canalArea;
+    private MappedByteBuffer regs; // null antes de cargar() y después de close()
+    private MappedByteBuffer area;
+    private long generacion;
+    private int alto;      // pares en uso o liberados desde el inicio del archivo
+    private int libros;    // pares ocupados
+    private int fin;       // bytes usados del área de préstamos
+    private long vivos;    // bytes del área referenciados por registros ocupados
+    private int[] indice;  // par + 1 por ranura (0: vacía), sondeo lineal
+    private int[] libres = new int[16];
+    private int cantidadLibres;
+    private boolean sucio = false;
+    private final BitSet sinForzar = new BitSet(); // pares escritos desde el último force()
+    private final BitSet enVuelo = new BitSet();   // pares escritos antes del force() en curso
+
+    public PersistenciaMapeada(String archivo) {
+        this.snapshot = Paths.get(archivo);
+        this.registros = Paths.get(archivo + ".libros");
+    }
+
+    @Override
+    public Map<String, Libro> crearInventario() {
+        return vista;
+    }
+
+    @Override
+    public void cargar(Map<String, Libro> inventario) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!Files.exists(registros)) importar();
+            abrir();
+            Log.info("Inventario mapeado ({} libros, {} KB de préstamos)", libros, fin / 1024);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (inventario != vista) {
+            // Un mapa propio de quien llama recibe los libros decodificados, página por página
+            for (int r = 0; r >= 0; ) r = pagina(r, PAGINA, l -> inventario.put(l.getIsbn(), l));
+        }
+    }
+
+    @Override
+    public Recorrido recorrer(Map<String, Libro> inventario) {
+        return inventario == vista ? this::pagina : MotorPersistencia.super.recorrer(inventario);
+    }
+
+    @Override
+    public void registrar(Libro libro) throws IOException {
+        String isbn = libro.getIsbn();
+        if (isbn == null || isbn.getBytes(StandardCharsets.UTF_8).length > ISBN_MAX) {
+            if (isbn != null) pendientes.remove(isbn, libro); // no cabe en el registro: el cambio se descarta
+            throw new IOException("ISBN vacío o de más de " + ISBN_MAX + " bytes: " + isbn);
+        }
+        lock.writeLock().lock();
+        try {
+            escribir(libro);
+            pendientes.remove(isbn, libro);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void eliminar(String isbn) throws IOException {
+        lock.writeLock().lock();
+        try {
+            borrar(isbn);
+            pendientes.remove(isbn, BORRADO);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public synchronized void sincronizar() throws IOException {
+        MappedByteBuffer r;
+        MappedByteBuffer a;
+        boolean compactar;
+        lock.writeLock().lock();
+        try {
+            if (regs == null) return;
+            escribirPendientes();
+            if (!sucio) return;
+            sucio = false;
+            enVuelo.or(sinForzar);
+            sinForzar.clear();
+            r = regs;
+            a = area;
+            compactar = fin - vivos > COMPACTAR_MINIMO && fin - vivos > vivos;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            // Fuera del lock: GET_LIBRO sigue leyendo mientras dura el fsync
+            a.force();
+            r.force();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                sucio = true;
+                sinForzar.or(enVuelo);
+                enVuelo.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw new IOException("No se pudo forzar el inventario mapeado a disco", e);
+        }
+        lock.writeLock().lock();
+        try {
+            enVuelo.clear(); // su lado nuevo ya está en disco: el próximo cambio usa el otro
+            if (compactar) compactar();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (regs == null) return;
+        sincronizar();
+        lock.writeLock().lock();
+        try {
+            regs.put(C_LIMPIO, (byte) 1);
+            regs.force();
+            cerrarCanales();
+            regs = null;
+            area = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //Primer arranque con mmap: el JSON de siempre pasa, libro por libro, a la generación 1
+    private void importar() throws IOException {
+        try (Reescritura nueva = new Reescritura(1)) {
+            try {
+                PersistenciaJson.leerSnapshot(snapshot, nueva::agregar);
+            } catch (IOException e) {
+                nueva.close();
+                nueva.descartar(); // el próximo arranque vuelve a importar desde cero
+                throw e;
+            }
+            nueva.terminar();
+        }
+        Log.info("Inventario importado de {}", snapshot);
+    }
+
+    //Mapea la generación vigente y arma el índice; tras un cierre no limpio ignora los lados incompletos
+    private void abrir() throws IOException {
+        canalRegistros = FileChannel.open(registros, READ, WRITE);
+        regs = canalRegistros.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(canalRegistros.size(), CABECERA + (long) PAR * REGISTROS_INICIAL));
+        if (regs.getInt(0) != MAGICO || regs.getInt(4) != FORMATO) {
+            cerrarCanales();
+            throw new IOException(registros + " no es un inventario mapeado (formato " + FORMATO + ")");
+        }
+        generacion = regs.getLong(C_GENERACION);
+        boolean limpio = regs.get(C_LIMPIO) == 1;
+        try {
+            canalArea = FileChannel.open(prestamos(generacion), READ, WRITE);
+        } catch (IOException e) {
+            canalArea = null;
+            cerrarCanales();
+            throw e;
+        }
+        area = canalArea.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(canalArea.size(), AREA_INICIAL));
+        borrarOtrasGeneraciones();
+
+        alto = 0;
+        libros = 0;
+        fin = 0;
+        vivos = 0;
+        cantidadLibres = 0;
+        sinForzar.clear();
+        enVuelo.clear();
+        int incompletos = 0;  // lados con CRC inválido: el libro queda en la versión del otro lado
+        int sinVersion = 0;   // pares sin ningún lado completo (libros nuevos que no alcanzaron a forzarse)
+        int capacidad = (regs.capacity() - CABECERA) / PAR;
+        for (int r = 0; r < capacidad; r++) {
+            if (!ocupado(r)) continue;
+            if (!limpio) {
+                int danados = 0;
+                for (int lado = 0; lado < 2; lado++) {
+                    int base = base(r, lado);
+                    if (regs.get(base + R_ESTADO) == OCUPADO && !crcValido(base)) {
+                        regs.put(base + R_ESTADO, LIBRE);
+                        danados++;
+                    }
+                }
+                if (!ocupado(r)) {
+                    sinVersion++;
+                    continue;
+                }
+                incompletos += danados;
+            }
+            libros++;
+            alto = r + 1;
+            vivos += regs.getInt(vigente(r) + R_LARGO);
+            for (int lado = 0; lado < 2; lado++) {
+                // la entrada del lado anterior también se conserva hasta compactar
+                int base = base(r, lado);
+                if (regs.get(base + R_ESTADO) == OCUPADO) {
+                    fin = Math.max(fin, (int) regs.getLong(base + R_POSICION) + regs.getInt(base + R_LARGO));
+                }
+            }
+        }
+        indice = new int[Math.max(1024, Integer.highestOneBit(4 * Math.max(1, libros)))];
+        for (int r = 0; r < alto; r++) {
+            if (!ocupado(r)) {
+                liberar(r);
+                continue;
+            }
+            int s = ranura(isbnBytes(r));
+            if (s < 0) {
+                insertar(r);
+                continue;
+            }
+            // ISBN repetido en el JSON importado: queda el último, como al cargarlo en un mapa
+            int previo = indice[s] - 1;
+            indice[s] = r + 1;
+            vivos -= regs.getInt(vigente(previo) + R_LARGO);
+            vaciarPar(previo);
+            libros--;
+            liberar(previo);
+        }
+        regs.put(C_LIMPIO, (byte) 0);
+        regs.force(); // hasta close() el archivo cuenta como no limpio
+        if (incompletos > 0) {
+            Log.aviso("Inventario mapeado: {} registros incompletos ignorados, esos libros quedan en su última versión forzada", incompletos);
+        }
+        if (sinVersion > 0) {
+            Log.aviso("Inventario mapeado: {} libros nuevos sin ninguna versión forzada no se recuperan", sinVersion);
+        }
+    }
+
+    private void cerrarCanales() throws IOException {
+        try {
+            canalRegistros.close();
+        } finally {
+            if (canalArea != null) canalArea.close();
+        }
+    }
+
+    private Path prestamos(long gen) {
+        return Paths.get(snapshot + ".prestamos." + gen);
+    }
+
+    //Quita las áreas de otras generaciones y el temporal de una compactación interrumpida
+    private void borrarOtrasGeneraciones() throws IOException {
+        Path dir = registros.toAbsolutePath().getParent();
+        String prefijo = snapshot.getFileName() + ".prestamos.";
+        String vigente = prefijo + generacion;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, p -> p.getFileName().toString().startsWith(prefijo))) {
+            for (Path p : ds) {
+                if (!p.getFileName().toString().equals(vigente)) Files.deleteIfExists(p);
+            }
+        }
+        Files.deleteIfExists(Paths.get(registros + ".tmp"));
+    }
+
+    //Reescribe registros y área sin entradas muertas en la generación siguiente; cada libro conserva su par
+    private void compactar() throws IOException {
+        int antes = fin;
+        try (Reescritura nueva = new Reescritura(generacion + 1)) {
+            for (int r = 0; r < alto; r++) {
+                if (!ocupado(r)) {
+                    nueva.vacio();
+                    continue;
+                }
+                int base = vigente(r);
+                byte[] isbn = isbnBytes(r);
+                ByteBuffer entrada = desde(area, (int) regs.getLong(base + R_POSICION));
+                ((Buffer) entrada).limit(entrada.position() + regs.getInt(base + R_LARGO));
+                nueva.agregar(isbn, regs.getInt(base + R_COPIAS), regs.getLong(base + R_VERSION), entrada);
+            }
+            nueva.terminar();
+        }
+        cerrarCanales();
+        abrir();
+        Log.info("Inventario mapeado compactado ({} KB -> {} KB de préstamos)", antes / 1024, fin / 1024);
+    }
+
+    //Cambios que registrar()/eliminar() no alcanzaron a escribir (bajo el lock de escritura)
+    private void escribirPendientes() throws IOException {
+        for (Map.Entry<String, Libro> e : pendientes.entrySet()) {
+            if (e.getValue() == BORRADO) {
+                borrar(e.getKey());
+            } else if (e.getKey().getBytes(StandardCharsets.UTF_8).length <= ISBN_MAX) {
+                escribir(e.getValue());
+            } else {
+                continue;
+            }
+            pendientes.remove(e.getKey(), e.getValue());
+        }
+    }
+
+    /*
+     * Agrega la entrada del libro al área y escribe su registro. Si el lado vigente ya se forzó
+     * el registro va al otro lado con la secuencia siguiente; si no, se reescribe el vigente
+     * (el otro sigue siendo la versión en disco)
+     */
+    private void escribir(Libro libro) throws IOException {
+        if (regs == null) throw new IOException("Inventario mapeado cerrado");
+        byte[] isbn = libro.getIsbn().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entrada = codificar(libro);
+        int largo = entrada.remaining();
+        asegurarArea((long) fin + largo);
+        int s = ranura(isbn);
+        int r = s >= 0 ? indice[s] - 1 : nuevoRegistro();
+        int lado = lado(r);
+        if (s >= 0) vivos -= regs.getInt(base(r, lado) + R_LARGO);
+        byte secuencia = regs.get(base(r, lado) + R_SECUENCIA);
+        if (!sinForzar.get(r) && !enVuelo.get(r)) {
+            lado ^= 1;
+            secuencia++;
+        }
+
+        byte[] registro = new byte[REGISTRO];
+        llenarRegistro(registro, isbn, libro.getCopiasDisponibles(), libro.getVersion(), secuencia, fin, entrada);
+        desde(area, fin).put(entrada);
+        desde(regs, base(r, lado)).put(registro); // la entrada ya está escrita cuando el registro apunta a ella
+        sinForzar.set(r);
+        fin += largo;
+        vivos += largo;
+        sucio = true;
+        if (s < 0) {
+            libros++;
+            if (2 * libros > indice.length) reconstruirIndice(2 * indice.length);
+            else insertar(r);
+        }
+    }
+
+    private void borrar(String isbn) throws IOException {
+        if (regs == null) throw new IOException("Inventario mapeado cerrado");
+        int s = ranura(isbn.getBytes(StandardCharsets.UTF_8));
+        if (s < 0) return;
+        int r = indice[s] - 1;
+        borrarRanura(s);
+        vivos -= regs.getInt(vigente(r) + R_LARGO);
+        vaciarPar(r);
+        sinForzar.set(r); // no se reusa hasta que el borrado esté en disco (nuevoRegistro)
+        libros--;
+        liberar(r);
+        sucio = true;
+    }
+
+    //Si el libro está guardado, sin decodificarlo (solo el índice)
+    private boolean existe(String isbn) {
+        byte[] clave = isbn.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            return regs != null && ranura(clave) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Libro leer(String isbn) {
+        byte[] clave = isbn.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            if (regs == null) return null;
+            int s = ranura(clave);
+            return s < 0 ? null : decodificar(indice[s] - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Libro decodificar(int r) {
+        int base = vigente(r);
+        ByteBuffer entrada = desde(area, (int) regs.getLong(base + R_POSICION));
+        int largoTitulo = entrada.getInt();
+        String titulo = null;
+        if (largoTitulo >= 0) {
+            byte[] t = new byte[largoTitulo];
+            entrada.get(t);
+            titulo = new String(t, StandardCharsets.UTF_8);
+        }
+        Libro libro = new Libro(isbnDe(r), titulo, regs.getInt(base + R_COPIAS));
+        libro.setVersion(regs.getLong(base + R_VERSION));
+        libro.leerPrestamos(entrada);
+        return libro;
+    }
+
+    private String isbnDe(int r) {
+        return new String(isbnBytes(r), StandardCharsets.UTF_8);
+    }
+
+    private byte[] isbnBytes(int r) {
+        int base = vigente(r);
+        byte[] isbn = new byte[regs.get(base + R_ISBN)];
+        desde(regs, base + R_ISBN + 1).get(isbn);
+        return isbn;
+    }
+
+    //Entrada del área: título (int con el largo, -1 si es null, + UTF-8) y préstamos
+    private static ByteBuffer codificar(Libro libro) {
+        byte[] titulo = libro.getTitulo() == null ? null : libro.getTitulo().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer b = ByteBuffer.allocate(4 + (titulo == null ? 0 : titulo.length) + libro.bytesPrestamos());
+        if (titulo == null) b.putInt(-1);
+        else b.putInt(titulo.length).put(titulo);
+        libro.escribirPrestamos(b);
+        ((Buffer) b).flip();
+        return b;
+    }
+
+    private static void llenarRegistro(byte[] registro, byte[] isbn, int copias, long version, byte secuencia, int posicion, ByteBuffer entrada) {
+        Arrays.fill(registro, (byte) 0);
+        ByteBuffer b = ByteBuffer.wrap(registro);
+        b.put(R_ESTADO, OCUPADO).put(R_ISBN, (byte) isbn.length);
+        System.arraycopy(isbn, 0, registro, R_ISBN + 1, isbn.length);
+        b.putInt(R_COPIAS, copias).putLong(R_VERSION, version).putLong(R_POSICION, posicion).putInt(R_LARGO, entrada.remaining());
+        b.put(R_SECUENCIA, secuencia);
+        b.putInt(R_CRC, crc(registro, entrada.duplicate()));
+    }
+
+    private static int crc(byte[] registro, ByteBuffer entrada) {
+        CRC32 crc = new CRC32();
+        crc.update(registro, 0, R_CRC);
+        crc.update(entrada);
+        return (int) crc.getValue();
+    }
+
+    private boolean crcValido(int base) {
+        int largoIsbn = regs.get(base + R_ISBN);
+        long posicion = regs.getLong(base + R_POSICION);
+        int largo = regs.getInt(base + R_LARGO);
+        if (largoIsbn < 0 || largoIsbn > ISBN_MAX || posicion < 0 || largo < 0 || posicion + largo > area.capacity()) return false;
+        byte[] registro = new byte[REGISTRO];
+        desde(regs, base).get(registro);
+        ByteBuffer entrada = desde(area, (int) posicion);
+        ((Buffer) entrada).limit((int) posicion + largo);
+        return crc(registro, entrada) == regs.getInt(base + R_CRC);
+    }
+
+    // Vista independiente del buffer compartido (posición propia) desde el byte indicado
+    private static ByteBuffer desde(ByteBuffer mapeo, int posicion) {
+        ByteBuffer b = mapeo.duplicate();
+        ((Buffer) b).position(posicion);
+        return b;
+    }
+
+    private static int base(int r, int lado) {
+        return CABECERA + r * PAR + lado * REGISTRO;
+    }
+
+    //Lado vigente del par: el ocupado o, si lo están ambos, el de secuencia siguiente a la del otro
+    private int lado(int r) {
+        boolean cero = regs.get(base(r, 0) + R_ESTADO) == OCUPADO;
+        boolean uno = regs.get(base(r, 1) + R_ESTADO) == OCUPADO;
+        if (cero && uno) return (byte) (regs.get(base(r, 0) + R_SECUENCIA) - regs.get(base(r, 1) + R_SECUENCIA)) == 1 ? 0 : 1;
+        return cero ? 0 : 1;
+    }
+
+    private int vigente(int r) {
+        return base(r, lado(r));
+    }
+
+    private boolean ocupado(int r) {
+        return regs.get(base(r, 0) + R_ESTADO) == OCUPADO || regs.get(base(r, 1) + R_ESTADO) == OCUPADO;
+    }
+
+    private void vaciarPar(int r) {
+        regs.put(base(r, 0) + R_ESTADO, LIBRE);
+        regs.put(base(r, 1) + R_ESTADO, LIBRE);
+    }
+
+    //Par libre cuyo borrado ya está en disco; si no hay, uno nuevo al final
+    private int nuevoRegistro() throws IOException {
+        for (int i = cantidadLibres - 1; i >= 0; i--) {
+            int r = libres[i];
+            if (sinForzar.get(r) || enVuelo.get(r)) continue;
+            libres[i] = libres[--cantidadLibres];
+            return r;
+        }
+        asegurarRegistros(alto + 1);
+        return alto++;
+    }
+
+    private void liberar(int r) {
+        if (cantidadLibres == libres.length) libres = Arrays.copyOf(libres, 2 * cantidadLibres);
+        libres[cantidadLibres++] = r;
+    }
+
+    private void asegurarRegistros(int cantidad) throws IOException {
+        long necesario = CABECERA + (long) cantidad * PAR;
+        if (necesario > regs.capacity()) {
+            regs = canalRegistros.map(FileChannel.MapMode.READ_WRITE, 0, crecer(regs.capacity(), necesario, registros));
+        }
+    }
+
+    private void asegurarArea(long necesario) throws IOException {
+        if (necesario > area.capacity()) {
+            area = canalArea.map(FileChannel.MapMode.READ_WRITE, 0, crecer(area.capacity(), necesario, prestamos(generacion)));
+        }
+    }
+
+    private static long crecer(long capacidad, long necesario, Path archivo) throws IOException {
+        long nueva = capacidad;
+        while (nueva < necesario) nueva *= 2;
+        nueva = Math.min(nueva, Integer.MAX_VALUE);
+        if (nueva < necesario) throw new IOException(archivo + " superaría 2 GB");
+        return nueva;
+    }
+
+    // Índice ISBN -> registro: sondeo lineal como Prestamos; las claves se comparan contra el archivo
+
+    private static int hash(byte[] isbn) {
+        int h = 0;
+        for (byte b : isbn) h = 31 * h + b;
+        return h;
+    }
+
+    private int hashRegistro(int r) {
+        int base = vigente(r) + R_ISBN;
+        int h = 0;
+        for (int i = 1, n = regs.get(base); i <= n; i++) h = 31 * h + regs.get(base + i);
+        return h;
+    }
+
+    private int inicio(int h) {
+        h *= 0x9E3779B9;
+        return (h ^ h >>> 16) & (indice.length - 1);
+    }
+
+    private boolean mismoIsbn(int r, byte[] isbn) {
+        int base = vigente(r) + R_ISBN;
+        if (regs.get(base) != isbn.length) return false;
+        for (int i = 0; i < isbn.length; i++) if (regs.get(base + 1 + i) != isbn[i]) return false;
+        return true;
+    }
+
+    private int ranura(byte[] isbn) {
+        if (isbn.length > ISBN_MAX) return -1;
+        int m = indice.length - 1;
+        for (int s = inicio(hash(isbn)); indice[s] != 0; s = (s + 1) & m) {
+            if (mismoIsbn(indice[s] - 1, isbn)) return s;
+        }
+        return -1;
+    }
+
+    private void insertar(int r) {
+        int m = indice.length - 1;
+        int s = inicio(hashRegistro(r));
+        while (indice[s] != 0) s = (s + 1) & m;
+        indice[s] = r + 1;
+    }
+
+    // Borrado en sondeo lineal: corre hacia atrás las entradas que quedarían inalcanzables
+    private void borrarRanura(int libre) {
+        int m = indice.length - 1;
+        for (int s = (libre + 1) & m; indice[s] != 0; s = (s + 1) & m) {
+            int ideal = inicio(hashRegistro(indice[s] - 1));
+            boolean alcanzable = libre <= s ? libre < ideal && ideal <= s : libre < ideal || ideal <= s;
+            if (!alcanzable) {
+                indice[libre] = indice[s];
+                libre = s;
+            }
+        }
+        indice[libre] = 0;
+    }
+
+    private void reconstruirIndice(int capacidad) {
+        indice = new int[capacidad];
+        for (int r = 0; r < alto; r++) {
+            if (ocupado(r)) insertar(r);
+        }
+    }
+
+    /*
+     * Generación completa en archivos nuevos: un par por libro en <archivo>.libros.tmp (solo el
+     * lado 0) y área sin entradas muertas. terminar() fuerza ambos a disco y renombra el de registros;
+     * ese rename es el cambio de generación (una caída antes deja la anterior intacta)
+     */
+    private final class Reescritura implements Closeable {
+        private final Path tmp = Paths.get(registros + ".tmp");
+        private final Path destinoArea;
+        private final FileChannel salidaRegistros;
+        private final FileChannel salidaArea;
+        private final ByteBuffer lote = ByteBuffer.allocate(PAR * 512);
+        private final byte[] registro = new byte[REGISTRO];
+        private final byte[] vacio = new byte[REGISTRO];
+        private int posicion = 0;
+
+        Reescritura(long gen) throws IOException {
+            salidaRegistros = FileChannel.open(tmp, CREATE, TRUNCATE_EXISTING, WRITE);
+            destinoArea = prestamos(gen);
+            salidaArea = FileChannel.open(destinoArea, CREATE, TRUNCATE_EXISTING, WRITE);
+            lote.putInt(MAGICO).putInt(FORMATO).putLong(gen).put((byte) 1); // completa y forzada: cierre limpio
+            ((Buffer) lote).position(CABECERA);
+        }
+
+        void agregar(Libro libro) throws IOException {
+            byte[] isbn = libro.getIsbn().getBytes(StandardCharsets.UTF_8);
+            if (isbn.length > ISBN_MAX) {
+                throw new IOException("ISBN de más de " + ISBN_MAX + " bytes: " + libro.getIsbn()
+                        + " (límite de -Dga.persistencia=mmap; use wal o json para este inventario)");
+            }
+            agregar(isbn, libro.getCopiasDisponibles(), libro.getVersion(), codificar(libro));
+        }
+
+        void agregar(byte[] isbn, int copias, long version, ByteBuffer entrada) throws IOException {
+            int largo = entrada.remaining();
+            if ((long) posicion + largo > Integer.MAX_VALUE) throw new IOException(destinoArea + " superaría 2 GB");
+            llenarRegistro(registro, isbn, copias, version, (byte) 0, posicion, entrada);
+            while (entrada.hasRemaining()) salidaArea.write(entrada);
+            posicion += largo;
+            if (lote.remaining() < PAR) vaciar();
+            lote.put(registro).put(vacio);
+        }
+
+        //Par libre (la compactación mantiene la posición de los libros siguientes)
+        void vacio() throws IOException {
+            if (lote.remaining() < PAR) vaciar();
+            lote.put(vacio).put(vacio);
+        }
+
+        void terminar() throws IOException {
+            vaciar();
+            salidaArea.force(true);
+            salidaRegistros.force(true);
+            close();
+            Files.move(tmp, registros, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        //Borra los archivos de una generación que no se terminó (ya cerrada)
+        void descartar() throws IOException {
+            Files.deleteIfExists(tmp);
+            Files.deleteIfExists(destinoArea);
+        }
+
+        private void vaciar() throws IOException {
+            ((Buffer) lote).flip();
+            while (lote.hasRemaining()) salidaRegistros.write(lote);
+            ((Buffer) lote).clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                salidaRegistros.close();
+            } finally {
+                salidaArea.close();
+            }
+        }
+    }
+
+    /*
+     * Libros guardados desde el par indicado, hasta limite ocupados (con el cambio pendiente si
+     * lo hay); al llegar al final agrega los libros nuevos aún pendientes. Retorna el par
+     * siguiente o -1 al terminar. Decodifica bajo el lock de lectura y entrega fuera de él
+     */
+    private int pagina(int desde, int limite, Consumer<Libro> destino) {
+        List<Libro> pagina = new ArrayList<>(Math.min(limite, PAGINA));
+        int r = Math.max(0, desde);
+        lock.readLock().lock();
+        try {
+            if (regs == null) return -1;
+            for (; r < alto && pagina.size() < limite; r++) {
+                if (!ocupado(r)) continue;
+                Libro p = pendientes.get(isbnDe(r));
+                if (p == BORRADO) continue;
+                pagina.add(p != null ? p : decodificar(r));
+            }
+            if (r >= alto) {
+                for (Map.Entry<String, Libro> e : pendientes.entrySet()) {
+                    if (e.getValue() != BORRADO && ranura(e.getKey().getBytes(StandardCharsets.UTF_8)) < 0) pagina.add(e.getValue());
+                }
+                r = -1;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        pagina.forEach(destino);
+        return r;
+    }
+
+    /*
+     * Mapa del GA sobre los archivos: get devuelve el cambio pendiente o decodifica el
+     * registro; put/remove anotan el cambio como pendiente. keySet es una copia de los ISBN
+     * tomada bajo el lock de lectura (LISTAR_ISBN); entrySet/values recorren los pares de a
+     * PAGINA libros, sin decodificar el catálogo completo
+     */
+    private final class Inventario extends AbstractMap<String, Libro> {
+        @Override
+        public Libro get(Object clave) {
+            Libro p = pendientes.get(clave);
+            if (p != null) return p == BORRADO ? null : p;
+            return leer((String) clave);
+        }
+
+        @Override
+        public boolean containsKey(Object clave) {
+            Libro p = pendientes.get(clave);
+            if (p != null) return p != BORRADO;
+            return existe((String) clave);
+        }
+
+        @Override
+        public Libro put(String isbn, Libro libro) {
+            pendientes.put(isbn, libro);
+            return null;
+        }
+
+        @Override
+        public Libro remove(Object clave) {
+            if (containsKey(clave)) pendientes.put((String) clave, BORRADO);
+            return null;
+        }
+
+        @Override
+        public int size() {
+            lock.readLock().lock();
+            try {
+                int n = regs == null ? 0 : libros;
+                for (Map.Entry<String, Libro> e : pendientes.entrySet()) {
+                    boolean guardado = regs != null && ranura(e.getKey().getBytes(StandardCharsets.UTF_8)) >= 0;
+                    if (e.getValue() == BORRADO) {
+                        if (guardado) n--;
+                    } else if (!guardado) {
+                        n++;
+                    }
+                }
+                return n;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Set<String> keySet() {
+            Set<String> copia = new LinkedHashSet<>();
+            lock.readLock().lock();
+            try {
+                for (int r = 0; regs != null && r < alto; r++) {
+                    if (ocupado(r)) copia.add(isbnDe(r));
+                }
+                for (Map.Entry<String, Libro> e : pendientes.entrySet()) {
+                    if (e.getValue() == BORRADO) copia.remove(e.getKey());
+                    else copia.add(e.getKey());
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return Collections.unmodifiableSet(copia);
+        }
+
+        @Override
+        public Set<Map.Entry<String, Libro>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Libro>>() {
+                @Override
+                public int size() {
+                    return Inventario.this.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<String, Libro>> iterator() {
+                    return new Iterator<Map.Entry<String, Libro>>() {
+                        private final ArrayDeque<Libro> tomados = new ArrayDeque<>();
+                        private int siguiente = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            while (tomados.isEmpty() && siguiente >= 0) siguiente = pagina(siguiente, PAGINA, tomados::add);
+                            return !tomados.isEmpty();
+                        }
+
+                        @Override
+                        public Map.Entry<String, Libro> next() {
+                            if (!hasNext()) throw new NoSuchElementException();
+                            Libro l = tomados.poll();
+                            return new AbstractMap.SimpleImmutableEntry<>(l.getIsbn(), l);
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
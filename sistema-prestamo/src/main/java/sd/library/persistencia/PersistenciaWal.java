@@ -0,0 +1,275 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.persistencia;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import sd.library.Log;
+import sd.library.model.Libro;
+
+/*
+ * Persistencia con log de escritura anticipada (WAL)
+ * - Snapshot: el archivo de inventario de siempre (arreglo JSON)
+ * - Log: <archivo>.wal, un registro JSON compacto por línea
+ *     {"op":"U","libro":{...}}   alta o modificación (estado completo del libro)
+ *     {"op":"D","isbn":"..."}    eliminación
+ * - Cada cambio cuesta un append, independiente del tamaño del catálogo
+ * - Cada -Dga.compactarCada registros el log se rota: <archivo>.wal pasa a <archivo>.wal.anterior
+ *   y se sigue anexando a un log vacío. Un hilo aparte escribe el snapshot nuevo y luego borra
+ *   el anterior, así el lote que dispara la compactación no paga el costo O(catálogo)
+ * - Al arrancar: snapshot + log anterior (si lo hay) + log. Los registros son idempotentes y
+ *   todo cambio posterior a la rotación está en el log nuevo, así que un snapshot tomado
+ *   mientras llegan escrituras, o una caída entre snapshot y borrado, no pierden ni duplican
+ *   nada. Un registro final incompleto (caída a mitad de escritura) se descarta; uno dañado
+ *   en medio del log detiene la carga con error (lo que sigue no se puede aplicar en orden)
+ *
+ * fsync (propiedad -Dga.fsync):
+ * - siempre (por defecto): force() en cada sincronizar()
+ * - grupo: force() como máximo cada -Dga.fsyncMs ms (compromete los últimos ms ante un corte de luz)
+ * - nunca: solo se vacía el buffer al sistema operativo
+ */
+public class PersistenciaWal implements MotorPersistencia {
+    private static final Gson gson = new Gson(); // compacto, una línea por registro
+
+    private static final int COMPACTAR_CADA = Integer.getInteger("ga.compactarCada", 10_000);
+    private static final String FSYNC = System.getProperty("ga.fsync", "siempre");
+    private static final long FSYNC_MS = Long.getLong("ga.fsyncMs", 50L);
+
+    private final Path snapshot;
+    private final Path log;
+    private final Path anterior;
+    private Map<String, Libro> inventario;
+
+    private FileOutputStream salida;
+    private FileChannel canal;
+    private BufferedWriter escritor;
+    private int registros = 0;          // registros en el log desde el último snapshot
+    private boolean logDanado = false;  // el log terminaba en un registro incompleto
+    private boolean pendienteFsync = false;
+    private ScheduledExecutorService fsyncPeriodico;
+    private ExecutorService compactador;
+    private boolean compactando = false;   // snapshot en curso en el hilo wal-compactar
+    private boolean hayAnterior = false;   // log rotado que el snapshot todavía no cubre
+
+    public PersistenciaWal(String archivo) {
+        this.snapshot = Paths.get(archivo);
+        this.log = Paths.get(archivo + ".wal");
+        this.anterior = Paths.get(archivo + ".wal.anterior");
+    }
+
+    @Override
+    public void cargar(Map<String, Libro> inventario) throws IOException {
+        this.inventario = inventario;
+        PersistenciaJson.leerSnapshot(snapshot, inventario);
+        hayAnterior = Files.exists(anterior);
+        int reaplicados = (hayAnterior ? reaplicarLog(anterior) : 0) + reaplicarLog(log);
+        Log.info("Inventario cargado ({} libros, {} registros del WAL)", inventario.size(), reaplicados);
+
+        abrirLog(true);
+        registros = reaplicados;
+        // No seguir anexando detrás de un registro incompleto; un anterior sin cubrir se cierra ya
+        if (logDanado || hayAnterior) compactarAhora();
+        compactador = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "wal-compactar");
+            t.setDaemon(true);
+            return t;
+        });
+        if (FSYNC.equalsIgnoreCase("grupo")) {
+            fsyncPeriodico = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "wal-fsync");
+                t.setDaemon(true);
+                return t;
+            });
+            fsyncPeriodico.scheduleAtFixedRate(this::forzarPendiente, FSYNC_MS, FSYNC_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void registrar(Libro libro) throws IOException {
+        JsonObject r = new JsonObject();
+        r.addProperty("op", "U");
+        r.add("libro", gson.toJsonTree(libro));
+        anexar(r);
+    }
+
+    @Override
+    public synchronized void eliminar(String isbn) throws IOException {
+        JsonObject r = new JsonObject();
+        r.addProperty("op", "D");
+        r.addProperty("isbn", isbn);
+        anexar(r);
+    }
+
+    @Override
+    public synchronized void sincronizar() throws IOException {
+        escritor.flush();
+        if (FSYNC.equalsIgnoreCase("siempre")) {
+            canal.force(false);
+        } else if (FSYNC.equalsIgnoreCase("grupo")) {
+            pendienteFsync = true;
+        }
+        if (registros >= COMPACTAR_CADA && !compactando) rotar();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (compactador != null) {
+            compactador.shutdown(); // el snapshot en curso termina; sin él se relee el anterior
+            try {
+                compactador.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        cerrarLog();
+    }
+
+    private synchronized void cerrarLog() throws IOException {
+        if (fsyncPeriodico != null) fsyncPeriodico.shutdownNow();
+        if (escritor != null) {
+            escritor.flush();
+            canal.force(false);
+            escritor.close();
+            escritor = null;
+        }
+    }
+
+    private void anexar(JsonObject registro) throws IOException {
+        escritor.write(registro.toString());
+        escritor.write('\n');
+        registros++;
+    }
+
+    //Cierra el log (ya forzado) como anterior, abre uno vacío y encarga el snapshot al hilo aparte
+    private void rotar() throws IOException {
+        if (!hayAnterior) {
+            escritor.close();
+            Files.move(log, anterior, StandardCopyOption.ATOMIC_MOVE);
+            abrirLog(false);
+            hayAnterior = true;
+            pendienteFsync = false;
+        } // si no, un snapshot anterior falló: se reintenta sin rotar otra vez
+        registros = 0;
+        compactando = true;
+        compactador.execute(this::escribirSnapshot);
+    }
+
+    // Hilo wal-compactar: el inventario se lee sin el lock del motor (los cambios que entren
+    // mientras tanto también están en el log nuevo)
+    private void escribirSnapshot() {
+        try {
+            long inicio = System.currentTimeMillis();
+            PersistenciaJson.escribirSnapshot(snapshot, inventario.values());
+            Files.deleteIfExists(anterior);
+            synchronized (this) {
+                hayAnterior = false;
+            }
+            Log.info("WAL compactado en snapshot ({} libros, {} ms)", inventario.size(), System.currentTimeMillis() - inicio);
+        } catch (IOException | RuntimeException e) {
+            Log.error("WAL no pudo escribir el snapshot; se conserva el log anterior", e);
+        } finally {
+            synchronized (this) {
+                compactando = false;
+            }
+        }
+    }
+
+    //Snapshot nuevo y logs vacíos en el hilo que llama (arranque)
+    private void compactarAhora() throws IOException {
+        PersistenciaJson.escribirSnapshot(snapshot, inventario.values());
+        escritor.close();
+        abrirLog(false);
+        Files.deleteIfExists(anterior);
+        hayAnterior = false;
+        registros = 0;
+        pendienteFsync = false;
+        Log.info("WAL compactado en snapshot ({} libros)", inventario.size());
+    }
+
+    private void abrirLog(boolean anexar) throws IOException {
+        salida = new FileOutputStream(log.toFile(), anexar);
+        canal = salida.getChannel();
+        escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+    }
+
+    private synchronized void forzarPendiente() {
+        if (!pendienteFsync || escritor == null) return;
+        try {
+            canal.force(false);
+            pendienteFsync = false;
+        } catch (IOException e) {
+            Log.error("Error en fsync del WAL", e);
+        }
+    }
+
+    //Aplica sobre el inventario los registros del log; una última línea incompleta se ignora
+    private int reaplicarLog(Path archivo) throws IOException {
+        if (!Files.exists(archivo)) return 0;
+        try (RandomAccessFile raf = new RandomAccessFile(archivo.toFile(), "r")) {
+            if (raf.length() > 0) {
+                raf.seek(raf.length() - 1);
+                if (raf.read() != '\n') logDanado = true; // última línea sin terminar
+            }
+        }
+        int n = 0;
+        int numero = 0;
+        try (BufferedReader br = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String linea = br.readLine();
+            while (linea != null) {
+                numero++;
+                String siguiente = br.readLine();
+                if (!linea.isEmpty()) {
+                    try {
+                        aplicar(JsonParser.parseString(linea).getAsJsonObject());
+                        n++;
+                    } catch (RuntimeException e) {
+                        if (siguiente != null) {
+                            // Saltarlo cambiaría el orden de los cambios: no se sigue a ciegas
+                            IOException danado = new IOException("WAL " + archivo + " dañado en el registro " + numero
+                                    + " (quedan registros después); revisar o restaurar desde la réplica", e);
+                            Log.error(danado.getMessage(), e);
+                            throw danado;
+                        }
+                        Log.aviso("WAL: registro incompleto al final de {}, se descarta", archivo);
+                        logDanado = true;
+                    }
+                }
+                linea = siguiente;
+            }
+        }
+        return n;
+    }
+
+    private void aplicar(JsonObject r) {
+        if ("D".equals(r.get("op").getAsString())) {
+            inventario.remove(r.get("isbn").getAsString());
+        } else {
+            Libro l = gson.fromJson(r.get("libro"), Libro.class);
+            inventario.put(l.getIsbn(), l);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import sd.library.model.Libro;
+
+/*
+ * Diario de resync del secundario: solo se reenvía lo durable (marca/sincronizar), reapertura
+ * tras una caída con la última línea a medias, confirmación por lotes y reenvío al primario
+ * con APLICAR_LOTE, que se puede repetir sin cambiar el resultado
+ */
+public class DiarioResyncTest {
+    private static final Gson gson = new Gson();
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private String archivo;
+
+    @Before
+    public void crear() {
+        archivo = new File(carpeta.getRoot(), "ga.resync").getPath();
+    }
+
+    @Test
+    public void soloEntregaLoQueQuedoDurable() throws IOException {
+        DiarioResync diario = abrir();
+        diario.anotar(copia("0001", 1));
+        diario.anotar(copia("0002", 1));
+        int marca = diario.marca();
+        diario.anotar(copia("0003", 1)); // llegó después de tomar la marca
+        assertEquals(0, diario.tomar(10).size());
+
+        diario.sincronizar(marca);
+        assertEquals(2, diario.tomar(10).size());
+        assertEquals(1, diario.tomar(1).size());
+        assertEquals(3, diario.pendientes());
+
+        diario.sincronizar(diario.marca());
+        assertEquals(3, diario.tomar(10).size());
+        diario.close();
+    }
+
+    @Test
+    public void reabreDescartandoLaLineaIncompleta() throws IOException {
+        DiarioResync diario = abrir();
+        for (int i = 1; i <= 3; i++) diario.anotar(copia("000" + i, i));
+        diario.sincronizar(diario.marca());
+        diario.close();
+        String cortada = copia("0004", 1);
+        Files.write(Paths.get(archivo), cortada.substring(0, cortada.length() / 2).getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND); // caída a mitad de la escritura
+
+        DiarioResync otro = abrir();
+        assertEquals(3, otro.pendientes());
+        List<String> lote = otro.tomar(10);
+        assertEquals(copia("0003", 3), lote.get(2));
+        assertEquals(3, Files.readAllLines(Paths.get(archivo), StandardCharsets.UTF_8).size()); // reescrito sin ella
+
+        otro.anotar(copia("0005", 1)); // se sigue anexando en una línea propia
+        otro.sincronizar(otro.marca());
+        otro.close();
+        assertEquals(4, abrir().pendientes());
+    }
+
+    @Test
+    public void confirmarQuitaLoReenviado() throws IOException {
+        DiarioResync diario = abrir();
+        for (int i = 1; i <= 5; i++) diario.anotar(copia("000" + i, i));
+        diario.sincronizar(diario.marca());
+        diario.confirmar(diario.tomar(2).size());
+        assertEquals(3, diario.pendientes());
+        assertEquals(copia("0003", 3), diario.tomar(1).get(0));
+
+        diario.confirmar(diario.tomar(10).size());
+        assertEquals(0, diario.pendientes());
+        assertEquals(0, Files.size(Paths.get(archivo))); // vacío: el archivo se reescribe
+        diario.close();
+        assertEquals(0, abrir().pendientes());
+    }
+
+    @Test
+    public void escriturasDeFailoverVuelvenAlPrimario() throws IOException {
+        ProcesadorGA secundario = procesador("secundario", new DiarioResync(archivo));
+        ProcesadorGA primario = procesador("primario", null);
+        operar(secundario, "PRESTAR", "0020", "USUARIO1");
+        operar(secundario, "PRESTAR", "0020", "USUARIO2");
+        operar(secundario, "DEVOLVER", "0020", "USUARIO1");
+        JsonObject eliminar = new JsonObject();
+        eliminar.addProperty("isbn", "0021");
+        assertEquals("OK", secundario.procesar("ELIMINAR_LIBRO", eliminar).get("estatus").getAsString());
+        secundario.sincronizar();
+
+        DiarioResync diario = secundario.getDiario();
+        List<String> lote = diario.tomar(10);
+        assertEquals(4, lote.size());
+        JsonObject aplicar = lote(lote);
+        assertEquals("OK", primario.procesar("APLICAR_LOTE", aplicar).get("estatus").getAsString());
+        assertEquals("OK", primario.procesar("APLICAR_LOTE", aplicar).get("estatus").getAsString()); // reenvío tras un timeout
+        diario.confirmar(lote.size());
+
+        Libro enPrimario = leer(primario, "0020");
+        assertEquals(gson.toJson(leer(secundario, "0020")), gson.toJson(enPrimario));
+        assertEquals(3, enPrimario.getVersion());
+        assertTrue(enPrimario.estaPrestadoA("USUARIO2"));
+        assertNull(leer(primario, "0021"));
+        assertEquals(0, diario.pendientes());
+    }
+
+    private DiarioResync abrir() throws IOException {
+        DiarioResync diario = new DiarioResync(archivo);
+        diario.cargar();
+        return diario;
+    }
+
+    private static String copia(String isbn, long version) {
+        Libro l = new Libro(isbn, "Titulo", 3);
+        l.setVersion(version);
+        return ProcesadorGA.updateCopia(gson.toJsonTree(l).getAsJsonObject()).toString();
+    }
+
+    private static JsonObject lote(List<String> entradas) {
+        JsonArray ops = new JsonArray();
+        for (String e : entradas) ops.add(JsonParser.parseString(e));
+        JsonObject pedido = new JsonObject();
+        pedido.addProperty("type", "APLICAR_LOTE");
+        pedido.add("ops", ops);
+        return pedido;
+    }
+
+    private ProcesadorGA procesador(String nombre, DiarioResync diario) throws IOException {
+        MotorMemoria motor = new MotorMemoria();
+        for (String isbn : Arrays.asList("0020", "0021")) motor.durable.put(isbn, new Libro(isbn, "Rayuela", 3));
+        ProcesadorGA ga = new ProcesadorGA(motor, new PosicionReplica(new File(carpeta.getRoot(), nombre + ".repl").getPath()), diario);
+        ga.cargar();
+        return ga;
+    }
+
+    private static void operar(ProcesadorGA ga, String tipo, String isbn, String usuario) {
+        JsonObject req = new JsonObject();
+        req.addProperty("type", tipo);
+        req.addProperty("isbn", isbn);
+        req.addProperty("usuario", usuario);
+        assertEquals("OK", ga.procesar(tipo, req).get("estatus").getAsString());
+    }
+
+    private static Libro leer(ProcesadorGA ga, String isbn) {
+        JsonObject req = new JsonObject();
+        req.addProperty("type", "GET_LIBRO");
+        req.addProperty("isbn", isbn);
+        JsonObject resp = ga.procesar("GET_LIBRO", req);
+        return resp.has("libro") ? gson.fromJson(resp.getAsJsonObject("libro"), Libro.class) : null;
+    }
+}
@@ -0,0 +1,57 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import sd.library.model.Libro;
+import sd.library.persistencia.MotorPersistencia;
+
+/*
+ * Motor de persistencia en memoria para las pruebas del GA: guarda lo que quedó durable en
+ * sincronizar() y puede fallar a pedido en registrar() o en sincronizar()
+ */
+class MotorMemoria implements MotorPersistencia {
+    final Map<String, Libro> durable = new HashMap<>();
+    private final Map<String, Libro> anotados = new HashMap<>();
+    volatile boolean fallarRegistrar = false;
+    volatile boolean fallarSincronizar = false;
+    int sincronizaciones = 0;
+
+    @Override
+    public void cargar(Map<String, Libro> inventario) {
+        inventario.putAll(durable);
+    }
+
+    @Override
+    public synchronized void registrar(Libro libro) throws IOException {
+        if (fallarRegistrar) throw new IOException("disco lleno (prueba)");
+        anotados.put(libro.getIsbn(), libro);
+    }
+
+    @Override
+    public synchronized void eliminar(String isbn) throws IOException {
+        if (fallarRegistrar) throw new IOException("disco lleno (prueba)");
+        anotados.put(isbn, null);
+    }
+
+    @Override
+    public synchronized void sincronizar() throws IOException {
+        if (fallarSincronizar) throw new IOException("fsync falló (prueba)");
+        for (Map.Entry<String, Libro> e : anotados.entrySet()) {
+            if (e.getValue() == null) durable.remove(e.getKey());
+            else durable.put(e.getKey(), e.getValue());
+        }
+        anotados.clear();
+        sincronizaciones++;
+    }
+
+    @Override
+    public void close() {}
+}
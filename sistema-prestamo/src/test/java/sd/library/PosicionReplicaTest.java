@@ -0,0 +1,111 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/*
+ * Posición del secundario en el flujo de réplica: secuencias fuera de orden y huecos,
+ * repetidas, cambio de época del primario, fijar tras un snapshot y guardado en disco
+ */
+public class PosicionReplicaTest {
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private String archivo;
+    private PosicionReplica pos;
+
+    @Before
+    public void crear() {
+        archivo = new File(carpeta.getRoot(), "ga.repl").getPath();
+        pos = new PosicionReplica(archivo);
+    }
+
+    @Test
+    public void avanzaSoloSobreSecuenciasContiguas() {
+        pos.registrar(1, 1);
+        pos.registrar(1, 2);
+        pos.registrar(1, 4);
+        pos.registrar(1, 5);
+        assertArrayEquals(new long[] { 1, 2 }, pos.actual());
+        assertEquals(3, pos.hueco());
+
+        pos.registrar(1, 3); // llega la que faltaba: absorbe las adelantadas
+        assertArrayEquals(new long[] { 1, 5 }, pos.actual());
+        assertEquals(-1, pos.hueco());
+    }
+
+    @Test
+    public void ignoraRepetidas() {
+        for (long seq = 1; seq <= 3; seq++) pos.registrar(1, seq);
+        pos.registrar(1, 2);
+        pos.registrar(1, 3);
+        assertArrayEquals(new long[] { 1, 3 }, pos.actual());
+        assertEquals(-1, pos.hueco());
+    }
+
+    @Test
+    public void cambioDeEpocaReiniciaLaSecuencia() {
+        pos.registrar(1, 1);
+        pos.registrar(1, 2);
+        pos.registrar(1, 7); // adelantada de la época vieja: no cuenta en la nueva
+        assertTrue(pos.tomarCambioDeEpoca()); // sin posición guardada la primera época también es un cambio
+
+        pos.registrar(2, 2); // el primario se reinició y la 1 de su nueva época no llegó
+        assertArrayEquals(new long[] { 2, 0 }, pos.actual());
+        assertEquals(1, pos.hueco());
+        assertTrue(pos.tomarCambioDeEpoca());
+        assertFalse(pos.tomarCambioDeEpoca()); // una vez por cambio
+
+        pos.registrar(2, 1);
+        assertArrayEquals(new long[] { 2, 2 }, pos.actual());
+    }
+
+    @Test
+    public void fijarTrasSnapshotDescartaLoCubierto() {
+        pos.registrar(3, 5); // hueco 1..4 que ya no está en el log del primario
+        pos.registrar(3, 9);
+        pos.registrar(3, 11);
+        pos.fijar(3, 8); // snapshot tomado en la 8: incluye la 5
+        assertArrayEquals(new long[] { 3, 9 }, pos.actual());
+        assertEquals(10, pos.hueco());
+
+        pos.fijar(4, 20); // snapshot de otra época
+        assertArrayEquals(new long[] { 4, 20 }, pos.actual());
+        assertEquals(-1, pos.hueco());
+        assertFalse(pos.tomarCambioDeEpoca());
+    }
+
+    @Test
+    public void guardaYCargaSinRetroceder() throws IOException {
+        pos.registrar(5, 1);
+        pos.registrar(5, 2);
+        pos.guardar(pos.actual());
+        pos.guardar(new long[] { 5, 1 }); // posición vieja (tomada antes): no pisa la guardada
+
+        PosicionReplica leida = new PosicionReplica(archivo);
+        leida.cargar();
+        assertArrayEquals(new long[] { 5, 2 }, leida.actual());
+
+        leida.registrar(6, 1); // otra época sí se guarda aunque su secuencia sea menor
+        leida.guardar(leida.actual());
+        PosicionReplica otra = new PosicionReplica(archivo);
+        otra.cargar();
+        assertArrayEquals(new long[] { 6, 1 }, otra.actual());
+    }
+}
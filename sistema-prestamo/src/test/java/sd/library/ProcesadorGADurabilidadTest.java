@@ -0,0 +1,152 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import sd.library.model.Libro;
+
+/*
+ * Durabilidad del GA: commit en grupo (lo anotado es durable solo al sincronizar), cambio
+ * deshecho en memoria si el motor o el diario de resync no lo anotan, y cierre a escrituras
+ * tras un sincronizar fallido hasta que un reintento funcione
+ */
+public class ProcesadorGADurabilidadTest {
+    private static final Gson gson = new Gson();
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    // Diario que puede fallar a pedido al anotar
+    static class DiarioFallido extends DiarioResync {
+        volatile boolean fallar = false;
+
+        DiarioFallido(String archivo) {
+            super(archivo);
+        }
+
+        @Override
+        public synchronized void anotar(String escritura) throws IOException {
+            if (fallar) throw new IOException("disco lleno (prueba)");
+            super.anotar(escritura);
+        }
+    }
+
+    private MotorMemoria motor;
+    private DiarioFallido diario;
+    private ProcesadorGA ga;
+
+    @Before
+    public void crear() throws IOException {
+        motor = new MotorMemoria();
+        motor.durable.put("0020", new Libro("0020", "Rayuela", 3));
+        diario = new DiarioFallido(new File(carpeta.getRoot(), "ga.resync").getPath());
+        ga = new ProcesadorGA(motor, new PosicionReplica(new File(carpeta.getRoot(), "ga.repl").getPath()), diario);
+        ga.cargar();
+    }
+
+    @Test
+    public void loteSeHaceDurableAlSincronizar() throws IOException {
+        for (int u = 0; u < 3; u++) assertEquals("OK", operar("PRESTAR", "USUARIO" + u).get("estatus").getAsString());
+        assertEquals(0, motor.durable.get("0020").getVersion()); // anotado, todavía no durable
+        assertEquals(0, ga.getDiario().tomar(10).size());
+
+        ga.sincronizar();
+        assertEquals(1, motor.sincronizaciones);
+        assertEquals(3, motor.durable.get("0020").getVersion());
+        assertEquals(0, motor.durable.get("0020").getCopiasDisponibles());
+        assertEquals(3, ga.getDiario().tomar(10).size()); // una entrada por escritura del lote
+    }
+
+    @Test
+    public void registrarFallidoNoDejaElCambioVisible() {
+        motor.fallarRegistrar = true;
+        assertEquals("ERROR", operar("PRESTAR", "USUARIO1").get("estatus").getAsString());
+        assertEquals(0, leer("0020").getVersion());
+        assertEquals(3, leer("0020").getCopiasDisponibles());
+        assertEquals(0, diario.pendientes());
+
+        // El reintento del cliente se aplica una sola vez
+        motor.fallarRegistrar = false;
+        JsonObject resp = operar("PRESTAR", "USUARIO1");
+        assertEquals("OK", resp.get("estatus").getAsString());
+        assertEquals(1, leer("0020").getVersion());
+        assertEquals(2, leer("0020").getCopiasDisponibles());
+    }
+
+    @Test
+    public void eliminarFallidoConservaElLibro() {
+        motor.fallarRegistrar = true;
+        JsonObject req = new JsonObject();
+        req.addProperty("type", "ELIMINAR_LIBRO");
+        req.addProperty("isbn", "0020");
+        assertEquals("ERROR", ga.procesar("ELIMINAR_LIBRO", req).get("estatus").getAsString());
+        assertEquals(3, leer("0020").getCopiasDisponibles());
+    }
+
+    @Test
+    public void diarioFallidoDeshaceElCambioYCierraEscrituras() throws IOException {
+        diario.fallar = true;
+        assertEquals("ERROR", operar("PRESTAR", "USUARIO1").get("estatus").getAsString());
+        assertEquals(0, leer("0020").getVersion());
+        assertEquals(3, leer("0020").getCopiasDisponibles());
+        // En el motor quedó anotado el estado anterior encima del cambio
+        ga.sincronizar();
+        assertEquals(3, motor.durable.get("0020").getCopiasDisponibles());
+        assertFalse(motor.durable.get("0020").estaPrestadoA("USUARIO1"));
+    }
+
+    @Test
+    public void sincronizarFallidoCierraEscriturasHastaElReintento() throws Exception {
+        operar("PRESTAR", "USUARIO1");
+        motor.fallarSincronizar = true;
+        try {
+            ga.sincronizar();
+            fail("sincronizar debía fallar");
+        } catch (IOException e) {
+            // esperado
+        }
+        JsonObject resp = operar("PRESTAR", "USUARIO2");
+        assertEquals("ERROR", resp.get("estatus").getAsString());
+        assertEquals("GA sin persistencia, no acepta escrituras", resp.get("mensaje").getAsString());
+        assertEquals(1, leer("0020").getVersion()); // las lecturas siguen
+
+        motor.fallarSincronizar = false;
+        Thread.sleep(Long.getLong("ga.reintentoSyncMs", 1000L) + 100);
+        assertEquals("OK", operar("PRESTAR", "USUARIO2").get("estatus").getAsString());
+        assertTrue(motor.durable.get("0020").estaPrestadoA("USUARIO1")); // el reintento lo hizo durable
+    }
+
+    private JsonObject operar(String tipo, String usuario) {
+        JsonObject req = new JsonObject();
+        req.addProperty("type", tipo);
+        req.addProperty("isbn", "0020");
+        req.addProperty("usuario", usuario);
+        return ga.procesar(tipo, req);
+    }
+
+    private Libro leer(String isbn) {
+        JsonObject req = new JsonObject();
+        req.addProperty("type", "GET_LIBRO");
+        req.addProperty("isbn", isbn);
+        return gson.fromJson(ga.procesar("GET_LIBRO", req).getAsJsonObject("libro"), Libro.class);
+    }
+}
@@ -0,0 +1,120 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import sd.library.model.Libro;
+
+/*
+ * Concurrencia optimista de UPDATE_LIBRO: compare-and-set por versión, secuencia de las
+ * escrituras incondicionales, "copia" de un cliente ignorada y copias por versión solo por
+ * REPLICAR/APLICAR_LOTE
+ */
+public class ProcesadorGAVersionTest {
+    private static final Gson gson = new Gson();
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private ProcesadorGA ga;
+
+    @Before
+    public void crear() throws IOException {
+        ga = new ProcesadorGA(new MotorMemoria(), new PosicionReplica(new File(carpeta.getRoot(), "ga.repl").getPath()), null);
+        ga.cargar();
+        assertEquals("OK", update(libro("0020", 3, 0), null).get("estatus").getAsString());
+    }
+
+    @Test
+    public void casConVersionVigenteAvanza() {
+        JsonObject resp = update(libro("0020", 2, 0), 0L);
+        assertEquals("OK", resp.get("estatus").getAsString());
+        assertEquals(1, resp.get("version").getAsLong());
+        assertEquals(2, leer("0020").getCopiasDisponibles());
+    }
+
+    @Test
+    public void casConVersionVencidaDaConflictoConElLibroActual() {
+        update(libro("0020", 2, 0), 0L);
+        JsonObject resp = update(libro("0020", 9, 0), 0L); // leyó la versión 0, ya hay una 1
+        assertEquals("CONFLICT", resp.get("estatus").getAsString());
+        assertEquals(1, resp.getAsJsonObject("libro").get("version").getAsLong());
+        assertEquals(2, leer("0020").getCopiasDisponibles());
+    }
+
+    @Test
+    public void casSobreLibroInexistenteDaConflicto() {
+        JsonObject resp = update(libro("0099", 1, 0), 0L);
+        assertEquals("CONFLICT", resp.get("estatus").getAsString());
+        assertFalse(resp.has("libro"));
+    }
+
+    @Test
+    public void incondicionalSigueLaSecuenciaGuardada() {
+        update(libro("0020", 2, 57), null);
+        assertEquals(1, leer("0020").getVersion());
+        update(libro("0020", 1, 0), null);
+        assertEquals(2, leer("0020").getVersion());
+    }
+
+    @Test
+    public void copiaDeUnClienteNoFijaLaVersion() {
+        JsonObject req = new JsonObject();
+        req.addProperty("type", "UPDATE_LIBRO");
+        req.addProperty("copia", true);
+        req.add("libro", libro("0020", 1, 999));
+        assertEquals("OK", ga.procesar("UPDATE_LIBRO", req).get("estatus").getAsString());
+        assertEquals(1, leer("0020").getVersion());
+        // un actor que leyó la versión 1 sigue pudiendo escribir: no hubo salto de versión
+        assertEquals("OK", update(libro("0020", 0, 0), 1L).get("estatus").getAsString());
+    }
+
+    @Test
+    public void copiaInternaSeAplicaPorVersion() {
+        JsonObject lote = ProcesadorGA.loteCopia(libro("0020", 1, 5));
+        assertEquals("OK", ga.procesar("APLICAR_LOTE", lote).get("estatus").getAsString());
+        assertEquals(5, leer("0020").getVersion());
+        // una copia más vieja no retrocede la versión
+        ga.procesar("APLICAR_LOTE", ProcesadorGA.loteCopia(libro("0020", 3, 4)));
+        assertEquals(5, leer("0020").getVersion());
+        assertEquals(1, leer("0020").getCopiasDisponibles());
+    }
+
+    private JsonObject update(JsonObject libro, Long versionEsperada) {
+        JsonObject req = new JsonObject();
+        req.addProperty("type", "UPDATE_LIBRO");
+        req.add("libro", libro);
+        if (versionEsperada != null) req.addProperty("versionEsperada", versionEsperada);
+        return ga.procesar("UPDATE_LIBRO", req);
+    }
+
+    private Libro leer(String isbn) {
+        JsonObject req = new JsonObject();
+        req.addProperty("type", "GET_LIBRO");
+        req.addProperty("isbn", isbn);
+        return gson.fromJson(ga.procesar("GET_LIBRO", req).getAsJsonObject("libro"), Libro.class);
+    }
+
+    private static JsonObject libro(String isbn, int copias, long version) {
+        Libro l = new Libro(isbn, "Rayuela", copias);
+        l.setVersion(version);
+        return gson.toJsonTree(l).getAsJsonObject();
+    }
+}
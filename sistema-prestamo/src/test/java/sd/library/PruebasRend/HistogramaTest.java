@@ -0,0 +1,116 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.PruebasRend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+
+/*
+ * Histograma: percentiles dentro del error relativo de las cubetas contra el arreglo
+ * ordenado, ida y vuelta de codificar/decodificar (vacío, valores fuera de rango), suma de
+ * intervalos como la hace AnalizadorTiempos y rechazo de un registro truncado
+ */
+public class HistogramaTest {
+    private static final double[] PERCENTILES = { 0, 1, 50, 90, 99, 99.9, 99.99, 100 };
+
+    @Test
+    public void percentilesDentroDelErrorRelativo() {
+        long[] valores = latencias(new Random(7), 200_000);
+        Histograma h = new Histograma();
+        for (long v : valores) h.registrar(v);
+        Arrays.sort(valores);
+
+        assertEquals(valores.length, h.total());
+        assertEquals(valores[0], h.minimo());
+        assertEquals(valores[valores.length - 1], h.maximo());
+        for (double p : PERCENTILES) {
+            long exacto = valores[(int) Math.max(0, Math.ceil(p / 100.0 * valores.length) - 1)];
+            long medido = h.percentil(p);
+            assertTrue("p" + p + ": " + medido + " < " + exacto, medido >= exacto);
+            assertTrue("p" + p + ": " + medido + " vs " + exacto, medido - exacto <= exacto / 1024);
+        }
+    }
+
+    @Test
+    public void idaYVueltaConservaLaDistribucion() throws DataFormatException {
+        Histograma h = new Histograma();
+        for (long v : latencias(new Random(3), 50_000)) h.registrar(v);
+        h.registrar(0);
+        h.registrar(-5);                // se cuenta como 0
+        h.registrar(10_000_000_000L);   // más de MAXIMO: última cubeta, máximo real aparte
+
+        Histograma leido = Histograma.decodificar(h.codificar());
+        assertIgual(h, leido);
+        assertEquals(10_000_000_000L, leido.maximo());
+        assertEquals(0, leido.minimo());
+    }
+
+    @Test
+    public void vacioIdaYVuelta() throws DataFormatException {
+        Histograma leido = Histograma.decodificar(new Histograma().codificar());
+        assertEquals(0, leido.total());
+        assertEquals(0, leido.minimo());
+        assertEquals(0, leido.percentil(99));
+        assertEquals(0.0, leido.media(), 0.0);
+
+        leido.registrar(42); // el mínimo de un vacío decodificado no queda en 0
+        assertEquals(42, leido.minimo());
+    }
+
+    @Test
+    public void sumaDeIntervalosIgualAlTotal() throws DataFormatException {
+        Random azar = new Random(11);
+        Histograma total = new Histograma();
+        Histograma intervalo = new Histograma();
+        Histograma unido = new Histograma();
+        for (int i = 0; i < 20; i++) {
+            for (long v : latencias(azar, 1000 + azar.nextInt(2000))) {
+                intervalo.registrar(v);
+                total.registrar(v);
+            }
+            unido.sumar(Histograma.decodificar(intervalo.codificar())); // una línea del .hlog
+            intervalo.reiniciar();
+        }
+        assertIgual(total, unido);
+    }
+
+    @Test
+    public void rechazaRegistroTruncado() {
+        Histograma h = new Histograma();
+        for (long v : latencias(new Random(5), 10_000)) h.registrar(v);
+        String texto = h.codificar();
+        try {
+            Histograma.decodificar(texto.substring(0, texto.length() / 8 * 4));
+            fail("histograma truncado aceptado");
+        } catch (DataFormatException e) {
+            // esperado
+        }
+    }
+
+    // Latencias en us con cola larga (lognormal): mediana de ~1 ms y algunas de varios segundos
+    private static long[] latencias(Random azar, int n) {
+        long[] valores = new long[n];
+        for (int i = 0; i < n; i++) valores[i] = (long) Math.exp(7 + 2 * azar.nextGaussian());
+        return valores;
+    }
+
+    private static void assertIgual(Histograma esperado, Histograma h) {
+        assertEquals(esperado.total(), h.total());
+        assertEquals(esperado.minimo(), h.minimo());
+        assertEquals(esperado.maximo(), h.maximo());
+        for (double p : PERCENTILES) assertEquals("p" + p, esperado.percentil(p), h.percentil(p));
+        assertEquals(esperado.media(), h.media(), 1e-9);
+        assertEquals(esperado.desviacion(), h.desviacion(), 1e-9);
+    }
+}
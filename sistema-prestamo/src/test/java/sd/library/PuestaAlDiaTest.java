@@ -0,0 +1,170 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.zeromq.ZContext;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import sd.library.model.Libro;
+
+/*
+ * Puesta al día de un secundario reiniciado: tramo del log de réplica del primario (páginas,
+ * fin, SNAPSHOT si la época no coincide o el hueco salió del log) y copia de un snapshot
+ * por páginas que quita lo eliminado sin perder lo que llegó por el flujo durante la copia
+ */
+public class PuestaAlDiaTest {
+    private static final Gson gson = new Gson();
+    private static final int LOG_MAX = Integer.getInteger("ga.logReplicacion", 100_000);
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private final ZContext ctx = new ZContext();
+
+    @After
+    public void cerrar() {
+        ctx.close();
+    }
+
+    @Test
+    public void tramoEntregaLoQueFaltaPorPaginas() {
+        ReplicadorGA replicador = replicador();
+        for (int i = 1; i <= 25; i++) replicador.enviar(eliminacion(i));
+        long epoca = replicador.posicion()[0];
+
+        JsonObject pagina = replicador.tramo(epoca, 10, 7);
+        assertEquals("OK", pagina.get("estatus").getAsString());
+        assertSecuencias(pagina.getAsJsonArray("ops"), 11, 17);
+        assertFalse(pagina.get("fin").getAsBoolean());
+
+        pagina = replicador.tramo(epoca, 21, 7);
+        assertSecuencias(pagina.getAsJsonArray("ops"), 22, 25);
+        assertTrue(pagina.get("fin").getAsBoolean());
+        assertEquals("25", pagina.getAsJsonArray("ops").get(3).getAsJsonObject().getAsJsonObject("op").get("isbn").getAsString());
+
+        pagina = replicador.tramo(epoca, 25, 7); // ya al día
+        assertEquals(0, pagina.getAsJsonArray("ops").size());
+        assertTrue(pagina.get("fin").getAsBoolean());
+    }
+
+    @Test
+    public void tramoPideSnapshotSiNoPuedeContinuar() {
+        ReplicadorGA replicador = replicador();
+        for (int i = 1; i <= 5; i++) replicador.enviar(eliminacion(i));
+        long epoca = replicador.posicion()[0];
+
+        assertEquals("SNAPSHOT", replicador.tramo(epoca - 1, 2, 10).get("estatus").getAsString()); // otra ejecución
+        assertEquals("SNAPSHOT", replicador.tramo(epoca, 9, 10).get("estatus").getAsString());     // adelante del primario
+
+        for (int i = 6; i <= LOG_MAX + 3; i++) replicador.enviar(eliminacion(i));
+        assertEquals("SNAPSHOT", replicador.tramo(epoca, 2, 10).get("estatus").getAsString());     // la 3 salió del log
+        assertEquals("OK", replicador.tramo(epoca, 3, 10).get("estatus").getAsString());
+    }
+
+    @Test
+    public void copiaDeSnapshotPorPaginas() throws IOException {
+        ProcesadorGA primario = procesador("primario", 30);
+        ProcesadorGA secundario = procesador("secundario", 35); // tiene 5 que el primario ya eliminó
+        update(primario, "0004", 1);
+
+        Set<String> previos = secundario.iniciarCopia();
+        JsonObject pedido = new JsonObject();
+        pedido.addProperty("type", "SNAPSHOT");
+        pedido.addProperty("limite", 7);
+        JsonObject resp = primario.procesar("SNAPSHOT", pedido);
+        assertEquals(30, resp.get("total").getAsInt());
+        pedido.add("sesion", resp.get("sesion"));
+        int paginas = 0;
+        while (true) {
+            for (JsonElement libro : resp.getAsJsonArray("libros")) {
+                secundario.aplicarReplica(ProcesadorGA.updateCopia(libro.getAsJsonObject()));
+            }
+            paginas++;
+            if (paginas == 2) {
+                // Llega por el flujo en vivo un libro nuevo y uno de los que se eliminarán luego
+                secundario.aplicarReplica(ProcesadorGA.updateCopia(libro("0040", 4)));
+                secundario.aplicarReplica(ProcesadorGA.updateCopia(libro("0031", 2)));
+            }
+            if (resp.get("fin").getAsBoolean()) break;
+            pedido.add("desde", resp.get("siguiente"));
+            resp = primario.procesar("SNAPSHOT", pedido);
+        }
+        assertEquals(5, paginas);
+        assertEquals(4, secundario.terminarCopia(previos)); // 0030, 0032..0034; 0031 lo tocó el flujo
+
+        for (int i = 0; i < 30; i++) {
+            String isbn = String.format("%04d", i);
+            assertEquals(gson.toJson(leer(primario, isbn)), gson.toJson(leer(secundario, isbn)));
+        }
+        assertEquals(1, leer(secundario, "0004").getVersion());
+        assertEquals(4, leer(secundario, "0040").getVersion());
+        assertEquals(2, leer(secundario, "0031").getVersion());
+        assertNull(leer(secundario, "0030"));
+    }
+
+    private ReplicadorGA replicador() {
+        return new ReplicadorGA(ctx, "localhost", 1); // sin secundario: el flujo queda degradado, el log sigue
+    }
+
+    private static String eliminacion(int i) {
+        return "{\"type\":\"ELIMINAR_LIBRO\",\"isbn\":\"" + i + "\"}";
+    }
+
+    private static void assertSecuencias(JsonArray ops, long primera, long ultima) {
+        assertEquals(ultima - primera + 1, ops.size());
+        for (int i = 0; i < ops.size(); i++) assertEquals(primera + i, ops.get(i).getAsJsonObject().get("seq").getAsLong());
+    }
+
+    private ProcesadorGA procesador(String nombre, int libros) throws IOException {
+        MotorMemoria motor = new MotorMemoria();
+        for (int i = 0; i < libros; i++) {
+            String isbn = String.format("%04d", i);
+            motor.durable.put(isbn, new Libro(isbn, "Titulo " + i, 3));
+        }
+        ProcesadorGA ga = new ProcesadorGA(motor, new PosicionReplica(new File(carpeta.getRoot(), nombre + ".repl").getPath()), null);
+        ga.cargar();
+        return ga;
+    }
+
+    private static void update(ProcesadorGA ga, String isbn, int copias) {
+        JsonObject req = new JsonObject();
+        req.addProperty("type", "UPDATE_LIBRO");
+        req.add("libro", gson.toJsonTree(new Libro(isbn, "Titulo", copias)));
+        assertEquals("OK", ga.procesar("UPDATE_LIBRO", req).get("estatus").getAsString());
+    }
+
+    private static JsonObject libro(String isbn, long version) {
+        Libro l = new Libro(isbn, "Titulo", 3);
+        l.setVersion(version);
+        return gson.toJsonTree(l).getAsJsonObject();
+    }
+
+    private static Libro leer(ProcesadorGA ga, String isbn) {
+        JsonObject req = new JsonObject();
+        req.addProperty("type", "GET_LIBRO");
+        req.addProperty("isbn", isbn);
+        JsonObject resp = ga.procesar("GET_LIBRO", req);
+        return resp.has("libro") ? gson.fromJson(resp.getAsJsonObject("libro"), Libro.class) : null;
+    }
+}
@@ -0,0 +1,144 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import sd.library.model.Libro;
+import sd.library.model.Request;
+
+/*
+ * CodecBinario: ida y vuelta contra el codec JSON (sobres con libro, números, nulos,
+ * arreglos), decodificación tipada, Request, y rechazo de mensajes truncados o con bytes
+ * de más con IllegalArgumentException
+ */
+public class CodecBinarioTest {
+    private static final Gson gson = new Gson();
+    private final Codec binario = new CodecBinario();
+
+    // Forma de la respuesta de GET_LIBRO que lee ClienteGA
+    static class Respuesta {
+        String estatus;
+        String mensaje;
+        Libro libro;
+        long version;
+    }
+
+    @Test
+    public void idaYVueltaIgualQueJson() {
+        JsonObject msg = sobre();
+        assertEquals(json(msg), json(binario.decodificar(binario.codificar(msg))));
+    }
+
+    @Test
+    public void decodificaDirectoAlTipo() {
+        Respuesta r = binario.decodificar(binario.codificar(sobre()), Respuesta.class);
+        assertEquals("OK", r.estatus);
+        assertEquals("préstamo ñ", r.mensaje);
+        assertEquals(7L, r.version);
+        assertEquals(gson.toJson(libro()), gson.toJson(r.libro));
+    }
+
+    @Test
+    public void requestIdaYVuelta() {
+        for (Request.Tipo tipo : Request.Tipo.values()) {
+            Request req = new Request(tipo, "0020", "USUARIO4");
+            req.setId("c-17");
+            Request leido = binario.decodificarRequest(binario.codificarRequest(req));
+            assertEquals(gson.toJson(req), gson.toJson(leido));
+        }
+    }
+
+    @Test
+    public void rechazaSobreTruncado() {
+        byte[] datos = binario.codificar(sobre());
+        for (int largo = 0; largo < datos.length; largo++) {
+            try {
+                binario.decodificar(Arrays.copyOf(datos, largo));
+                fail("sobre truncado a " + largo + " de " + datos.length + " bytes aceptado");
+            } catch (IllegalArgumentException e) {
+                // esperado
+            }
+        }
+    }
+
+    @Test
+    public void rechazaRequestTruncada() {
+        Request req = new Request(Request.Tipo.RENOVACION, "0020", "USUARIO4");
+        req.setId("c-17");
+        byte[] datos = binario.codificarRequest(req);
+        for (int largo = 0; largo < datos.length; largo++) {
+            try {
+                binario.decodificarRequest(Arrays.copyOf(datos, largo));
+                fail("request truncada a " + largo + " de " + datos.length + " bytes aceptada");
+            } catch (IllegalArgumentException e) {
+                // esperado
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rechazaBytesDeMas() {
+        byte[] datos = binario.codificar(sobre());
+        binario.decodificar(Arrays.copyOf(datos, datos.length + 1));
+    }
+
+    @Test
+    public void requestSinCamposOpcionales() {
+        Request leido = binario.decodificarRequest(binario.codificarRequest(new Request(Request.Tipo.PRESTAMO, "0001", "ana")));
+        assertEquals(Request.Tipo.PRESTAMO, leido.getTipo());
+        assertNull(leido.getId());
+    }
+
+    private static Libro libro() {
+        Libro l = new Libro("0020", "Rayuela", 3);
+        l.prestarA("ana", "2026-10-25");
+        l.prestarA("ana", "2026-10-26");
+        l.prestarA("bob", "2026-11-01");
+        l.renovarA("bob", "2026-11-08");
+        l.setVersion(7);
+        return l;
+    }
+
+    private static JsonObject sobre() {
+        JsonObject msg = new JsonObject();
+        msg.addProperty("estatus", "OK");
+        msg.addProperty("mensaje", "préstamo ñ");
+        msg.add("libro", gson.toJsonTree(libro()));
+        msg.addProperty("version", 7L);
+        msg.addProperty("grande", Long.MIN_VALUE);
+        msg.addProperty("real", 2.5);
+        msg.addProperty("activo", true);
+        msg.add("nada", JsonNull.INSTANCE);
+        JsonArray arreglo = new JsonArray();
+        arreglo.add(1);
+        arreglo.add("x");
+        arreglo.add(new JsonObject());
+        msg.add("arreglo", arreglo);
+        JsonObject parecido = new JsonObject(); // tiene isbn pero no la forma de un libro
+        parecido.addProperty("isbn", "1");
+        parecido.addProperty("extra", 1);
+        msg.add("otro", parecido);
+        return msg;
+    }
+
+    // Forma canónica: el mismo árbol pasado por el codec JSON
+    private static String json(JsonObject msg) {
+        return Codecs.JSON.decodificar(Codecs.JSON.codificar(msg)).toString();
+    }
+}
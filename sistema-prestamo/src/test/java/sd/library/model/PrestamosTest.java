@@ -0,0 +1,132 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/*
+ * Prestamos contra un HashMap de referencia: operaciones al azar (alta, cambio de campos,
+ * quitar) sobre universos de usuarios de distinto tamaño, así se recorren tanto la búsqueda
+ * lineal como el índice hash con sus borrados y reconstrucciones
+ */
+public class PrestamosTest {
+    private static final int OPERACIONES = 20_000;
+
+    @Test
+    public void coincideConHashMapEnUniversoChico() {
+        comparar(new Random(1), 12);
+    }
+
+    @Test
+    public void coincideConHashMapEnUniversoGrande() {
+        comparar(new Random(2), 500);
+    }
+
+    @Test
+    public void copiaIndependiente() {
+        Prestamos original = new Prestamos();
+        for (int u = 0; u < 40; u++) original.fijarCopias(original.obtener("u" + u), u + 1);
+        Prestamos copia = new Prestamos(original);
+        copia.quitar(copia.posicion("u7"));
+        copia.fijarCopias(copia.posicion("u8"), 99);
+
+        assertEquals(40, original.cantidad());
+        assertEquals(8, original.copias(original.posicion("u7")));
+        assertEquals(9, original.copias(original.posicion("u8")));
+        assertEquals(39, copia.cantidad());
+        assertEquals(-1, copia.posicion("u7"));
+        assertEquals(99, copia.copias(copia.posicion("u8")));
+    }
+
+    @Test
+    public void renovacionesSeSaturan() {
+        Prestamos p = new Prestamos();
+        int pos = p.obtener("u3");
+        assertEquals(Prestamos.SIN_RENOVACIONES, p.renovaciones(pos));
+        assertEquals(Prestamos.SIN_FECHA, p.fecha(pos));
+        p.fijarRenovaciones(pos, 1000);
+        assertEquals(Byte.MAX_VALUE, p.renovaciones(pos));
+    }
+
+    @Test
+    public void nombresInternados() {
+        Prestamos a = new Prestamos();
+        Prestamos b = new Prestamos();
+        String nombre = new String("USUARIO4");
+        a.obtener(nombre);
+        b.obtener(new String("USUARIO4"));
+        assertTrue(a.usuario(0) == b.usuario(0));
+    }
+
+    // Referencia: usuario -> {copias, fecha, renovaciones}
+    private static void comparar(Random azar, int universo) {
+        Prestamos p = new Prestamos();
+        Map<String, int[]> esperado = new HashMap<>();
+        for (int i = 0; i < OPERACIONES; i++) {
+            String usuario = "u" + azar.nextInt(universo); // instancia nueva: compara por contenido
+            int op = azar.nextInt(10);
+            if (op < 5) {
+                int pos = p.obtener(usuario);
+                int[] campos = esperado.computeIfAbsent(usuario, u -> new int[] { 0, Prestamos.SIN_FECHA, Prestamos.SIN_RENOVACIONES });
+                int copias = azar.nextInt(5);
+                int fecha = 20_000 + azar.nextInt(1000);
+                int renovaciones = azar.nextInt(3);
+                p.fijarCopias(pos, copias);
+                p.fijarFecha(pos, fecha);
+                p.fijarRenovaciones(pos, renovaciones);
+                campos[0] = copias;
+                campos[1] = fecha;
+                campos[2] = renovaciones;
+            } else if (op < 9) {
+                int pos = p.posicion(usuario);
+                assertEquals(esperado.containsKey(usuario), pos >= 0);
+                if (pos >= 0) {
+                    p.quitar(pos);
+                    esperado.remove(usuario);
+                }
+            } else if (!esperado.isEmpty()) {
+                // Quitar por posición al azar (la última entrada pasa al hueco)
+                int pos = azar.nextInt(p.cantidad());
+                esperado.remove(p.usuario(pos));
+                p.quitar(pos);
+            }
+            if (i % 97 == 0) verificar(p, esperado, universo);
+        }
+        verificar(p, esperado, universo);
+    }
+
+    private static void verificar(Prestamos p, Map<String, int[]> esperado, int universo) {
+        assertEquals(esperado.size(), p.cantidad());
+        for (int i = 0; i < universo; i++) {
+            String u = "u" + i;
+            int pos = p.posicion(u);
+            int[] campos = esperado.get(u);
+            if (campos == null) {
+                assertEquals("usuario " + u, -1, pos);
+                continue;
+            }
+            assertTrue("usuario " + u, pos >= 0);
+            assertEquals(u, p.usuario(pos));
+            assertEquals(campos[0], p.copias(pos));
+            assertEquals(campos[1], p.fecha(pos));
+            assertEquals(campos[2], p.renovaciones(pos));
+        }
+        List<String> vistos = new ArrayList<>();
+        for (int i = 0; i < p.cantidad(); i++) vistos.add(p.usuario(i));
+        assertEquals(esperado.size(), new HashSet<>(vistos).size());
+    }
+}
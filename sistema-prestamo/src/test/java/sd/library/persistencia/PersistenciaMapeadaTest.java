@@ -0,0 +1,217 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.persistencia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+
+import sd.library.model.Libro;
+
+/*
+ * PersistenciaMapeada sobre un directorio temporal: importación del JSON, reapertura tras
+ * cierre limpio y no limpio (un lado del par dañado), compactación, recorrido por páginas
+ * y el límite de ISBN_MAX bytes al importar
+ */
+public class PersistenciaMapeadaTest {
+    private static final Gson gson = new Gson();
+    private static final int LIBROS = 50;
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private String archivo;
+
+    @Before
+    public void importarInventario() throws IOException {
+        archivo = new File(carpeta.getRoot(), "inventario.json").getPath();
+        List<Libro> libros = new ArrayList<>();
+        for (int i = 0; i < LIBROS; i++) {
+            Libro l = new Libro(String.format("%04d", i), "Titulo " + i, 3);
+            if (i % 5 == 0) l.prestarA("USUARIO" + i, "2026-10-25");
+            libros.add(l);
+        }
+        PersistenciaJson.escribirSnapshot(Paths.get(archivo), libros);
+    }
+
+    @Test
+    public void reabreTrasCierreLimpio() throws IOException {
+        Map<String, String> esperado = new HashMap<>();
+        try (PersistenciaMapeada motor = new PersistenciaMapeada(archivo)) {
+            Map<String, Libro> inventario = abrir(motor);
+            assertEquals(LIBROS, inventario.size());
+            Libro l = cambiar(inventario, motor, "0007", 5);
+            l.prestarA("ana", "2026-11-01");
+            motor.registrar(l);
+            inventario.remove("0003");
+            motor.eliminar("0003");
+            Libro nuevo = new Libro("9999", null, 1);
+            inventario.put("9999", nuevo);
+            motor.registrar(nuevo);
+            motor.sincronizar();
+            for (Libro x : inventario.values()) esperado.put(x.getIsbn(), gson.toJson(x));
+        }
+        try (PersistenciaMapeada motor = new PersistenciaMapeada(archivo)) {
+            Map<String, Libro> inventario = abrir(motor);
+            assertEquals(esperado.size(), inventario.size());
+            assertNull(inventario.get("0003"));
+            for (Map.Entry<String, String> e : esperado.entrySet()) {
+                assertEquals(e.getValue(), gson.toJson(inventario.get(e.getKey())));
+            }
+        }
+    }
+
+    @Test
+    public void cierreNoLimpioConservaUltimaVersionForzada() throws IOException {
+        PersistenciaMapeada motor = new PersistenciaMapeada(archivo);
+        Map<String, Libro> inventario = abrir(motor);
+        cambiar(inventario, motor, "0011", 100);
+        motor.sincronizar();
+        cambiar(inventario, motor, "0011", 101);
+        cambiar(inventario, motor, "0011", 102); // sin forzar: reescribe el mismo lado
+        danarRegistro(102);
+        // Caída: el motor no se cierra, el archivo queda marcado como no limpio
+
+        try (PersistenciaMapeada otro = new PersistenciaMapeada(archivo)) {
+            Map<String, Libro> recuperado = abrir(otro);
+            assertEquals(LIBROS, recuperado.size());
+            assertEquals(100, recuperado.get("0011").getVersion());
+            cambiar(recuperado, otro, "0011", 103);
+            otro.sincronizar();
+        }
+        try (PersistenciaMapeada otro = new PersistenciaMapeada(archivo)) {
+            assertEquals(103, abrir(otro).get("0011").getVersion());
+        }
+    }
+
+    @Test
+    public void compactacionConservaLibrosYPosiciones() throws IOException {
+        Map<String, String> esperado = new HashMap<>();
+        char[] relleno = new char[2048];
+        Arrays.fill(relleno, 'x');
+        try (PersistenciaMapeada motor = new PersistenciaMapeada(archivo)) {
+            Map<String, Libro> inventario = abrir(motor);
+            inventario.remove("0000");
+            motor.eliminar("0000");
+            // Cada cambio deja muerta la entrada anterior: >1 MB de muertas dispara la compactación
+            for (int i = 0; i < 1200; i++) {
+                Libro l = cambiar(inventario, motor, String.format("%04d", 1 + i % 10), 10 + i);
+                l.setTitulo(new String(relleno) + i);
+                motor.registrar(l);
+                if (i % 50 == 0) motor.sincronizar();
+            }
+            motor.sincronizar();
+            assertFalse(new File(archivo + ".prestamos.1").exists());
+
+            Set<String> recorridos = new HashSet<>();
+            MotorPersistencia.Recorrido recorrido = motor.recorrer(inventario);
+            for (int pos = 0; pos >= 0; ) {
+                int anterior = recorridos.size();
+                pos = recorrido.pagina(pos, 7, l -> assertTrue(recorridos.add(l.getIsbn())));
+                assertTrue(pos < 0 || recorridos.size() - anterior == 7);
+            }
+            assertEquals(LIBROS - 1, recorridos.size());
+            for (Libro x : inventario.values()) esperado.put(x.getIsbn(), gson.toJson(x));
+        }
+        try (PersistenciaMapeada motor = new PersistenciaMapeada(archivo)) {
+            Map<String, Libro> copia = new HashMap<>(); // mapa propio: recibe los libros decodificados
+            motor.cargar(copia);
+            assertEquals(esperado.size(), copia.size());
+            for (Map.Entry<String, String> e : esperado.entrySet()) {
+                assertEquals(e.getValue(), gson.toJson(copia.get(e.getKey())));
+            }
+        }
+    }
+
+    @Test
+    public void importacionRechazaIsbnLargoSinDejarArchivos() throws IOException {
+        List<Libro> libros = new ArrayList<>();
+        libros.add(new Libro("0001", "Corto", 1));
+        libros.add(new Libro("978-0-00-000000-0-EDICION-ESPECIAL", "Largo", 1)); // 34 bytes
+        PersistenciaJson.escribirSnapshot(Paths.get(archivo), libros);
+        try (PersistenciaMapeada motor = new PersistenciaMapeada(archivo)) {
+            abrir(motor);
+            fail("un ISBN de más de 32 bytes debía detener la importación");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("EDICION-ESPECIAL") && e.getMessage().contains("mmap"));
+        }
+        assertFalse(new File(archivo + ".libros").exists());
+        assertFalse(new File(archivo + ".libros.tmp").exists());
+        assertFalse(new File(archivo + ".prestamos.1").exists());
+    }
+
+    @Test
+    public void removeSobreLaVistaRespetaPendientes() throws IOException {
+        try (PersistenciaMapeada motor = new PersistenciaMapeada(archivo)) {
+            Map<String, Libro> inventario = abrir(motor);
+            assertTrue(inventario.containsKey("0004"));
+            assertFalse(inventario.containsKey("7777"));
+            inventario.remove("7777"); // no existe: no queda un borrado pendiente
+            assertEquals(LIBROS, inventario.size());
+            inventario.remove("0004");
+            assertFalse(inventario.containsKey("0004"));
+            assertEquals(LIBROS - 1, inventario.size());
+            inventario.put("0004", new Libro("0004", "Otra vez", 2));
+            assertTrue(inventario.containsKey("0004"));
+            assertEquals(LIBROS, inventario.size());
+        }
+    }
+
+    private static Map<String, Libro> abrir(PersistenciaMapeada motor) throws IOException {
+        Map<String, Libro> inventario = motor.crearInventario();
+        motor.cargar(inventario);
+        return inventario;
+    }
+
+    private static Libro cambiar(Map<String, Libro> inventario, PersistenciaMapeada motor, String isbn, long version) throws IOException {
+        Libro l = new Libro(inventario.get(isbn));
+        l.setVersion(version);
+        inventario.put(isbn, l);
+        motor.registrar(l);
+        return l;
+    }
+
+    // Simula una escritura a medias: altera las copias del registro con esa versión sin rehacer su CRC
+    private void danarRegistro(long version) throws IOException {
+        Path registros = Paths.get(archivo + ".libros");
+        try (FileChannel canal = FileChannel.open(registros, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapeo = canal.map(FileChannel.MapMode.READ_WRITE, 0, canal.size());
+            int danados = 0;
+            for (int base = 128; base + 64 <= canal.size(); base += 64) { // cabecera de 128, registros de 64
+                if (mapeo.get(base) == 1 && mapeo.getLong(base + 38) == version) {
+                    mapeo.putInt(base + 34, mapeo.getInt(base + 34) + 1);
+                    danados++;
+                }
+            }
+            assertEquals(1, danados);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**************************************************************
+#                         Pontificia Universidad Javeriana
+#     Autor: Juan Bello, Kevin Garay, Arley Bernal
+#     Fecha: 18 de Noviembre 2025
+#     Materia: Sistemas Distribuidos
+**************************************************************/
+package sd.library.persistencia;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+
+import sd.library.model.Libro;
+
+/*
+ * PersistenciaWal sobre un directorio temporal: reaplicación del log al reabrir, rotación y
+ * snapshot al llegar a -Dga.compactarCada registros, log anterior de una rotación sin
+ * terminar, registro final incompleto descartado y registro dañado en medio rechazado
+ */
+public class PersistenciaWalTest {
+    private static final Gson gson = new Gson();
+    private static final int LIBROS = 20;
+    private static final int COMPACTAR_CADA = Integer.getInteger("ga.compactarCada", 10_000);
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private String archivo;
+
+    @Before
+    public void escribirInventario() throws IOException {
+        archivo = new File(carpeta.getRoot(), "inventario.json").getPath();
+        List<Libro> libros = new ArrayList<>();
+        for (int i = 0; i < LIBROS; i++) libros.add(new Libro(String.format("%04d", i), "Titulo " + i, 3));
+        PersistenciaJson.escribirSnapshot(Paths.get(archivo), libros);
+    }
+
+    @Test
+    public void reabreConLosCambiosDelLog() throws IOException {
+        Map<String, String> esperado = new HashMap<>();
+        try (PersistenciaWal motor = new PersistenciaWal(archivo)) {
+            Map<String, Libro> inventario = abrir(motor);
+            cambiar(inventario, motor, "0004", 7).prestarA("ana", "2026-11-01");
+            motor.registrar(inventario.get("0004"));
+            inventario.remove("0005");
+            motor.eliminar("0005");
+            motor.sincronizar();
+            for (Libro l : inventario.values()) esperado.put(l.getIsbn(), gson.toJson(l));
+        }
+        assertTrue(Files.size(Paths.get(archivo + ".wal")) > 0);
+        try (PersistenciaWal motor = new PersistenciaWal(archivo)) {
+            assertIgual(esperado, abrir(motor));
+        }
+    }
+
+    @Test
+    public void rotaYCompactaAlLlegarAlLimite() throws IOException {
+        Map<String, String> esperado = new HashMap<>();
+        Path log = Paths.get(archivo + ".wal");
+        try (PersistenciaWal motor = new PersistenciaWal(archivo)) {
+            Map<String, Libro> inventario = abrir(motor);
+            for (int i = 0; i < COMPACTAR_CADA; i++) cambiar(inventario, motor, String.format("%04d", i % LIBROS), 1 + i / LIBROS);
+            motor.sincronizar(); // rota: el log sigue vacío y el snapshot se escribe aparte
+            assertEquals(0, Files.size(log));
+            cambiar(inventario, motor, "0001", 1_000_000);
+            motor.sincronizar();
+            for (Libro l : inventario.values()) esperado.put(l.getIsbn(), gson.toJson(l));
+        } // close espera al snapshot
+        assertFalse(Files.exists(Paths.get(archivo + ".wal.anterior")));
+        assertEquals(1, Files.readAllLines(log, StandardCharsets.UTF_8).size()); // solo lo posterior a la rotación
+        Map<String, Libro> snapshot = new HashMap<>();
+        PersistenciaJson.leerSnapshot(Paths.get(archivo), snapshot);
+        assertEquals(COMPACTAR_CADA / LIBROS, snapshot.get("0002").getVersion());
+        try (PersistenciaWal motor = new PersistenciaWal(archivo)) {
+            assertIgual(esperado, abrir(motor));
+        }
+    }
+
+    @Test
+    public void reaplicaElLogAnteriorDeUnaRotacionSinTerminar() throws IOException {
+        // Caída entre la rotación y el snapshot: anterior y log nuevo, snapshot viejo
+        Files.write(Paths.get(archivo + ".wal.anterior"), lineas(actualizacion("0003", 1), actualizacion("0004", 1)));
+        Files.write(Paths.get(archivo + ".wal"), lineas(actualizacion("0003", 2), "{\"op\":\"D\",\"isbn\":\"0006\"}"));
+        try (PersistenciaWal motor = new PersistenciaWal(archivo)) {
+            Map<String, Libro> inventario = abrir(motor);
+            assertEquals(2, inventario.get("0003").getVersion());
+            assertEquals(1, inventario.get("0004").getVersion());
+            assertNull(inventario.get("0006"));
+        }
+        assertFalse(Files.exists(Paths.get(archivo + ".wal.anterior"))); // el arranque lo compactó
+        Map<String, Libro> snapshot = new HashMap<>();
+        PersistenciaJson.leerSnapshot(Paths.get(archivo), snapshot);
+        assertEquals(LIBROS - 1, snapshot.size());
+        assertEquals(2, snapshot.get("0003").getVersion());
+    }
+
+    @Test
+    public void descartaRegistroFinalIncompleto() throws IOException {
+        String cortado = actualizacion("0003", 5);
+        cortado = cortado.substring(0, cortado.length() / 2); // caída a mitad de la escritura
+        Files.write(Paths.get(archivo + ".wal"), (actualizacion("0003", 4) + "\n" + cortado).getBytes(StandardCharsets.UTF_8));
+        try (PersistenciaWal motor = new PersistenciaWal(archivo)) {
+            Map<String, Libro> inventario = abrir(motor);
+            assertEquals(4, inventario.get("0003").getVersion());
+            cambiar(inventario, motor, "0003", 6); // se anexa a un log limpio, no detrás del registro roto
+            motor.sincronizar();
+        }
+        try (PersistenciaWal motor = new PersistenciaWal(archivo)) {
+            assertEquals(6, abrir(motor).get("0003").getVersion());
+        }
+    }
+
+    @Test
+    public void rechazaRegistroDanadoEnMedio() throws IOException {
+        Files.write(Paths.get(archivo + ".wal"), lineas(actualizacion("0003", 1), "{\"op\":\"U\",\"lib", actualizacion("0003", 2)));
+        try (PersistenciaWal motor = new PersistenciaWal(archivo)) {
+            abrir(motor);
+            fail("un registro dañado en medio del log debía detener la carga");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("registro 2"));
+        }
+    }
+
+    private static Map<String, Libro> abrir(PersistenciaWal motor) throws IOException {
+        Map<String, Libro> inventario = new ConcurrentHashMap<>();
+        motor.cargar(inventario);
+        return inventario;
+    }
+
+    private static Libro cambiar(Map<String, Libro> inventario, PersistenciaWal motor, String isbn, long version) throws IOException {
+        Libro l = new Libro(inventario.get(isbn));
+        l.setVersion(version);
+        inventario.put(isbn, l);
+        motor.registrar(l);
+        return l;
+    }
+
+    private static String actualizacion(String isbn, long version) {
+        Libro l = new Libro(isbn, "Titulo", 3);
+        l.setVersion(version);
+        return "{\"op\":\"U\",\"libro\":" + gson.toJson(l) + "}";
+    }
+
+    private static List<String> lineas(String... registros) {
+        List<String> l = new ArrayList<>();
+        for (String r : registros) l.add(r);
+        return l;
+    }
+
+    private static void assertIgual(Map<String, String> esperado, Map<String, Libro> inventario) {
+        assertEquals(esperado.size(), inventario.size());
+        for (Map.Entry<String, String> e : esperado.entrySet()) {
+            assertEquals(e.getValue(), gson.toJson(inventario.get(e.getKey())));
+        }
+    }
+}